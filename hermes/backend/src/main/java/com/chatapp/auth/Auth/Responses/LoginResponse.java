@@ -8,6 +8,8 @@ import lombok.Setter;
 public class LoginResponse {
     private String token;
     private Long expiresIn;  // Changed to Long for better handling of time
+    private String refreshToken;
+    private Long refreshExpiresIn;
 
     // Default constructor for Spring binding
     public LoginResponse() {
@@ -18,4 +20,11 @@ public class LoginResponse {
         this.token = token;
         this.expiresIn = expiresIn;
     }
+
+    public LoginResponse(String token, Long expiresIn, String refreshToken, Long refreshExpiresIn) {
+        this.token = token;
+        this.expiresIn = expiresIn;
+        this.refreshToken = refreshToken;
+        this.refreshExpiresIn = refreshExpiresIn;
+    }
 }
@@ -1,6 +1,8 @@
 package com.chatapp.auth.Auth.config;
 
 import com.chatapp.auth.Auth.service.JwtService;
+import com.chatapp.auth.Auth.service.TokenRevocationService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -26,11 +28,14 @@ public class JwtFilter extends OncePerRequestFilter {
     private final HandlerExceptionResolver handlerExceptionResolver;
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final TokenRevocationService tokenRevocationService;
 
-    public JwtFilter(HandlerExceptionResolver handlerExceptionResolver, JwtService jwtService, UserDetailsService userDetailsService) {
+    public JwtFilter(HandlerExceptionResolver handlerExceptionResolver, JwtService jwtService, UserDetailsService userDetailsService,
+                     TokenRevocationService tokenRevocationService) {
         this.handlerExceptionResolver = handlerExceptionResolver;
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     @Override
@@ -54,16 +59,19 @@ public class JwtFilter extends OncePerRequestFilter {
         log.info("JWT Token extracted: {}", jwt);
 
         try {
-            String username = jwtService.extractUsername(jwt);
+            // Signature, expiry and token type are all checked by this single parse
+            Claims claims = jwtService.parseAccessToken(jwt);
+            String username = claims.getSubject();
             log.info("Extracted username from JWT: {}", username);
 
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                log.debug("Username found and no existing authentication in the SecurityContext. Loading user details.");
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                log.info("User details loaded successfully for username: {}", username);
+                if (tokenRevocationService.isRevoked(claims)) {
+                    log.warn("❌ JWT token for user '{}' has been revoked.", username);
+                } else {
+                    log.debug("Username found and no existing authentication in the SecurityContext. Loading user details.");
+                    UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                    log.info("User details loaded successfully for username: {}", username);
 
-                if (jwtService.isTokenValid(jwt, userDetails)) {
-                    log.info("✅ JWT token is valid. Creating and setting new authentication token.");
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userDetails, null, userDetails.getAuthorities()
                     );
@@ -72,8 +80,6 @@ public class JwtFilter extends OncePerRequestFilter {
 
                     SecurityContextHolder.getContext().setAuthentication(authToken);
                     log.info("Security context updated with authentication for user: {}", username);
-                } else {
-                    log.warn("❌ JWT token for user '{}' is invalid. It might be expired or malformed.", username);
                 }
             } else {
                 log.debug("Username not found in token or SecurityContext already has an authentication. Skipping authentication update.");
@@ -61,7 +61,7 @@ public class SecurityConfig {
         CorsConfiguration configuration = new CorsConfiguration();
         configuration.setAllowedOriginPatterns(List.of("http://localhost:5173","http://127.0.0.1:5500")); // ✅ Your Vite frontend
         configuration.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
-        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type", "X-Requested-With", "Accept"));
+        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type", "Content-Range", "X-Requested-With", "Accept"));
         configuration.setAllowCredentials(true); // ✅ Needed for cookies and token auth
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
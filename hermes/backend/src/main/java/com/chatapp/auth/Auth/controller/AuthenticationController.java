@@ -2,6 +2,7 @@ package com.chatapp.auth.Auth.controller;
 
 import com.chatapp.auth.Auth.Responses.LoginResponse;
 import com.chatapp.auth.Auth.dto.LoginUserDto;
+import com.chatapp.auth.Auth.dto.RefreshTokenDto;
 import com.chatapp.auth.Auth.dto.ResetDto;
 import com.chatapp.auth.Auth.dto.SignupUserDto;
 import com.chatapp.auth.Auth.dto.VerifyDto;
@@ -18,6 +19,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -30,6 +32,8 @@ public class AuthenticationController {
     private final AuthenticationService authenticationService;
     private final CurrentUserService currentUserService;
     private static final Logger logger = LoggerFactory.getLogger(AuthenticationController.class);
+    private static final int SEARCH_PAGE_SIZE = 20;
+    private static final int MAX_SEARCH_PAGE_SIZE = 50;
     private final GetUserDataService getUserDataService;
 
     public AuthenticationController(JwtService jwtService, AuthenticationService authenticationService, UserService userService, CurrentUserService currentUserService, GetUserDataService getUserDataService) {
@@ -61,9 +65,34 @@ public class AuthenticationController {
     @PostMapping("/login")
     public ResponseEntity<LoginResponse> login(@Valid @RequestBody LoginUserDto dto) {
         User authenticatedUser = authenticationService.authenticate(dto);
-        String token = jwtService.generateToken(authenticatedUser);
-        LoginResponse loginResponse = new LoginResponse(token, jwtService.getExpirationTime());
-        return ResponseEntity.ok(loginResponse);
+        return ResponseEntity.ok(issueTokens(authenticatedUser.getUsername()));
+    }
+
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@Valid @RequestBody RefreshTokenDto dto) {
+        try {
+            String username = authenticationService.rotateRefreshToken(dto.getRefreshToken());
+            return ResponseEntity.ok(issueTokens(username));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader(value = "Authorization", required = false) String authorizationHeader,
+                                    @RequestBody(required = false) Map<String, String> body) {
+        String accessToken = authorizationHeader != null && authorizationHeader.startsWith("Bearer ")
+                ? authorizationHeader.substring(7)
+                : null;
+        String refreshToken = body != null ? body.get("refreshToken") : null;
+        authenticationService.logout(accessToken, refreshToken);
+        return ResponseEntity.ok("Logged out successfully.");
+    }
+
+    private LoginResponse issueTokens(String username) {
+        String token = jwtService.generateToken(new HashMap<>(), username);
+        String refreshToken = jwtService.generateRefreshToken(username);
+        return new LoginResponse(token, jwtService.getExpirationTime(), refreshToken, jwtService.getRefreshExpirationTime());
     }
 
     @PostMapping("/verify")
@@ -127,6 +156,21 @@ public class AuthenticationController {
         return getUserDataService.searchUsersAndGroups(query);
     }
 
+    // Typed, capped and cursor-paginated variant of /Data/Search
+    @GetMapping("/Data/Search/page")
+    public ResponseEntity<?> searchPage(@RequestParam String query,
+                                        @RequestParam(required = false) Integer cursor,
+                                        @RequestParam(defaultValue = "" + SEARCH_PAGE_SIZE) int limit) {
+        if (limit < 1 || limit > MAX_SEARCH_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("limit must be between 1 and " + MAX_SEARCH_PAGE_SIZE);
+        }
+        try {
+            return ResponseEntity.ok(getUserDataService.searchPage(query, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
 
     @GetMapping("/api/user")
     public String getCurrentUserId(@RequestParam(value = "authorizationHeader", required = false) String authorizationHeader) {
@@ -0,0 +1,12 @@
+package com.chatapp.auth.Auth.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class RefreshTokenDto {
+    @NotBlank(message = "Refresh token cannot be empty")
+    private String refreshToken;
+}
@@ -3,15 +3,19 @@ package com.chatapp.auth.Auth.service;
 import com.chatapp.auth.Auth.dto.LoginUserDto;
 import com.chatapp.auth.Auth.dto.SignupUserDto;
 import com.chatapp.auth.Auth.dto.VerifyDto;
+import com.chatapp.auth.chatapp.service.SearchIndexService;
+import com.chatapp.auth.model.PendingVerification;
 import com.chatapp.auth.model.User;
 import com.chatapp.auth.repository.UserRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.mail.MessagingException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
+import java.util.Locale;
 import java.util.Optional;
 
 @Service
@@ -26,63 +30,51 @@ public class AuthenticationService {
     @Autowired
     private EmailService emailService;
 
-    // Method to handle user signup
-    @Transactional
-    public User signup(SignupUserDto input) {
-        if (userRepo.existsByEmail(input.getEmail())) {
-            throw new RuntimeException("The email address is already registered.");
-        }
+    @Autowired
+    private PendingVerificationService pendingVerificationService;
 
-        User user = new User(input.getUsername(), input.getEmail(), passwordEncoder.encode(input.getPassword()));
-        user.setVerificationCode(generateVerificationCode());
-        user.setVerificationCodeExpired(LocalDateTime.now().plusMinutes(15));
-        user.setEnabled(false);
+    @Autowired
+    private JwtService jwtService;
 
-        sendVerificationEmail(user);
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
 
-        return userRepo.save(user);
-    }
+    @Autowired
+    private SearchIndexService searchIndexService;
 
-    // Method to handle email verification
+    // Method to handle user signup
     @Transactional
-    public boolean verifyEmail(String verificationCode) {
-        Optional<User> optionalUser = userRepo.findByVerificationCode(verificationCode);
-
-        if (optionalUser.isEmpty()) {
-            throw new RuntimeException("User not found for verification.");
+    public User signup(SignupUserDto input) {
+        String email = normalizeEmail(input.getEmail());
+        if (userRepo.existsByEmail(email)) {
+            throw new RuntimeException("The email address is already registered.");
         }
 
-        User user = optionalUser.get();
-
-        if (user.getVerificationCodeExpired().isBefore(LocalDateTime.now())) {
-            throw new RuntimeException("Verification code expired.");
-        }
+        User user = new User(input.getUsername(), email, passwordEncoder.encode(input.getPassword()));
+        user.setEnabled(false);
 
-        user.setEnabled(true);
-        user.setVerificationCode(null);  // Remove verification code after successful verification
-        userRepo.save(user);
+        String verificationCode = pendingVerificationService.issue(email, PendingVerification.Purpose.EMAIL_VERIFICATION);
+        sendVerificationEmail(email, verificationCode);
 
-        return true;
+        User saved = userRepo.save(user);
+        searchIndexService.indexUser(saved.getId(), saved.getUsername());
+        return saved;
     }
 
     // Method to send password reset code
     @Transactional
     public boolean sendPasswordResetCode(String email) {
-        Optional<User> optionalUser = userRepo.findByEmail(email.toLowerCase());
-
-        if (optionalUser.isEmpty()) {
+        String normalizedEmail = normalizeEmail(email);
+        if (!userRepo.existsByEmail(normalizedEmail)) {
             return false;  // User not found
         }
 
-        User user = optionalUser.get();
-        if (user.getPasswordResetCodeExpired() != null && user.getPasswordResetCodeExpired().isAfter(LocalDateTime.now())) {
+        if (pendingVerificationService.hasActiveCode(normalizedEmail, PendingVerification.Purpose.PASSWORD_RESET)) {
             return false;  // Reset code has not expired yet
         }
 
-        user.setPasswordResetCode(generateVerificationCode());
-        user.setPasswordResetCodeExpired(LocalDateTime.now().plusMinutes(15)); // Set expiration to 15 minutes from now
-        userRepo.save(user);
-        sendPasswordResetEmail(user);
+        String resetCode = pendingVerificationService.issue(normalizedEmail, PendingVerification.Purpose.PASSWORD_RESET);
+        sendPasswordResetEmail(normalizedEmail, resetCode);
 
         return true;
     }
@@ -90,72 +82,68 @@ public class AuthenticationService {
     // Method to handle password reset
     @Transactional
     public boolean resetPassword(String email, String resetCode, String newPassword) {
-        Optional<User> optionalUser = userRepo.findByEmail(email.toLowerCase());
+        String normalizedEmail = normalizeEmail(email);
+        Optional<User> optionalUser = userRepo.findByEmail(normalizedEmail);
 
         if (optionalUser.isEmpty()) {
             throw new RuntimeException("User not found for password reset.");
         }
 
-        User user = optionalUser.get();
-
-        if (!resetCode.equals(user.getPasswordResetCode())) {
-            throw new RuntimeException("Invalid reset code.");
-        }
+        PendingVerification pending = pendingVerificationService
+                .find(normalizedEmail, PendingVerification.Purpose.PASSWORD_RESET, resetCode)
+                .orElseThrow(() -> new RuntimeException("Invalid reset code."));
 
-        if (user.getPasswordResetCodeExpired().isBefore(LocalDateTime.now())) {
+        if (pending.isExpired()) {
             throw new RuntimeException("Reset code expired.");
         }
 
+        User user = optionalUser.get();
         user.setPassword(passwordEncoder.encode(newPassword));  // Update password
-        user.setPasswordResetCode(null);  // Clear reset code after password is reset
-        user.setPasswordResetCodeExpired(null);  // Clear expiration date
         userRepo.save(user);
+        pendingVerificationService.clear(normalizedEmail, PendingVerification.Purpose.PASSWORD_RESET);
+        tokenRevocationService.revokeAllForUser(user.getUsername());  // Sessions opened with the old password end here
 
         return true;
     }
 
     // Method to verify user during login
+    @Transactional
     public void verifyUser(VerifyDto verifyDto) {
-        Optional<User> optionalUser = userRepo.findByEmail(verifyDto.getEmail());
+        String email = normalizeEmail(verifyDto.getEmail());
+        Optional<User> optionalUser = userRepo.findByEmail(email);
 
         if (optionalUser.isEmpty()) {
             throw new RuntimeException("User not found for verification.");
         }
 
-        User user = optionalUser.get();
-
-        if (!user.getVerificationCode().equals(verifyDto.getVerificationCode())) {
-            throw new RuntimeException("Invalid verification code.");
-        }
+        PendingVerification pending = pendingVerificationService
+                .find(email, PendingVerification.Purpose.EMAIL_VERIFICATION, verifyDto.getVerificationCode())
+                .orElseThrow(() -> new RuntimeException("Invalid verification code."));
 
-        if (user.getVerificationCodeExpired().isBefore(LocalDateTime.now())) {
+        if (pending.isExpired()) {
             throw new RuntimeException("Verification code expired.");
         }
 
+        User user = optionalUser.get();
         user.setEnabled(true);
-        user.setVerificationCode(null); // Clear verification code after successful verification
         userRepo.save(user);
+        pendingVerificationService.clear(email, PendingVerification.Purpose.EMAIL_VERIFICATION);
     }
 
     // Method to resend verification code
     public void resendVerificationCode(String email) {
-        Optional<User> optionalUser = userRepo.findByEmail(email.toLowerCase());
-
-        if (optionalUser.isEmpty()) {
+        String normalizedEmail = normalizeEmail(email);
+        if (!userRepo.existsByEmail(normalizedEmail)) {
             throw new RuntimeException("User not found to resend verification code.");
         }
 
-        User user = optionalUser.get();
-        user.setVerificationCode(generateVerificationCode());
-        user.setVerificationCodeExpired(LocalDateTime.now().plusMinutes(15));
-        userRepo.save(user);
-
-        sendVerificationEmail(user);  // Send the new verification email
+        String verificationCode = pendingVerificationService.issue(normalizedEmail, PendingVerification.Purpose.EMAIL_VERIFICATION);
+        sendVerificationEmail(normalizedEmail, verificationCode);  // Send the new verification email
     }
 
     // Method to authenticate user during login
     public User authenticate(LoginUserDto dto) {
-        Optional<User> optionalUser = userRepo.findByEmail(dto.getEmail());
+        Optional<User> optionalUser = userRepo.findByEmail(normalizeEmail(dto.getEmail()));
 
         if (optionalUser.isEmpty()) {
             throw new RuntimeException("User not found.");
@@ -173,23 +161,62 @@ public class AuthenticationService {
         return user;
     }
 
-    // Helper method to generate a random verification code
-    private String generateVerificationCode() {
-        return String.valueOf((int) (Math.random() * 9000) + 1000);  // Generates a 4-digit code
+    // Method to rotate a refresh token; returns the username the new tokens should be issued for
+    public String rotateRefreshToken(String refreshToken) {
+        Claims claims;
+        try {
+            claims = jwtService.parseRefreshToken(refreshToken);
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new RuntimeException("Invalid refresh token.");
+        }
+
+        // Rotation revokes the presented token, so a replayed refresh token is rejected on every node
+        if (claims.getId() == null
+                || tokenRevocationService.isRevoked(claims)
+                || !tokenRevocationService.revokeToken(claims.getId(), claims.getExpiration())) {
+            throw new RuntimeException("Refresh token has been revoked or already used.");
+        }
+
+        return claims.getSubject();
+    }
+
+    // Method to revoke the tokens presented on logout; invalid or expired tokens are simply ignored
+    public void logout(String accessToken, String refreshToken) {
+        revokeQuietly(accessToken, false);
+        revokeQuietly(refreshToken, true);
+    }
+
+    private void revokeQuietly(String token, boolean isRefreshToken) {
+        if (token == null || token.isBlank()) {
+            return;
+        }
+        try {
+            Claims claims = isRefreshToken ? jwtService.parseRefreshToken(token) : jwtService.parseAccessToken(token);
+            if (claims.getId() != null) {
+                tokenRevocationService.revokeToken(claims.getId(), claims.getExpiration());
+            }
+        } catch (JwtException | IllegalArgumentException e) {
+            // Nothing to revoke
+        }
+    }
+
+    // Emails are stored lower-cased so every lookup can hit the unique index with a plain equality
+    private String normalizeEmail(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
     }
 
     // Helper method to send the verification email
-    private void sendVerificationEmail(User user) {
+    private void sendVerificationEmail(String email, String verificationCode) {
         String subject = "Account Verification";
-        String htmlMessage = createVerificationEmailHtml(user.getVerificationCode());
-        sendEmail(user.getEmail(), subject, htmlMessage);
+        String htmlMessage = createVerificationEmailHtml(verificationCode);
+        sendEmail(email, subject, htmlMessage);
     }
 
     // Helper method to send the password reset email
-    private void sendPasswordResetEmail(User user) {
+    private void sendPasswordResetEmail(String email, String resetCode) {
         String subject = "Password Reset Request";
-        String htmlMessage = createPasswordResetEmailHtml(user.getPasswordResetCode());
-        sendEmail(user.getEmail(), subject, htmlMessage);
+        String htmlMessage = createPasswordResetEmailHtml(resetCode);
+        sendEmail(email, subject, htmlMessage);
     }
 
     // Helper method to send emails
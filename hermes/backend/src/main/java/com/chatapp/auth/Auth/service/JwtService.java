@@ -4,6 +4,7 @@ import com.chatapp.auth.model.User;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -18,10 +19,27 @@ import java.util.stream.Collectors;
 @Service
 public class JwtService {
 
+    private static final String TOKEN_TYPE_CLAIM = "typ";
+    private static final String ACCESS_TOKEN = "access";
+    private static final String REFRESH_TOKEN = "refresh";
+
     @Value("${security.jwt.secret-key}")
     private String secretKey;
 
-    private final long jwtExpiration = 86400000;
+    @Value("${security.jwt.expiration-time}")
+    private long jwtExpiration;
+
+    @Value("${security.jwt.refresh-expiration-time}")
+    private long refreshExpiration;
+
+    private Key signInKey;
+
+    @PostConstruct
+    void initSignInKey() {
+        // Decoding the secret on every sign/parse showed up on the login and refresh paths
+        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
+        this.signInKey = Keys.hmacShaKeyFor(keyBytes);
+    }
 
     public String extractUsername(String token){
         return extractClaim(token, Claims::getSubject);
@@ -45,33 +63,81 @@ public class JwtService {
     }
 
     public String generateToken(Map<String, Object> extraClaims, User user) {
-        return buildToken(extraClaims, user, jwtExpiration);
+        return generateToken(extraClaims, user.getUsername());
     }
 
-    private String buildToken(Map<String, Object> extraClaims, User user, long jwtExpiration) {
+    public String generateToken(Map<String, Object> extraClaims, String username) {
+        Map<String, Object> claims = new HashMap<>(extraClaims);
+        claims.put(TOKEN_TYPE_CLAIM, ACCESS_TOKEN);
+        return buildToken(claims, username, UUID.randomUUID().toString(), jwtExpiration);
+    }
+
+    /**
+     * Issues a long-lived refresh token. Like access tokens it carries its own jti so that it
+     * can be rotated exactly once through /auth/refresh and revoked individually.
+     */
+    public String generateRefreshToken(String username) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(TOKEN_TYPE_CLAIM, REFRESH_TOKEN);
+        return buildToken(claims, username, UUID.randomUUID().toString(), refreshExpiration);
+    }
+
+    private String buildToken(Map<String, Object> extraClaims, String subject, String tokenId, long expiration) {
+        long now = System.currentTimeMillis();
         return Jwts.builder()
                 .setClaims(extraClaims)
-                .setSubject(user.getUsername())
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration))
+                .setSubject(subject)
+                .setId(tokenId)
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + expiration))
                 .signWith(getSignInKey(), SignatureAlgorithm.HS256)
                 .compact();
     }
 
     private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+        return signInKey;
     }
 
     public long getExpirationTime() {
         return jwtExpiration;
     }
 
+    public long getRefreshExpirationTime() {
+        return refreshExpiration;
+    }
+
+    /**
+     * Verifies the signature and expiry of a refresh token and returns its claims.
+     * Access tokens are rejected so they can't be exchanged for new ones.
+     */
+    public Claims parseRefreshToken(String token) {
+        Claims claims = extractAllClaims(token);
+        if (!REFRESH_TOKEN.equals(claims.get(TOKEN_TYPE_CLAIM))) {
+            throw new MalformedJwtException("Token is not a refresh token");
+        }
+        return claims;
+    }
+
+    /**
+     * Verifies signature, expiry and token type in a single parse.
+     * @throws JwtException if the token can't be used as an access token
+     */
+    public Claims parseAccessToken(String token) {
+        Claims claims = extractAllClaims(token);
+        if (REFRESH_TOKEN.equals(claims.get(TOKEN_TYPE_CLAIM))) {
+            throw new MalformedJwtException("Refresh tokens cannot be used for access");
+        }
+        return claims;
+    }
+
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
+        // Parse once: every extractClaim call re-verifies the signature
+        final Claims claims = extractAllClaims(token);
+        final String username = claims.getSubject();
         return username != null &&
                 username.equals(userDetails.getUsername()) &&
-                !isTokenExpired(token);
+                !claims.getExpiration().before(new Date()) &&
+                !REFRESH_TOKEN.equals(claims.get(TOKEN_TYPE_CLAIM));
     }
 
 
@@ -0,0 +1,78 @@
+package com.chatapp.auth.Auth.service;
+
+import com.chatapp.auth.model.PendingVerification;
+import com.chatapp.auth.repository.PendingVerificationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+
+@Service
+public class PendingVerificationService {
+
+    private static final Logger log = LoggerFactory.getLogger(PendingVerificationService.class);
+    private static final long CODE_TTL_MINUTES = 15;
+
+    private final PendingVerificationRepository pendingVerificationRepository;
+    private final SecureRandom random = new SecureRandom();
+
+    public PendingVerificationService(PendingVerificationRepository pendingVerificationRepository) {
+        this.pendingVerificationRepository = pendingVerificationRepository;
+    }
+
+    /**
+     * Replaces any outstanding code for the email and purpose with a fresh one.
+     * @return the plain code to send to the user; only its hash is persisted
+     */
+    @Transactional
+    public String issue(String email, PendingVerification.Purpose purpose) {
+        pendingVerificationRepository.deleteByEmailAndPurpose(email, purpose);
+
+        String code = String.valueOf(100000 + random.nextInt(900000));  // 6-digit code
+        pendingVerificationRepository.save(new PendingVerification(
+                email, purpose, hash(email, code), LocalDateTime.now().plusMinutes(CODE_TTL_MINUTES)));
+        return code;
+    }
+
+    public boolean hasActiveCode(String email, PendingVerification.Purpose purpose) {
+        return pendingVerificationRepository.existsByEmailAndPurposeAndExpiresAtAfter(email, purpose, LocalDateTime.now());
+    }
+
+    public Optional<PendingVerification> find(String email, PendingVerification.Purpose purpose, String code) {
+        return pendingVerificationRepository.findByEmailAndPurposeAndCodeHash(email, purpose, hash(email, code));
+    }
+
+    @Transactional
+    public void clear(String email, PendingVerification.Purpose purpose) {
+        pendingVerificationRepository.deleteByEmailAndPurpose(email, purpose);
+    }
+
+    @Scheduled(fixedDelayString = "${verification.purge-interval:300000}")
+    @Transactional
+    public void purgeExpired() {
+        int removed = pendingVerificationRepository.deleteExpired(LocalDateTime.now());
+        if (removed > 0) {
+            log.info("Purged {} expired verification codes", removed);
+        }
+    }
+
+    // The email salts the hash so equal codes for different users never share a key
+    private String hash(String email, String code) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hashed = digest.digest((email + ":" + code.trim()).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hashed);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.chatapp.auth.Auth.service;
+
+import com.chatapp.auth.model.TokenRevocation;
+import com.chatapp.auth.repository.TokenRevocationRepository;
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revocation state for JWTs, kept entirely in memory and synced from the shared
+ * token_revocations table. A check for a token that was never revoked is a map lookup
+ * on the user watermark plus a bloom filter probe, and never leaves the JVM.
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    // Re-read a little history on each sync so rows committed out of order are not missed
+    private static final long SYNC_OVERLAP_SECONDS = 30;
+
+    private final TokenRevocationRepository tokenRevocationRepository;
+    private final JwtService jwtService;
+    private final int expectedRevocations;
+
+    private final Map<String, Instant> revokedTokens = new ConcurrentHashMap<>();   // jti -> token expiry
+    private final Map<String, Instant> userWatermarks = new ConcurrentHashMap<>();  // username -> issued-before cut-off
+    private final Object filterLock = new Object();
+    private volatile BloomFilter tokenFilter;
+    private volatile Instant lastSync = Instant.EPOCH;
+
+    public TokenRevocationService(TokenRevocationRepository tokenRevocationRepository,
+                                  JwtService jwtService,
+                                  @Value("${security.jwt.revocation.expected-entries:100000}") int expectedRevocations) {
+        this.tokenRevocationRepository = tokenRevocationRepository;
+        this.jwtService = jwtService;
+        this.expectedRevocations = expectedRevocations;
+        this.tokenFilter = new BloomFilter(expectedRevocations, FALSE_POSITIVE_RATE);
+    }
+
+    @PostConstruct
+    void loadActiveRevocations() {
+        Instant now = Instant.now();
+        List<TokenRevocation> active = tokenRevocationRepository.findByExpiresAtAfter(now);
+        active.forEach(this::apply);
+        lastSync = now;
+        log.info("Loaded {} active token revocations", active.size());
+    }
+
+    public boolean isRevoked(Claims claims) {
+        String username = claims.getSubject();
+        Date issuedAt = claims.getIssuedAt();
+        if (username != null && issuedAt != null) {
+            Instant watermark = userWatermarks.get(username);
+            if (watermark != null && !issuedAt.toInstant().isAfter(watermark)) {
+                return true;
+            }
+        }
+
+        String tokenId = claims.getId();
+        return tokenId != null && tokenFilter.mightContain(tokenId) && revokedTokens.containsKey(tokenId);
+    }
+
+    /**
+     * Revokes a single token until it expires. The insert commits on its own, so exactly one
+     * caller across all nodes gets true for a given token.
+     * @return false if the token had already been revoked, here or on another node
+     */
+    public boolean revokeToken(String tokenId, Date expiresAt) {
+        Instant expiry = expiresAt.toInstant();
+        if (revokedTokens.containsKey(tokenId)) {
+            return false;
+        }
+        try {
+            tokenRevocationRepository.saveAndFlush(new TokenRevocation(TokenRevocation.Kind.TOKEN, tokenId, null, expiry));
+        } catch (DataIntegrityViolationException e) {
+            // Another node revoked it first; remember that without waiting for the next sync
+            rememberToken(tokenId, expiry);
+            return false;
+        }
+        return rememberToken(tokenId, expiry);
+    }
+
+    /**
+     * Revokes every access and refresh token issued to the user so far.
+     */
+    public void revokeAllForUser(String username) {
+        // iat only has second precision, so cut off everything issued up to and including this second
+        Instant watermark = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        rememberWatermark(username, watermark);
+        Instant expiry = watermark.plusMillis(jwtService.getRefreshExpirationTime());
+        tokenRevocationRepository.upsertUserWatermark(username, watermark, expiry, Instant.now());
+        log.info("Revoked all tokens issued to '{}' up to {}", username, watermark);
+    }
+
+    @Scheduled(fixedDelayString = "${security.jwt.revocation.sync-interval:5000}")
+    public void sync() {
+        Instant startedAt = Instant.now();
+        List<TokenRevocation> changes = tokenRevocationRepository.findByCreatedAtAfter(lastSync.minusSeconds(SYNC_OVERLAP_SECONDS));
+        changes.forEach(this::apply);
+        lastSync = startedAt;
+    }
+
+    @Scheduled(fixedDelayString = "${security.jwt.revocation.purge-interval:3600000}")
+    @Transactional
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        int removed = tokenRevocationRepository.deleteExpired(now);
+
+        revokedTokens.values().removeIf(expiry -> expiry.isBefore(now));
+        long maxLifetime = jwtService.getRefreshExpirationTime();
+        userWatermarks.values().removeIf(watermark -> watermark.plusMillis(maxLifetime).isBefore(now));
+
+        // Bloom filters can't forget, so rebuild from what is still revoked
+        synchronized (filterLock) {
+            BloomFilter filter = new BloomFilter(Math.max(expectedRevocations, revokedTokens.size() * 2), FALSE_POSITIVE_RATE);
+            revokedTokens.keySet().forEach(filter::add);
+            tokenFilter = filter;
+        }
+        log.debug("Purged {} expired revocation rows; {} tokens and {} user watermarks still active",
+                removed, revokedTokens.size(), userWatermarks.size());
+    }
+
+    private void apply(TokenRevocation revocation) {
+        if (revocation.getKind() == TokenRevocation.Kind.TOKEN) {
+            rememberToken(revocation.getSubject(), revocation.getExpiresAt());
+        } else if (revocation.getIssuedBefore() != null) {
+            rememberWatermark(revocation.getSubject(), revocation.getIssuedBefore());
+        }
+    }
+
+    private boolean rememberToken(String tokenId, Instant expiry) {
+        if (revokedTokens.putIfAbsent(tokenId, expiry) != null) {
+            return false;
+        }
+        synchronized (filterLock) {
+            tokenFilter.add(tokenId);
+        }
+        return true;
+    }
+
+    private void rememberWatermark(String username, Instant watermark) {
+        userWatermarks.merge(username, watermark, (current, incoming) -> incoming.isAfter(current) ? incoming : current);
+    }
+}
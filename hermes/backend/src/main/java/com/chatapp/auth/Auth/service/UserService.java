@@ -47,9 +47,4 @@ public class UserService {
     public boolean checkIfUserExists(String email) {
         return userRepository.existsByEmail(email);
     }
-
-    // Implement password reset expiration check
-    public boolean isPasswordResetCodeExpired(User user) {
-        return user.isPasswordResetCodeExpired();
-    }
 }
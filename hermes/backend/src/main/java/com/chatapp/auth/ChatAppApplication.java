@@ -2,8 +2,10 @@ package com.chatapp.auth;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class ChatAppApplication {
 	public static void main(String[] args) {
 		SpringApplication.run(ChatAppApplication.class, args);
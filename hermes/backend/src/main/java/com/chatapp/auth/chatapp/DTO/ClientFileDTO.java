@@ -11,6 +11,7 @@ import lombok.Setter;
 @AllArgsConstructor
 @NoArgsConstructor
 public class ClientFileDTO {
+    private Long fileId;   // ID from a completed /files/uploads upload; preferred over inline Base64
     private String file;
     private String fileName;
     private String fileType;
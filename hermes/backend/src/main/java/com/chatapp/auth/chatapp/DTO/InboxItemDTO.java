@@ -0,0 +1,32 @@
+package com.chatapp.auth.chatapp.DTO;
+
+import com.chatapp.auth.model.InboxEntry;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * One conversation in the inbox. Built directly by the inbox query, together with the
+ * name of the other user or group.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class InboxItemDTO {
+    private InboxEntry.ConversationType type;
+    private Long peerId;
+    private String name;
+    private Long lastMessageId;
+    private Long lastSenderId;
+    private String preview;
+    private LocalDateTime lastMessageAt;
+    private long lastReadMessageId;
+    private int unreadCount;
+    @JsonIgnore
+    private Long entryId;       // Tie-breaker in the keyset cursor
+}
@@ -0,0 +1,28 @@
+package com.chatapp.auth.chatapp.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * One attachment in a conversation's media gallery. Built directly by the gallery query,
+ * so it never loads the file entity or its message collections.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class MediaItemDTO {
+    private Long messageId;     // Also the keyset cursor
+    private Long fileId;
+    private String fileName;
+    private String type;
+    private Long size;
+    private LocalDateTime timestamp;
+    private Long senderId;
+    private String thumbnailSizes;
+    private String placeholder;
+}
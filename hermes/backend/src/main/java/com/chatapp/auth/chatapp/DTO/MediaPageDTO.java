@@ -0,0 +1,17 @@
+package com.chatapp.auth.chatapp.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class MediaPageDTO {
+    private List<MediaItemDTO> items;
+    private Long nextCursor;    // Pass back as cursor for the next page; null on the last page
+}
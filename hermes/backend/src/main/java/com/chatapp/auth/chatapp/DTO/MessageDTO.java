@@ -34,6 +34,9 @@ public class MessageDTO {
     private Long tempId;
 
     private String fileName;
+    // Preview data for image attachments; thumbnails are served from /auth/files/thumbnail
+    private String thumbnailSizes;
+    private String placeholder;
     private String status = "sent";
     public MessageDTO(Message message) {
         this.id = message.getId();
@@ -44,6 +47,8 @@ public class MessageDTO {
 
         if(message.getUploadedFile() != null && message.getUploadedFile().getFiles_id() != null){
             this.fileName = message.getUploadedFile().getName();
+            this.thumbnailSizes = message.getUploadedFile().getThumbnailSizes();
+            this.placeholder = message.getUploadedFile().getPlaceholder();
         }
     }
 
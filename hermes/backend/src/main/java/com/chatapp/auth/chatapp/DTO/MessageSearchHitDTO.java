@@ -0,0 +1,28 @@
+package com.chatapp.auth.chatapp.DTO;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * One message matched by full-text search. Also the row shape the index is rebuilt from,
+ * built directly by a constructor query so no entity or attachment is loaded.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageSearchHitDTO {
+    private Long messageId;     // Also the keyset cursor
+    private Long senderId;
+    private Long peerId;        // Receiver of a direct message, or the group
+    private boolean group;
+    private String content;
+    @JsonIgnore
+    private Long bodyRef;       // Segment log locator while rebuilding, when bodies live there
+    private LocalDateTime timestamp;
+}
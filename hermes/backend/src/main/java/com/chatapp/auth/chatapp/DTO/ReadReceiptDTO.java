@@ -0,0 +1,21 @@
+package com.chatapp.auth.chatapp.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A read watermark: everything up to messageId in the conversation has been seen.
+ * Sent by clients on /app/send/read and pushed to the other participant on /queue/receipts.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReadReceiptDTO {
+    private Long readerId;      // Filled in by the server
+    private Long peerId;        // The other user, or the group
+    private boolean group;
+    private Long messageId;
+}
@@ -0,0 +1,25 @@
+package com.chatapp.auth.chatapp.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One user or group matched by name search.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchResultDTO {
+
+    public enum Type {
+        USER,
+        GROUP
+    }
+
+    private Long id;
+    private String name;
+    private Type type;
+}
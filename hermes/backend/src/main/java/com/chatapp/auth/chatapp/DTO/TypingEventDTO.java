@@ -0,0 +1,28 @@
+package com.chatapp.auth.chatapp.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Ephemeral composing state in a conversation. Sent by clients on /app/send/typing and relayed,
+ * throttled, on /queue/typing for direct chats and /topic/group/{id}/typing for groups. Never stored.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TypingEventDTO {
+
+    public enum State {
+        IDLE,
+        TYPING,
+        RECORDING
+    }
+
+    private Long senderId;      // Filled in by the server
+    private Long peerId;        // The other user, or the group
+    private boolean group;
+    private State state;
+}
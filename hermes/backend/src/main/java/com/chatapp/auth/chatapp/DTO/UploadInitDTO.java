@@ -0,0 +1,19 @@
+package com.chatapp.auth.chatapp.DTO;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class UploadInitDTO {
+    @NotBlank(message = "File name cannot be empty")
+    private String fileName;
+
+    @NotBlank(message = "File type cannot be empty")
+    private String fileType;
+
+    @Positive(message = "Size must be positive")
+    private long size;
+}
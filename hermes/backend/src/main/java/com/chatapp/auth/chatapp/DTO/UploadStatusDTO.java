@@ -0,0 +1,18 @@
+package com.chatapp.auth.chatapp.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadStatusDTO {
+    private String uploadId;
+    private long offset;    // Next byte the server expects
+    private long size;
+    private Long fileId;    // Set once the upload is complete
+    private String fileName;
+}
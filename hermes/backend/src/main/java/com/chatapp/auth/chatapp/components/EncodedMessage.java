@@ -0,0 +1,23 @@
+package com.chatapp.auth.chatapp.components;
+
+/**
+ * A payload already serialized to the JSON body of a STOMP MESSAGE frame. Built once per message
+ * and handed to every destination and session as is, so nothing downstream serializes it again.
+ * The bytes are shared and must not be modified.
+ */
+public final class EncodedMessage {
+
+    private final byte[] payload;
+
+    public EncodedMessage(byte[] payload) {
+        this.payload = payload;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public int size() {
+        return payload.length;
+    }
+}
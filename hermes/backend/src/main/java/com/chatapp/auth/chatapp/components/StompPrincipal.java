@@ -0,0 +1,46 @@
+package com.chatapp.auth.chatapp.components;
+
+import java.security.Principal;
+
+/**
+ * Identity of an authenticated WebSocket session.
+ * Resolved once when the session is established and then handed to interceptors,
+ * listeners and @MessageMapping handlers as the session Principal.
+ */
+public class StompPrincipal implements Principal {
+
+    public static final String SESSION_ATTRIBUTE = "stompPrincipal";
+
+    private final Long userId;
+    private final String username;
+
+    public StompPrincipal(Long userId, String username) {
+        this.userId = userId;
+        this.username = username;
+    }
+
+    /**
+     * Resolves the session principal handed to a @MessageMapping handler.
+     * @throws IllegalStateException if the session was never authenticated
+     */
+    public static StompPrincipal from(Principal principal) {
+        if (principal instanceof StompPrincipal stompPrincipal) {
+            return stompPrincipal;
+        }
+        throw new IllegalStateException("WebSocket session is not authenticated");
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    @Override
+    public String toString() {
+        return "StompPrincipal{userId=" + userId + ", username='" + username + "'}";
+    }
+}
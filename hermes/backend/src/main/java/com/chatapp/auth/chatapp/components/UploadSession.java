@@ -0,0 +1,41 @@
+package com.chatapp.auth.chatapp.components;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.nio.file.Path;
+import java.security.MessageDigest;
+
+/**
+ * State of one resumable upload. Bytes are only ever appended at {@code received},
+ * so the partial file on disk is always a valid prefix of the final file.
+ */
+@Getter
+@Setter
+public class UploadSession {
+
+    private final String uploadId;
+    private final Long userId;
+    private final String fileName;
+    private final String contentType;
+    private final long size;
+    private final Path partialFile;
+    private long received;
+    private long lastActivity;
+    // Running hash of the received prefix; null once a failed write makes it untrustworthy
+    private MessageDigest digest;
+
+    public UploadSession(String uploadId, Long userId, String fileName, String contentType, long size, Path partialFile) {
+        this.uploadId = uploadId;
+        this.userId = userId;
+        this.fileName = fileName;
+        this.contentType = contentType;
+        this.size = size;
+        this.partialFile = partialFile;
+        this.lastActivity = System.currentTimeMillis();
+    }
+
+    public boolean isComplete() {
+        return received == size;
+    }
+}
@@ -1,6 +1,5 @@
 package com.chatapp.auth.chatapp.config;
 
-import com.chatapp.auth.Auth.service.JwtService;
 import com.chatapp.auth.chatapp.controller.JwtChannelInterceptor;
 import com.chatapp.auth.chatapp.controller.JwtHandshakeInterceptor;
 import org.springframework.context.annotation.Configuration;
@@ -20,7 +19,7 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     private final JwtChannelInterceptor jwtChannelInterceptor;
     private final JwtHandshakeInterceptor jwtHandshakeInterceptor;
 
-    public WebSocketConfig(JwtService jwtService, JwtChannelInterceptor jwtChannelInterceptor, JwtHandshakeInterceptor jwtHandshakeInterceptor) {
+    public WebSocketConfig(JwtChannelInterceptor jwtChannelInterceptor, JwtHandshakeInterceptor jwtHandshakeInterceptor) {
         this.jwtChannelInterceptor = jwtChannelInterceptor;
         this.jwtHandshakeInterceptor = jwtHandshakeInterceptor;
     }
@@ -35,6 +34,7 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/chat")
                 .setAllowedOrigins("http://localhost:5173", "http://127.0.0.1:5500")
+                .addInterceptors(jwtHandshakeInterceptor) // Authenticates once when a token query param is given
                 .withSockJS()
                 .setSessionCookieNeeded(false);
 
@@ -4,12 +4,20 @@ import com.chatapp.auth.chatapp.DTO.ClientFileDTO;
 import com.chatapp.auth.chatapp.DTO.FileAcknowledgmentDTO;
 import com.chatapp.auth.chatapp.DTO.MessageAcknowledgmentDTO;
 import com.chatapp.auth.chatapp.DTO.MessageDTO;
+import com.chatapp.auth.chatapp.DTO.ReadReceiptDTO;
 import com.chatapp.auth.chatapp.components.Base64ToMultipartFileConverter;
+import com.chatapp.auth.chatapp.components.StompPrincipal;
 import com.chatapp.auth.chatapp.service.FileService;
+import com.chatapp.auth.chatapp.service.GroupFanoutService;
+import com.chatapp.auth.chatapp.service.GroupMembershipService;
+import com.chatapp.auth.chatapp.service.MessageEncoder;
 import com.chatapp.auth.chatapp.service.GetUserDataService;
 import com.chatapp.auth.chatapp.service.MessageService;
+import com.chatapp.auth.chatapp.service.QuotaService;
+import com.chatapp.auth.chatapp.service.ReadReceiptService;
 import com.chatapp.auth.model.Group;
 import com.chatapp.auth.model.Message;
+import com.chatapp.auth.model.StorageUsage;
 import com.chatapp.auth.model.UploadedFile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,7 +28,7 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.util.Objects;
+import java.security.Principal;
 
 @Controller
 public class ChatController {
@@ -28,6 +36,21 @@ public class ChatController {
     @Autowired
     private FileService fileService;
 
+    @Autowired
+    private QuotaService quotaService;
+
+    @Autowired
+    private ReadReceiptService readReceiptService;
+
+    @Autowired
+    private GroupFanoutService groupFanoutService;
+
+    @Autowired
+    private MessageEncoder messageEncoder;
+
+    @Autowired
+    private GroupMembershipService groupMembershipService;
+
     private static final Logger logger = LoggerFactory.getLogger(ChatController.class);
     @Autowired
     private final MessageService messageService;
@@ -42,10 +65,14 @@ public class ChatController {
 
     /**
      * Handles sending of a private message.
-     * @param messageDTO DTO containing message content and sender information.
+     * The sender is always the authenticated session user; any senderId in the payload is ignored.
+     * @param messageDTO DTO containing message content and receiver information.
+     * @param principal the session principal attached at CONNECT.
      */
     @MessageMapping("/send/message")
-    public void sendMessage(MessageDTO messageDTO) {
+    public void sendMessage(MessageDTO messageDTO, Principal principal) {
+        messageDTO.setSenderId(StompPrincipal.from(principal).getUserId());
+
         // Log incoming message content and receiver ID for tracking
         logger.info("Received message: '{}' from sender ID: {} to receiver ID: {}",
                 messageDTO.getContent(), messageDTO.getSenderId(), messageDTO.getReceiverId());
@@ -60,7 +87,7 @@ public class ChatController {
             // Notify the receiver
             String destination = "/topic/user/" + messageDTO.getReceiverId() + "/queue/private";
             logger.info("Sending message to destination: {}", destination);
-            messagingTemplate.convertAndSend(destination, convertToDTO(savedMessage,messageDTO.getTempId(),null));
+            messageEncoder.send(destination, messageEncoder.encode(convertToDTO(savedMessage,messageDTO.getTempId(),null)));
 
             // Notify the sender about successful delivery
             String senderAcknowledgmentDestination = "/topic/user/" + messageDTO.getSenderId() + "/queue/ack";
@@ -86,17 +113,55 @@ public class ChatController {
 
 
     @MessageMapping("/send/image")
-    public void sendImage(ClientFileDTO fileDTO) {
+    public void sendImage(ClientFileDTO fileDTO, Principal principal) {
+        fileDTO.setUserId(StompPrincipal.from(principal).getUserId());
 
         Boolean isGroup = Boolean.parseBoolean(fileDTO.getIsGroup());
-        if (fileDTO.getFile() == null || fileDTO.getUserId() == null || fileDTO.getReceiverId() == null) {
+        if ((fileDTO.getFileId() == null && fileDTO.getFile() == null) || fileDTO.getReceiverId() == null) {
             logger.error("Invalid input: fileDTO or required fields are null");
             throw new IllegalArgumentException("Invalid input: fileDTO or required fields are null");
         }
-        
+        // Checked before anything is stored or charged; groupImageDetail checks again before writing
+        if (isGroup && !groupMembershipService.isMember(fileDTO.getUserId(), fileDTO.getReceiverId())) {
+            logger.warn("Image rejected: sender {} is not a member of group {}", fileDTO.getUserId(), fileDTO.getReceiverId());
+            throw new IllegalArgumentException("Not a member of group " + fileDTO.getReceiverId());
+        }
+
+        // Bytes charged to the group and not yet backed by a written message; refunded if the post fails
+        long groupCharge = 0;
         try {
-            MultipartFile file = converter.base64toMultipartFile(fileDTO.getFile(),fileDTO.getFileName(),fileDTO.getFileType());
-            UploadedFile savedUploadedFile = fileService.storeFile(file);
+            UploadedFile savedUploadedFile;
+            if (fileDTO.getFileId() != null) {
+                // Bytes were already streamed to disk through /files/uploads
+                savedUploadedFile = fileService.getFileForSender(fileDTO.getFileId(), fileDTO.getUserId());
+                if (isGroup) {
+                    quotaService.chargeGroup(fileDTO.getReceiverId(), savedUploadedFile.getSize());
+                    groupCharge = savedUploadedFile.getSize();
+                }
+            } else {
+                // Legacy inline Base64 payload, bounded by the STOMP message size limit
+                long size = decodedLength(fileDTO.getFile());
+                if (isGroup) {
+                    // A full group rejects the image before anything is stored or charged to the sender
+                    quotaService.chargeGroup(fileDTO.getReceiverId(), size);
+                    groupCharge = size;
+                }
+                quotaService.admitUpload(fileDTO.getUserId(), size);
+                try {
+                    MultipartFile file = converter.base64toMultipartFile(fileDTO.getFile(), fileDTO.getFileName(), fileDTO.getFileType());
+                    savedUploadedFile = fileService.storeFile(file, fileDTO.getUserId(), size);
+                    quotaService.completeUpload(size);
+                } catch (Exception e) {
+                    quotaService.cancelUpload(fileDTO.getUserId(), size);
+                    throw e;
+                }
+                if (isGroup) {
+                    // Normalizing may have shrunk the image; the group pays for what is stored, as expiry credits
+                    quotaService.release(StorageUsage.OwnerType.GROUP, fileDTO.getReceiverId(),
+                            groupCharge - savedUploadedFile.getSize());
+                    groupCharge = savedUploadedFile.getSize();
+                }
+            }
 
             if(!isGroup){
         
@@ -109,7 +174,7 @@ public class ChatController {
             if(!fileDTO.getUserId().equals(fileDTO.getReceiverId())){
                 String receiverDestination = "/topic/user/" + fileDTO.getReceiverId() + "/queue/private";
 
-                messagingTemplate.convertAndSend(receiverDestination, convertToDTO(message,fileDTO.getTempId(), savedUploadedFile.getName()));
+                messageEncoder.send(receiverDestination, messageEncoder.encode(convertToDTO(message,fileDTO.getTempId(), savedUploadedFile.getName())));
 
                 logger.info("Image sent successfully to Receiver ID: {}", fileDTO.getReceiverId());
             }
@@ -128,12 +193,11 @@ public class ChatController {
             messagingTemplate.convertAndSend(senderAckDestination, acknowledgment);
             logger.info("Image acknowledgment sent successfully. Sender ID: {}, Receiver ID: {}", fileDTO.getUserId(), fileDTO.getReceiverId());
             }else{
-                UploadedFile groupImage = fileService.storeFile(file);
-
+                UploadedFile groupImage = savedUploadedFile;
                 Group message = messageService.groupImageDetail(fileDTO.getUserId(), fileDTO.getReceiverId(), groupImage);
+                groupCharge = 0;
 
-                String receiverLocation = "/topic/group/" + fileDTO.getReceiverId();
-                messagingTemplate.convertAndSend(receiverLocation,convertToDTO(message,fileDTO.getTempId(), groupImage.getName(), fileDTO.getReceiverId()));
+                groupFanoutService.broadcast(fileDTO.getReceiverId(), messageEncoder.encode(convertToDTO(message,fileDTO.getTempId(), groupImage.getName(), fileDTO.getReceiverId())));
                 FileAcknowledgmentDTO acknowledgmentDTO = new FileAcknowledgmentDTO(
                     message.getId(),
                     "---FILE---",
@@ -147,6 +211,22 @@ public class ChatController {
                 String senderAckDestination = "/topic/group/" + fileDTO.getUserId() + "/ack";
                 messagingTemplate.convertAndSend(senderAckDestination,acknowledgmentDTO);
             }
+        } catch (QuotaService.QuotaExceededException e) {
+            logger.warn("Image rejected for Sender ID: {}, Receiver ID: {}: {}", fileDTO.getUserId(), fileDTO.getReceiverId(), e.getMessage());
+            FileAcknowledgmentDTO rejection = new FileAcknowledgmentDTO(
+                    null,
+                    "---FILE---",
+                    fileDTO.getUserId(),
+                    fileDTO.getReceiverId(),
+                    fileDTO.getTempId(),
+                    fileDTO.getFileName(),
+                    isGroup,
+                    "rejected"
+            );
+            String senderAckDestination = isGroup
+                    ? "/topic/group/" + fileDTO.getUserId() + "/ack"
+                    : "/topic/user/" + fileDTO.getUserId() + "/queue/ack";
+            messagingTemplate.convertAndSend(senderAckDestination, rejection);
         } catch (IOException e) {
             logger.error("Failed to save image for Sender ID: {}, Receiver ID: {}. Error: {}",
                     fileDTO.getUserId(), fileDTO.getReceiverId(), e.getMessage(), e);
@@ -155,11 +235,31 @@ public class ChatController {
             logger.error("Unexpected error occurred while sending image. Sender ID: {}, Receiver ID: {}. Error: {}, TempId: {}",
                     fileDTO.getUserId(), fileDTO.getReceiverId(), e.getMessage(), fileDTO.getTempId(), e);
             throw new RuntimeException("Unexpected error occurred", e);
+        } finally {
+            if (groupCharge > 0) {
+                quotaService.release(StorageUsage.OwnerType.GROUP, fileDTO.getReceiverId(), groupCharge);
+            }
         }
     }
 
 
 
+    /**
+     * Reports how far the session user has read in a conversation.
+     * Reports are coalesced; the other participant gets at most one receipt per flush interval.
+     */
+    @MessageMapping("/send/read")
+    public void markRead(ReadReceiptDTO receipt, Principal principal) {
+        Long readerId = StompPrincipal.from(principal).getUserId();
+        readReceiptService.markRead(readerId, receipt.getPeerId(), receipt.isGroup(), receipt.getMessageId());
+    }
+
+    // Size of the decoded payload, known before decoding so quota checks run first
+    private static long decodedLength(String base64) {
+        int padding = base64.endsWith("==") ? 2 : base64.endsWith("=") ? 1 : 0;
+        return (long) base64.length() / 4 * 3 - padding;
+    }
+
     /**
      * Converts a Message entity to a MessageDTO.
      * @param message The message entity to convert.
@@ -1,20 +1,19 @@
 package com.chatapp.auth.chatapp.controller;
 
 import com.chatapp.auth.chatapp.DTO.FileDTO;
+import com.chatapp.auth.chatapp.service.BlobStorage;
+import com.chatapp.auth.chatapp.service.FileDownloadService;
 import com.chatapp.auth.chatapp.service.FileService;
-import com.chatapp.auth.model.Message;
-import com.chatapp.auth.model.UploadedFile;
-import com.chatapp.auth.repository.MessageRepository;
-import org.springframework.beans.factory.annotation.Value;
+import com.chatapp.auth.chatapp.service.ThumbnailService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.InputStream;
+import java.net.URLConnection;
 import java.util.Base64;
 
 
@@ -22,8 +21,15 @@ import java.util.Base64;
 @RequestMapping("/auth")
 public class FileController {
 
-    @Value("${uploadedFile.upload-dir}")
-    private String uploadDir;
+    private final FileService fileService;
+    private final FileDownloadService fileDownloadService;
+    private final BlobStorage blobStorage;
+
+    public FileController(FileService fileService, FileDownloadService fileDownloadService, BlobStorage blobStorage) {
+        this.fileService = fileService;
+        this.fileDownloadService = fileDownloadService;
+        this.blobStorage = blobStorage;
+    }
 
 //    @PostMapping("/files/upload")
 //    public ResponseEntity<UploadedFile> uploadFile(@RequestParam("file") MultipartFile file, @RequestParam("userId") Long userId, @RequestParam("receiverId") Long receiverId) {
@@ -41,17 +47,24 @@ public class FileController {
 //        }
 //    }
 
+    /**
+     * Legacy JSON endpoint returning the whole file Base64-encoded.
+     * Prefer {@link #downloadFile} which streams raw bytes and supports caching and ranges.
+     */
     @GetMapping("/files/show")
     public ResponseEntity<FileDTO> showFile(@RequestParam("filename") String filename) {
-        String folderPath = uploadDir;
         try {
-            Path filePath = Paths.get(folderPath, filename);
-            if (Files.exists(filePath)) {
+            String key = fileService.storageKey(filename);
+            if (key != null && blobStorage.exists(key)) {
+                byte[] content;
+                try (InputStream in = blobStorage.get(key)) {
+                    content = in.readAllBytes();
+                }
                 FileDTO fileDTO = new FileDTO();
                 fileDTO.setName(filename);
-                fileDTO.setType(Files.probeContentType(filePath));
-                fileDTO.setSize(Files.size(filePath));
-                fileDTO.setContent(Base64.getEncoder().encodeToString(Files.readAllBytes(filePath)));
+                fileDTO.setType(URLConnection.guessContentTypeFromName(filename));
+                fileDTO.setSize(content.length);
+                fileDTO.setContent(Base64.getEncoder().encodeToString(content));
                 return ResponseEntity.ok(fileDTO);
             } else {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -63,10 +76,41 @@ public class FileController {
         }
     }
 
+    @GetMapping("/files/content/{filename:.+}")
+    public void downloadFile(@PathVariable String filename, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String key = fileService.storageKey(filename);
+        if (key == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
 
+        // Blobs have no extension in storage, so the type comes from the stored name;
+        // serve() only trusts it for allowlisted media and sends anything else as an attachment
+        String contentType = URLConnection.guessContentTypeFromName(filename);
+        fileDownloadService.serve(key, contentType != null ? contentType : "application/octet-stream",
+                fileService.etag(filename), request, response);
+    }
 
+    /**
+     * Serves a pre-generated JPEG preview. Returns 404 until the preview exists,
+     * in which case clients fall back to the original.
+     */
+    @GetMapping("/files/thumbnail/{filename:.+}")
+    public void downloadThumbnail(@PathVariable String filename, @RequestParam(defaultValue = "320") int size,
+                                  HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!ThumbnailService.isValidSize(size)) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        String key = fileService.thumbnailKey(filename, size);
+        if (key == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
 
-}
-
-
+        // Thumbnails only exist for content-addressed names, so hash + size identifies the bytes
+        String etag = "\"" + filename.substring(0, 64) + "-" + size + "\"";
+        fileDownloadService.serve(key, "image/jpeg", etag, request, response);
+    }
 
+}
@@ -1,14 +1,12 @@
 package com.chatapp.auth.chatapp.controller;
 
+import com.chatapp.auth.chatapp.components.StompPrincipal;
 import com.chatapp.auth.chatapp.DTO.CreateGroupDTO;
 import com.chatapp.auth.chatapp.DTO.GroupDTO;
 import com.chatapp.auth.chatapp.DTO.MessageAcknowledgmentDTO;
 import com.chatapp.auth.model.GroupDetails;
 import com.chatapp.auth.chatapp.service.GroupDetailsService;
-import com.chatapp.auth.model.User;
-import com.chatapp.auth.repository.MessageRepository;
-import com.chatapp.auth.repository.UserRepository;
-import jakarta.persistence.EntityNotFoundException;
+import com.chatapp.auth.chatapp.service.GroupFanoutService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
@@ -16,6 +14,8 @@ import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.*;
 
+import java.security.Principal;
+
 
 @RestController
 public class GroupDetailsController {
@@ -25,16 +25,16 @@ public class GroupDetailsController {
 
     private final SimpMessagingTemplate messagingTemplate;
     private final GroupDetailsService groupDetailsService;
-    private final UserRepository userRepository;
+    private final GroupFanoutService groupFanoutService;
 
     public GroupDetailsController(
             SimpMessagingTemplate messagingTemplate,
             GroupDetailsService groupDetailsService,
-            UserRepository userRepository
+            GroupFanoutService groupFanoutService
     ) {
         this.messagingTemplate = messagingTemplate;
         this.groupDetailsService = groupDetailsService;
-        this.userRepository = userRepository;
+        this.groupFanoutService = groupFanoutService;
     }
 
     @PostMapping("/auth/create")
@@ -55,7 +55,12 @@ public class GroupDetailsController {
     }
 
     @MessageMapping("/group/message") // Clients send messages to /app/group/message
-    public void sendMessage(GroupDTO groupDTO) {
+    public void sendMessage(GroupDTO groupDTO, Principal principal) {
+        // Sender identity comes from the session, never from the payload
+        StompPrincipal sender = StompPrincipal.from(principal);
+        groupDTO.setSenderId(sender.getUserId());
+        groupDTO.setSenderName(sender.getName());
+
         logger.info("Received message: '{}' from sender ID: {} to group ID: {}",
                 groupDTO.getContent(), groupDTO.getSenderId(), groupDTO.getGroupId());
         try {
@@ -64,16 +69,8 @@ public class GroupDetailsController {
             groupDetailsService.saveMessage(groupDTO);
             logger.info("Message successfully saved to group");
 
-            User sender = userRepository.findById(groupDTO.getSenderId())
-                    .orElseThrow(() -> new EntityNotFoundException("User not found with id: " + groupDTO.getSenderId()));
-
-
-            logger.info("Message successfully sent to group: {}",sender.getUsername());
-
-            groupDTO.setSenderName(sender.getUsername());
-
-            messagingTemplate.convertAndSend("/topic/group/" + groupDTO.getGroupId(), groupDTO);
-            logger.info("Message successfully sent to group: {}", groupDTO.getGroupId());
+            groupFanoutService.broadcast(groupDTO.getGroupId(), groupDTO);
+            logger.info("Message queued for fan-out to group: {}", groupDTO.getGroupId());
 
             String senderAcknowledgmentDestination = "/topic/group/" + groupDTO.getSenderId() + "/ack";
             MessageAcknowledgmentDTO acknowledgment = new MessageAcknowledgmentDTO(
@@ -0,0 +1,70 @@
+package com.chatapp.auth.chatapp.controller;
+
+import com.chatapp.auth.chatapp.service.GroupMembershipService;
+import com.chatapp.auth.model.User;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Members of a group. Anyone in the group can list them; only the creator adds or removes
+ * others, and any member can remove themselves.
+ */
+@RestController
+@RequestMapping("/groups/{groupId}/members")
+public class GroupMembersController {
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int MAX_CHANGE_SIZE = 5000;
+
+    private final GroupMembershipService groupMembershipService;
+
+    public GroupMembersController(GroupMembershipService groupMembershipService) {
+        this.groupMembershipService = groupMembershipService;
+    }
+
+    @GetMapping
+    public ResponseEntity<?> getMembers(@PathVariable Long groupId,
+                                        @RequestParam(required = false) Long cursor,
+                                        @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                                        @AuthenticationPrincipal User user) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (!groupMembershipService.isMember(user.getId(), groupId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Not a member of group " + groupId);
+        }
+        return ResponseEntity.ok(groupMembershipService.getMembers(groupId, cursor, limit));
+    }
+
+    @PostMapping
+    public ResponseEntity<?> addMembers(@PathVariable Long groupId,
+                                        @RequestBody List<Long> userIds,
+                                        @AuthenticationPrincipal User user) {
+        if (userIds == null || userIds.isEmpty() || userIds.size() > MAX_CHANGE_SIZE) {
+            return ResponseEntity.badRequest().body("between 1 and " + MAX_CHANGE_SIZE + " user IDs are required");
+        }
+        if (!groupMembershipService.isCreator(user.getId(), groupId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Only the group creator can add members");
+        }
+        return ResponseEntity.ok(groupMembershipService.addMembers(groupId, userIds));
+    }
+
+    @DeleteMapping
+    public ResponseEntity<?> removeMembers(@PathVariable Long groupId,
+                                           @RequestParam List<Long> userIds,
+                                           @AuthenticationPrincipal User user) {
+        if (userIds.isEmpty() || userIds.size() > MAX_CHANGE_SIZE) {
+            return ResponseEntity.badRequest().body("between 1 and " + MAX_CHANGE_SIZE + " user IDs are required");
+        }
+        boolean leaving = userIds.stream().allMatch(user.getId()::equals);
+        if (!leaving && !groupMembershipService.isCreator(user.getId(), groupId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Only the group creator can remove other members");
+        }
+        return ResponseEntity.ok(groupMembershipService.removeMembers(groupId, userIds));
+    }
+}
@@ -0,0 +1,55 @@
+package com.chatapp.auth.chatapp.controller;
+
+import com.chatapp.auth.chatapp.service.InboxService;
+import com.chatapp.auth.chatapp.service.ReadReceiptService;
+import com.chatapp.auth.model.User;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * The caller's conversation list with last message and unread count, most recent first.
+ */
+@RestController
+@RequestMapping("/inbox")
+public class InboxController {
+
+    private static final int DEFAULT_PAGE_SIZE = 30;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final InboxService inboxService;
+    private final ReadReceiptService readReceiptService;
+
+    public InboxController(InboxService inboxService, ReadReceiptService readReceiptService) {
+        this.inboxService = inboxService;
+        this.readReceiptService = readReceiptService;
+    }
+
+    @GetMapping
+    public ResponseEntity<?> getInbox(@RequestParam(required = false) String cursor,
+                                      @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                                      @AuthenticationPrincipal User user) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        try {
+            return ResponseEntity.ok(inboxService.getInbox(user.getId(), cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Same as /app/send/read over STOMP; the unread count updates at the next receipt flush
+    @PostMapping("/read")
+    public ResponseEntity<?> markRead(@RequestParam Long peerId,
+                                      @RequestParam(defaultValue = "false") boolean isGroup,
+                                      @RequestParam Long messageId,
+                                      @AuthenticationPrincipal User user) {
+        try {
+            readReceiptService.markRead(user.getId(), peerId, isGroup, messageId);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        return ResponseEntity.accepted().build();
+    }
+}
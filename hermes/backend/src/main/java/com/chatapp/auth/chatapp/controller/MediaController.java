@@ -0,0 +1,42 @@
+package com.chatapp.auth.chatapp.controller;
+
+import com.chatapp.auth.chatapp.service.MessageService;
+import com.chatapp.auth.model.User;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Media gallery of a direct conversation or group, paged newest first with a keyset cursor.
+ */
+@RestController
+@RequestMapping("/files/media")
+public class MediaController {
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final MessageService messageService;
+
+    public MediaController(MessageService messageService) {
+        this.messageService = messageService;
+    }
+
+    @GetMapping
+    public ResponseEntity<?> getMedia(@RequestParam Long peerId,
+                                      @RequestParam(defaultValue = "false") boolean isGroup,
+                                      @RequestParam(required = false) String type,
+                                      @RequestParam(required = false) Long cursor,
+                                      @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                                      @AuthenticationPrincipal User user) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        try {
+            return ResponseEntity.ok(messageService.getMedia(user.getId(), peerId, isGroup, type, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+        }
+    }
+}
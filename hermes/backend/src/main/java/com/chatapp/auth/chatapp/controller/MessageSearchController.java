@@ -0,0 +1,46 @@
+package com.chatapp.auth.chatapp.controller;
+
+import com.chatapp.auth.chatapp.service.MessageSearchIndex;
+import com.chatapp.auth.model.User;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Full-text search over the caller's message history, paged newest first with a keyset cursor.
+ * Without a peerId every direct conversation of the caller is searched.
+ */
+@RestController
+@RequestMapping("/messages/search")
+public class MessageSearchController {
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final MessageSearchIndex messageSearchIndex;
+
+    public MessageSearchController(MessageSearchIndex messageSearchIndex) {
+        this.messageSearchIndex = messageSearchIndex;
+    }
+
+    @GetMapping
+    public ResponseEntity<?> search(@RequestParam String q,
+                                    @RequestParam(required = false) Long peerId,
+                                    @RequestParam(defaultValue = "false") boolean isGroup,
+                                    @RequestParam(required = false) Long cursor,
+                                    @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                                    @AuthenticationPrincipal User user) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (isGroup && peerId == null) {
+            return ResponseEntity.badRequest().body("peerId is required when searching a group");
+        }
+        try {
+            return ResponseEntity.ok(messageSearchIndex.search(user.getId(), peerId, isGroup, q, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.chatapp.auth.chatapp.controller;
+
+import com.chatapp.auth.chatapp.DTO.TypingEventDTO;
+import com.chatapp.auth.chatapp.components.StompPrincipal;
+import com.chatapp.auth.chatapp.service.TypingIndicatorService;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.stereotype.Controller;
+
+import java.security.Principal;
+
+/**
+ * Ephemeral events that are relayed but never stored, kept apart from the message channel.
+ */
+@Controller
+public class TypingController {
+
+    private final TypingIndicatorService typingIndicatorService;
+
+    public TypingController(TypingIndicatorService typingIndicatorService) {
+        this.typingIndicatorService = typingIndicatorService;
+    }
+
+    /**
+     * Updates the session user's typing or recording state in a conversation.
+     * The sender is always the authenticated session user.
+     */
+    @MessageMapping("/send/typing")
+    public void typing(TypingEventDTO event, Principal principal) {
+        Long senderId = StompPrincipal.from(principal).getUserId();
+        typingIndicatorService.update(senderId, event.getPeerId(), event.isGroup(), event.getState());
+    }
+}
@@ -0,0 +1,155 @@
+package com.chatapp.auth.chatapp.controller;
+
+import com.chatapp.auth.chatapp.DTO.UploadInitDTO;
+import com.chatapp.auth.chatapp.DTO.UploadStatusDTO;
+import com.chatapp.auth.chatapp.components.UploadSession;
+import com.chatapp.auth.chatapp.service.QuotaService;
+import com.chatapp.auth.chatapp.service.UploadSessionService;
+import com.chatapp.auth.model.UploadedFile;
+import com.chatapp.auth.model.User;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Resumable binary uploads. A client creates an upload, PUTs the bytes in one or more
+ * chunks with a Content-Range header, and then sends a chat message that only carries
+ * the resulting file ID. GET returns the current offset so an interrupted upload can resume.
+ */
+@RestController
+@RequestMapping("/files/uploads")
+public class UploadController {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadController.class);
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+)");
+
+    private final UploadSessionService uploadSessionService;
+    private final QuotaService quotaService;
+
+    public UploadController(UploadSessionService uploadSessionService, QuotaService quotaService) {
+        this.uploadSessionService = uploadSessionService;
+        this.quotaService = quotaService;
+    }
+
+    @PostMapping
+    public ResponseEntity<?> startUpload(@Valid @RequestBody UploadInitDTO request, @AuthenticationPrincipal User user) {
+        try {
+            UploadSession session = uploadSessionService.start(user.getId(), request.getFileName(), request.getFileType(), request.getSize());
+            return ResponseEntity.status(HttpStatus.CREATED).body(toStatus(session));
+        } catch (QuotaService.QuotaExceededException e) {
+            HttpStatus status = e.isStorageFull() ? HttpStatus.INSUFFICIENT_STORAGE : HttpStatus.PAYLOAD_TOO_LARGE;
+            return ResponseEntity.status(status).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IOException e) {
+            logger.error("Failed to start upload for user {}: {}", user.getId(), e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to start upload");
+        }
+    }
+
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<?> getUploadStatus(@PathVariable String uploadId, @AuthenticationPrincipal User user) {
+        try {
+            return ResponseEntity.ok(toStatus(uploadSessionService.get(uploadId, user.getId())));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+    }
+
+    @PutMapping("/{uploadId}")
+    public ResponseEntity<?> uploadChunk(@PathVariable String uploadId,
+                                         @RequestHeader(value = "Content-Range", required = false) String contentRange,
+                                         @AuthenticationPrincipal User user,
+                                         HttpServletRequest request) {
+        try {
+            UploadSession session = uploadSessionService.get(uploadId, user.getId());
+
+            long start;
+            long length;
+            if (contentRange != null) {
+                long[] range = parseContentRange(contentRange, session.getSize());
+                if (range == null) {
+                    return ResponseEntity.badRequest().body("Invalid Content-Range: " + contentRange);
+                }
+                start = range[0];
+                length = range[1];
+            } else {
+                // Without a range the body is appended at the current offset
+                start = session.getReceived();
+                long contentLength = request.getContentLengthLong();
+                length = contentLength >= 0 ? contentLength : session.getSize() - start;
+            }
+
+            // Read straight from the servlet stream; the body is never buffered in memory
+            UploadedFile uploadedFile = uploadSessionService.append(uploadId, user.getId(), start, length, request.getInputStream());
+            if (uploadedFile != null) {
+                return ResponseEntity.ok(new UploadStatusDTO(uploadId, uploadedFile.getSize(), uploadedFile.getSize(),
+                        uploadedFile.getFiles_id(), uploadedFile.getName()));
+            }
+            return ResponseEntity.ok(toStatus(session));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (IllegalStateException e) {
+            // Out-of-order chunk: tell the client where to resume from
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(toStatus(uploadSessionService.get(uploadId, user.getId())));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IOException e) {
+            logger.error("Failed to write chunk for upload {}: {}", uploadId, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to write chunk");
+        }
+    }
+
+    @GetMapping("/quota")
+    public ResponseEntity<?> getQuota(@AuthenticationPrincipal User user) {
+        return ResponseEntity.ok(Map.of("used", quotaService.getUserUsage(user.getId()), "limit", quotaService.getUserLimit()));
+    }
+
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<?> abortUpload(@PathVariable String uploadId, @AuthenticationPrincipal User user) {
+        try {
+            uploadSessionService.abort(uploadId, user.getId());
+            return ResponseEntity.noContent().build();
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to abort upload");
+        }
+    }
+
+    /**
+     * @return {start, length} of a {@code bytes start-end/size} header that lies inside an upload
+     *         of {@code size} bytes, or null if the header is malformed or out of bounds
+     */
+    static long[] parseContentRange(String header, long size) {
+        Matcher matcher = CONTENT_RANGE.matcher(header.trim());
+        if (!matcher.matches()) {
+            return null;
+        }
+        try {
+            long start = Long.parseLong(matcher.group(1));
+            long end = Long.parseLong(matcher.group(2));
+            if (Long.parseLong(matcher.group(3)) != size || end < start || end >= size) {
+                return null;
+            }
+            return new long[]{start, end - start + 1};
+        } catch (NumberFormatException e) {
+            return null; // More digits than a long holds
+        }
+    }
+
+    private UploadStatusDTO toStatus(UploadSession session) {
+        return new UploadStatusDTO(session.getUploadId(), session.getReceived(), session.getSize(), null, session.getFileName());
+    }
+}
@@ -1,20 +1,21 @@
 package com.chatapp.auth.chatapp.listener;
 
-import com.chatapp.auth.Auth.service.JwtService;
+import com.chatapp.auth.chatapp.components.StompPrincipal;
 import com.chatapp.auth.chatapp.service.ChatappUserService;
+import com.chatapp.auth.chatapp.service.GroupFanoutService;
+import com.chatapp.auth.chatapp.service.TypingIndicatorService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.event.EventListener;
-import org.springframework.messaging.Message;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.messaging.SessionConnectedEvent;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
-import org.springframework.messaging.support.GenericMessage;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
 
 import java.security.Principal;
-import java.util.List;
 
 @Component
 public class WebSocketEventListener {
@@ -23,62 +24,40 @@ public class WebSocketEventListener {
 
     private final SimpMessagingTemplate messagingTemplate;
     private final ChatappUserService chatappUserService;
-    private final JwtService jwtService;
+    private final TypingIndicatorService typingIndicatorService;
+    private final GroupFanoutService groupFanoutService;
 
     public WebSocketEventListener(SimpMessagingTemplate messagingTemplate,
                                   ChatappUserService chatappUserService,
-                                  JwtService jwtService) {
+                                  TypingIndicatorService typingIndicatorService,
+                                  GroupFanoutService groupFanoutService) {
         this.messagingTemplate = messagingTemplate;
         this.chatappUserService = chatappUserService;
-        this.jwtService = jwtService;
+        this.typingIndicatorService = typingIndicatorService;
+        this.groupFanoutService = groupFanoutService;
     }
 
     @EventListener
     public void handleWebSocketConnectListener(SessionConnectedEvent event) {
-        log.info("🔌 WebSocket connection event triggered. Session ID: {}", event.getMessage().getHeaders().get("simpSessionId"));
-
-        // Wrap the CONNECT_ACK message
         StompHeaderAccessor headerAccessor = StompHeaderAccessor.wrap(event.getMessage());
         String sessionId = headerAccessor.getSessionId();
-        log.debug("SessionConnectedEvent for session ID: {}", sessionId);
-
-        // Extract original CONNECT message (contains native headers)
-        Message<?> connectMessage = (Message<?>) headerAccessor.getHeader("simpConnectMessage");
-
-        if (connectMessage instanceof GenericMessage<?> genericMessage) {
-            log.debug("Original CONNECT message is a GenericMessage. Proceeding to extract Authorization header.");
-            StompHeaderAccessor connectAccessor = StompHeaderAccessor.wrap(genericMessage);
-
-            List<String> tokenList = connectAccessor.getNativeHeader("Authorization");
-            log.debug("Native 'Authorization' header values: {}", tokenList);
-
-            if (tokenList != null && !tokenList.isEmpty()) {
-                String rawToken = tokenList.get(0);
-                String cleanedToken = rawToken.startsWith("Bearer ") ? rawToken.substring(7) : rawToken;
-                log.debug("Extracted and cleaned token: {}", cleanedToken);
-
-                try {
-                    String username = jwtService.extractUsername(cleanedToken);
-                    log.info("✅ User connected: {} | Session ID: {}", username, sessionId);
+        log.info("🔌 WebSocket connection event triggered. Session ID: {}", sessionId);
 
-                    // Mark user online
-                    chatappUserService.setUserOnline(sessionId, username);
-                    log.info("User '{}' status updated to ONLINE in service.", username);
+        // The principal was resolved once by the handshake or CONNECT interceptor
+        Principal user = event.getUser();
+        if (!(user instanceof StompPrincipal principal)) {
+            log.warn("❗ No authenticated principal for session ID: {}. Cannot determine user.", sessionId);
+            return;
+        }
 
-                    // Broadcast user online status
-                    messagingTemplate.convertAndSend("/topic/status", username + " is online");
-                    log.info("Broadcasting user status update to '/topic/status'.");
-                } catch (Exception ex) {
-                    log.warn("❌ JWT validation failed during connect event: {}", ex.getMessage());
-                }
+        log.info("✅ User connected: {} | Session ID: {}", principal.getName(), sessionId);
 
-            } else {
-                log.warn("❗ Authorization header not found in nativeHeaders for session ID: {}. Cannot determine user.", sessionId);
-            }
+        // Mark user online
+        chatappUserService.setUserOnline(sessionId, principal);
 
-        } else {
-            log.warn("❗ simpConnectMessage was not a GenericMessage for session ID: {} — token could not be retrieved.", sessionId);
-        }
+        // Broadcast user online status
+        messagingTemplate.convertAndSend("/topic/status", principal.getName() + " is online");
+        log.info("Broadcasting user status update to '/topic/status'.");
     }
 
     @EventListener
@@ -89,22 +68,42 @@ public class WebSocketEventListener {
         String sessionId = headerAccessor.getSessionId();
         log.debug("SessionDisconnectEvent for session ID: {}", sessionId);
 
-        if (sessionId != null) {
-            String username = chatappUserService.getUsername(sessionId);
-            if (username != null) {
-                log.info("👋 User disconnected: {} | Session ID: {}", username, sessionId);
+        if (sessionId == null) {
+            log.warn("⚠️ Session ID is null in disconnect event. Cannot process event fully.");
+            return;
+        }
+        groupFanoutService.disconnect(sessionId);
 
-                chatappUserService.setUserOffline(sessionId);
-                log.info("User '{}' status updated to OFFLINE in service.", username);
+        StompPrincipal principal = chatappUserService.setUserOffline(sessionId);
+        if (principal != null) {
+            log.info("👋 User disconnected: {} | Session ID: {}", principal.getName(), sessionId);
 
-                // Broadcast user offline status
-                messagingTemplate.convertAndSend("/topic/status", username + " is offline");
-                log.info("Broadcasting user status update to '/topic/status'.");
-            } else {
-                log.warn("⚠️ No user found for disconnected session ID: {}", sessionId);
+            // Nobody is typing from a closed tab
+            if (!chatappUserService.isConnected(principal.getUserId())) {
+                typingIndicatorService.clear(principal.getUserId());
             }
+
+            // Broadcast user offline status
+            messagingTemplate.convertAndSend("/topic/status", principal.getName() + " is offline");
+            log.info("Broadcasting user status update to '/topic/status'.");
         } else {
-            log.warn("⚠️ Session ID is null in disconnect event. Cannot process event fully.");
+            log.warn("⚠️ No user found for disconnected session ID: {}", sessionId);
         }
     }
-}
\ No newline at end of file
+
+    // Group topic subscriptions feed the fan-out index; other destinations are ignored there
+    @EventListener
+    public void handleSubscribeListener(SessionSubscribeEvent event) {
+        StompHeaderAccessor headerAccessor = StompHeaderAccessor.wrap(event.getMessage());
+        if (event.getUser() instanceof StompPrincipal principal) {
+            groupFanoutService.subscribe(headerAccessor.getSessionId(), headerAccessor.getSubscriptionId(),
+                    headerAccessor.getDestination(), principal.getUserId());
+        }
+    }
+
+    @EventListener
+    public void handleUnsubscribeListener(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor headerAccessor = StompHeaderAccessor.wrap(event.getMessage());
+        groupFanoutService.unsubscribe(headerAccessor.getSessionId(), headerAccessor.getSubscriptionId());
+    }
+}
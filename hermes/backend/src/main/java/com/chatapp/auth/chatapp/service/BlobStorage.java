@@ -0,0 +1,66 @@
+package com.chatapp.auth.chatapp.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Where uploaded file bytes live. Keys are relative, '/'-separated and never start with '/'.
+ * Selected with {@code storage.driver}: {@code local} (default) or {@code s3}.
+ */
+public interface BlobStorage {
+
+    record StoredBlob(String key, long size, Instant lastModified) {
+    }
+
+    /**
+     * Stores a finished local file under the key. The source is consumed: it is moved or
+     * uploaded and then deleted, so callers must not use it afterwards.
+     */
+    void put(String key, Path source) throws IOException;
+
+    /**
+     * Streams exactly {@code length} bytes into the key.
+     */
+    void put(String key, InputStream content, long length) throws IOException;
+
+    InputStream get(String key) throws IOException;
+
+    boolean exists(String key) throws IOException;
+
+    void delete(String key) throws IOException;
+
+    /**
+     * Every blob whose key starts with {@code prefix}, in no particular order.
+     * Used by the garbage collector, which walks one small prefix at a time.
+     */
+    List<StoredBlob> list(String prefix) throws IOException;
+
+    /**
+     * Direct path for drivers backed by the local file system, so downloads can use sendfile.
+     */
+    default Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    /**
+     * Short-lived URL a client can download from without going through this server. The storage
+     * backend answers it with the given Content-Type and Content-Disposition, whatever the blob
+     * was stored with.
+     */
+    default Optional<URI> presignedGetUrl(String key, Duration ttl, String contentType, String contentDisposition) {
+        return Optional.empty();
+    }
+
+    /**
+     * Free bytes left for new blobs, or -1 if the backend has no practical limit.
+     */
+    default long usableSpace() throws IOException {
+        return -1;
+    }
+}
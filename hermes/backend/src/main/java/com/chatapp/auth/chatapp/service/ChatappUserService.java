@@ -1,5 +1,6 @@
 package com.chatapp.auth.chatapp.service;
 
+import com.chatapp.auth.chatapp.components.StompPrincipal;
 import com.chatapp.auth.model.User;
 import com.chatapp.auth.repository.UserRepository;
 import org.slf4j.Logger;
@@ -16,43 +17,42 @@ public class ChatappUserService {
     private static final Logger log = LoggerFactory.getLogger(ChatappUserService.class);
 
     private final UserRepository userRepository;
-    private final Map<String, String> sessionUsernameMap = new ConcurrentHashMap<>();
+    private final Map<String, StompPrincipal> sessionPrincipalMap = new ConcurrentHashMap<>();
+    // Open sessions per user on this node; a user can be connected from several tabs
+    private final Map<Long, Integer> connectedSessions = new ConcurrentHashMap<>();
 
     public ChatappUserService(UserRepository userRepository) {
         this.userRepository = userRepository;
     }
 
     @Transactional
-    public void setUserOnline(String sessionId, String username) {
-        log.info("Attempting to set user '{}' online for session ID: {}", username, sessionId);
-        sessionUsernameMap.put(sessionId, username);
-        log.debug("Added session mapping: {} -> {}. Current map state: {}", sessionId, username, sessionUsernameMap);
+    public void setUserOnline(String sessionId, StompPrincipal principal) {
+        log.info("Attempting to set user '{}' online for session ID: {}", principal.getName(), sessionId);
+        sessionPrincipalMap.put(sessionId, principal);
+        connectedSessions.merge(principal.getUserId(), 1, Integer::sum);
 
-        User user = UsernameFinder(username);
-        user.setOnline(true);
-        userRepository.save(user);
-        log.info("✅ User with username '{}' successfully updated to online status in the database.", username);
+        // The principal already carries the id, so this is a single UPDATE without a lookup
+        userRepository.updateOnlineStatus(principal.getUserId(), true);
+        log.info("✅ User with username '{}' successfully updated to online status in the database.", principal.getName());
     }
 
+    /**
+     * Marks the user behind the session offline.
+     * @return the principal the session belonged to, or null if the session was unknown
+     */
     @Transactional
-    public void setUserOffline(String sessionId) {
+    public StompPrincipal setUserOffline(String sessionId) {
         log.info("Attempting to set user offline for session ID: {}", sessionId);
-        String username = sessionUsernameMap.remove(sessionId);
-        log.debug("Removed session mapping for session ID '{}'. Extracted username: {}", sessionId, username);
+        StompPrincipal principal = sessionPrincipalMap.remove(sessionId);
 
-        if (username != null) {
-            try {
-                // Fetch the user by username and set offline status
-                User user = UsernameFinder(username);
-                user.setOnline(false);
-                userRepository.save(user);
-                log.info("✅ User with username '{}' successfully updated to offline status in the database.", username);
-            } catch (RuntimeException e) {
-                log.error("❌ Failed to set user offline: {}. User '{}' not found in database.", e.getMessage(), username);
-            }
+        if (principal != null) {
+            connectedSessions.computeIfPresent(principal.getUserId(), (userId, count) -> count > 1 ? count - 1 : null);
+            userRepository.updateOnlineStatus(principal.getUserId(), false);
+            log.info("✅ User with username '{}' successfully updated to offline status in the database.", principal.getName());
         } else {
             log.warn("⚠️ Session ID '{}' was not associated with any username. No user status to update.", sessionId);
         }
+        return principal;
     }
 
     public boolean isUserOnline(String username) {
@@ -62,8 +62,16 @@ public class ChatappUserService {
         return isOnline;
     }
 
+    /**
+     * Whether the user has an open WebSocket session on this node. Answered from memory.
+     */
+    public boolean isConnected(Long userId) {
+        return connectedSessions.containsKey(userId);
+    }
+
     public String getUsername(String sessionId) {
-        String username = sessionUsernameMap.get(sessionId);
+        StompPrincipal principal = sessionPrincipalMap.get(sessionId);
+        String username = principal != null ? principal.getName() : null;
         log.debug("Retrieving username for session ID '{}'. Found: {}", sessionId, username);
         return username;
     }
@@ -76,4 +84,4 @@ public class ChatappUserService {
                     return new RuntimeException("User not found with username: " + username);
                 });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,208 @@
+package com.chatapp.auth.chatapp.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serves stored files as raw bytes with HTTP caching and single-range support.
+ * Bodies never pass through the heap as a whole: Tomcat's sendfile is used when the
+ * connector offers it, otherwise the file is copied with {@link FileChannel#transferTo}.
+ * Remote storage drivers redirect to a presigned URL instead, so the bytes skip this JVM.
+ */
+@Service
+public class FileDownloadService {
+
+    private static final Logger log = LoggerFactory.getLogger(FileDownloadService.class);
+
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    // Same threshold as Tomcat's DefaultServlet; below it the syscall setup isn't worth it
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+
+    // Uploads are never modified in place, so they can be cached for a year
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+    // Media a browser can only display; anything else, HTML and SVG included, is sent as a download
+    private static final Set<String> INLINE_TYPES = Set.of(
+            "image/jpeg", "image/png", "image/gif", "image/webp", "image/bmp",
+            "video/mp4", "video/webm", "video/ogg", "video/quicktime",
+            "audio/mpeg", "audio/ogg", "audio/wav", "audio/x-wav", "audio/webm", "audio/mp4", "audio/aac");
+    private static final String ATTACHMENT_TYPE = "application/octet-stream";
+    private static final Pattern SINGLE_RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+
+    private final BlobStorage blobStorage;
+    private final Duration presignTtl;
+
+    public FileDownloadService(BlobStorage blobStorage, @Value("${storage.presign-ttl:900}") long presignTtlSeconds) {
+        this.blobStorage = blobStorage;
+        this.presignTtl = Duration.ofSeconds(presignTtlSeconds);
+    }
+
+    /**
+     * Serves a blob by storage key, either as a redirect to the storage backend or from local disk.
+     * Only allowlisted media types are served inline; everything else is sent as an attachment.
+     */
+    public void serve(String key, String contentType, String etag,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        boolean inline = isInline(contentType);
+        Optional<URI> direct = blobStorage.presignedGetUrl(key, presignTtl,
+                inline ? contentType : ATTACHMENT_TYPE, inline ? "inline" : "attachment");
+        if (direct.isPresent()) {
+            response.setHeader("X-Content-Type-Options", "nosniff");
+            // The redirect must not outlive the signature it carries
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=" + presignTtl.getSeconds() / 2);
+            response.sendRedirect(direct.get().toString());
+            return;
+        }
+
+        Path file = blobStorage.localPath(key).filter(Files::isRegularFile).orElse(null);
+        if (file == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        serve(file, contentType, etag, request, response);
+    }
+
+    public void serve(Path file, String contentType, String etag,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long size = Files.size(file);
+        boolean inline = isInline(contentType);
+
+        // The type comes from a client-chosen name, so never let the browser second-guess it
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, inline ? "inline" : "attachment");
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, IMMUTABLE_CACHE_CONTROL);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (matchesIfNoneMatch(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long end = size - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            long[] bounds = parseRange(range, size);
+            if (bounds == null) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (bounds.length == 2) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+            }
+        }
+
+        long length = end - start + 1;
+        response.setContentType(inline ? contentType : ATTACHMENT_TYPE);
+        response.setContentLengthLong(length);
+
+        if ("HEAD".equalsIgnoreCase(request.getMethod()) || length == 0) {
+            return;
+        }
+
+        if (length >= SENDFILE_MIN_SIZE && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, out);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        } catch (IOException e) {
+            // Typically the client went away mid-download
+            log.debug("Download of {} aborted: {}", file.getFileName(), e.getMessage());
+        }
+    }
+
+    private static boolean isInline(String contentType) {
+        return contentType != null && INLINE_TYPES.contains(contentType);
+    }
+
+    private boolean matchesIfNoneMatch(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return {start, end} for a satisfiable single range, an empty array if the header should be
+     *         ignored (multiple ranges or unknown unit), or null if the range is unsatisfiable
+     */
+    private long[] parseRange(String header, long size) {
+        Matcher matcher = SINGLE_RANGE.matcher(header.trim());
+        if (!matcher.matches()) {
+            return new long[0];
+        }
+        String first = matcher.group(1);
+        String last = matcher.group(2);
+        long start;
+        long end;
+        try {
+            if (first.isEmpty()) {
+                if (last.isEmpty()) {
+                    return null;
+                }
+                long suffix = Long.parseLong(last);   // bytes=-N: the last N bytes
+                if (suffix == 0) {
+                    return null;
+                }
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+            }
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+        if (start >= size || start > end) {
+            return null;
+        }
+        return new long[]{start, end};
+    }
+}
@@ -0,0 +1,173 @@
+package com.chatapp.auth.chatapp.service;
+
+import com.chatapp.auth.model.StorageUsage.OwnerType;
+import com.chatapp.auth.model.UploadedFile;
+import com.chatapp.auth.repository.FilesRepository;
+import com.chatapp.auth.repository.GroupRepository;
+import com.chatapp.auth.repository.MessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reclaims stored files nobody can reach any more. Each run does a small, paced slice of work:
+ * <ul>
+ *     <li>the next batch of {@code files} rows with no referencing message (or, with a retention
+ *     period set, none newer than it), deleting row, blob and thumbnails together;</li>
+ *     <li>one of the 256 hash-prefix directories of the store, deleting blobs that no row claims,
+ *     which catches bytes left behind by a crash between writing a blob and saving its row.</li>
+ * </ul>
+ * Both walks keep a cursor between runs, so the whole store is covered incrementally. Deleted
+ * files are credited back to their uploaders' quotas, and expired attachments to their groups'.
+ */
+@Service
+public class FileGarbageCollector {
+
+    private static final Logger log = LoggerFactory.getLogger(FileGarbageCollector.class);
+    private static final Pattern BLOB_NAME = Pattern.compile("([0-9a-f]{64})(_\\d+\\.jpg|_original)?");
+    // Stand-in for "any reference at all" when no retention period is configured
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+    // Storage operations per deleted file: the blob, a kept original and its thumbnails
+    private static final int OPS_PER_FILE = 2 + ThumbnailService.SIZES.length;
+
+    private final FilesRepository filesRepository;
+    private final MessageRepository messageRepository;
+    private final GroupRepository groupRepository;
+    private final FileService fileService;
+    private final BlobStorage blobStorage;
+    private final QuotaService quotaService;
+    private final Counter reclaimedBytes;
+    private final Counter reclaimedFiles;
+
+    @Value("${gc.batch-size:100}")
+    private int batchSize;
+
+    // Uploads younger than this may still be on their way into a message
+    @Value("${gc.grace-period:3600000}")
+    private long gracePeriod;
+
+    // 0 keeps attachments for as long as a message references them
+    @Value("${gc.retention-days:0}")
+    private long retentionDays;
+
+    @Value("${gc.max-ops-per-second:20}")
+    private int maxOpsPerSecond;
+
+    private long fileCursor = 0;
+    private int prefixCursor = 0;
+    private long nextOpAt = System.nanoTime();
+
+    public FileGarbageCollector(FilesRepository filesRepository, MessageRepository messageRepository,
+                                GroupRepository groupRepository, FileService fileService,
+                                BlobStorage blobStorage, QuotaService quotaService, MeterRegistry meterRegistry) {
+        this.filesRepository = filesRepository;
+        this.messageRepository = messageRepository;
+        this.groupRepository = groupRepository;
+        this.fileService = fileService;
+        this.blobStorage = blobStorage;
+        this.quotaService = quotaService;
+        this.reclaimedBytes = Counter.builder("hermes.gc.reclaimed")
+                .baseUnit("bytes").description("Bytes freed by the file garbage collector")
+                .register(meterRegistry);
+        this.reclaimedFiles = Counter.builder("hermes.gc.deleted")
+                .description("Files and orphaned blobs deleted by the file garbage collector")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${gc.interval:300000}", initialDelayString = "${gc.initial-delay:60000}")
+    public void collect() {
+        try {
+            long files = collectUnreferencedFiles();
+            long blobs = collectOrphanedBlobs();
+            if (files > 0 || blobs > 0) {
+                log.info("🧹 File GC removed {} files and {} orphaned blobs", files, blobs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("File GC run failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private long collectUnreferencedFiles() throws InterruptedException {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cutoff = now.minus(Duration.ofMillis(gracePeriod));
+        LocalDateTime referencedSince = retentionDays > 0 ? now.minusDays(retentionDays) : EPOCH;
+
+        List<UploadedFile> candidates = filesRepository.findGcCandidates(fileCursor, cutoff, referencedSince,
+                PageRequest.of(0, batchSize));
+        // A short batch means the walk reached the end of the table; start over next run
+        fileCursor = candidates.size() < batchSize ? 0 : candidates.get(candidates.size() - 1).getFiles_id();
+
+        long deleted = 0;
+        for (UploadedFile file : candidates) {
+            pace(OPS_PER_FILE);
+            try {
+                if (retentionDays > 0) {
+                    // Expired: the messages stay, only their attachment goes
+                    List<Long> groups = groupRepository.findGroupIdsByFileId(file.getFiles_id());
+                    messageRepository.detachFile(file.getFiles_id());
+                    groupRepository.detachFile(file.getFiles_id());
+                    for (Long groupId : groups) {
+                        quotaService.release(OwnerType.GROUP, groupId, file.getSize() != null ? file.getSize() : 0);
+                    }
+                }
+                if (fileService.deleteIfUnreferenced(file)) {
+                    deleted++;
+                    reclaimedFiles.increment();
+                    reclaimedBytes.increment(file.getSize() != null ? file.getSize() : 0);
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("Failed to collect file {}: {}", file.getFiles_id(), e.getMessage());
+            }
+        }
+        return deleted;
+    }
+
+    private long collectOrphanedBlobs() throws IOException, InterruptedException {
+        String prefix = String.format("%02x", prefixCursor);
+        prefixCursor = (prefixCursor + 1) % 256;
+        Instant cutoff = Instant.now().minusMillis(gracePeriod);
+
+        long deleted = 0;
+        for (BlobStorage.StoredBlob blob : blobStorage.list(prefix)) {
+            String name = blob.key().substring(blob.key().lastIndexOf('/') + 1);
+            Matcher matcher = BLOB_NAME.matcher(name);
+            // Thumbnails and kept originals are removed together with their blob
+            if (!matcher.matches() || matcher.group(2) != null || blob.lastModified().isAfter(cutoff)) {
+                continue;
+            }
+            pace(1);
+            if (fileService.deleteIfOrphaned(matcher.group(1))) {
+                deleted++;
+                reclaimedFiles.increment();
+                reclaimedBytes.increment(blob.size());
+            }
+        }
+        return deleted;
+    }
+
+    // Spreads deletions out to at most gc.max-ops-per-second storage operations
+    private void pace(int ops) throws InterruptedException {
+        long now = System.nanoTime();
+        long wait = nextOpAt - now;
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        nextOpAt = Math.max(now, nextOpAt) + ops * TimeUnit.SECONDS.toNanos(1) / Math.max(1, maxOpsPerSecond);
+    }
+}
@@ -1,64 +1,393 @@
 package com.chatapp.auth.chatapp.service;
 
+import com.chatapp.auth.model.FileUpload;
+import com.chatapp.auth.model.StorageUsage.OwnerType;
 import com.chatapp.auth.model.UploadedFile;
+import com.chatapp.auth.repository.FileUploadRepository;
 import com.chatapp.auth.repository.FilesRepository;
-import com.chatapp.auth.repository.MessageRepository;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
-import java.util.UUID;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+/**
+ * Content-addressed file store. Blobs are kept in {@link BlobStorage} under
+ * {@code <hash[0..2]>/<hash[2..4]>/<hash>} and each distinct content has exactly one
+ * {@link UploadedFile} row, so storing the same bytes again costs one hash pass and no write.
+ * Per-hash locks only guard short database steps; blob writes and image normalising run
+ * unlocked, and the unique content hash settles races between nodes.
+ */
 @Service
 public class FileService {
 
-    @Value("${uploadedFile.upload-dir}")
-    private String uploadDir;
+    private static final Logger log = LoggerFactory.getLogger(FileService.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_ORIGINAL_NAME_LENGTH = 150;
+    // Stored names start with the content hash, so the blob path is derivable without a lookup
+    private static final Pattern CONTENT_ADDRESSED_NAME = Pattern.compile("([0-9a-f]{64})_.+");
 
-    @Autowired
     private final FilesRepository filesRepository;
+    private final FileUploadRepository fileUploadRepository;
+    private final ThumbnailService thumbnailService;
+    private final BlobStorage blobStorage;
+    private final ImageNormalizer imageNormalizer;
+    private final QuotaService quotaService;
+    private final Object[] hashLocks = new Object[256];
+    // Hashes whose blob this node is writing without a row yet, with the number of writers
+    private final Map<String, Integer> inFlight = new ConcurrentHashMap<>();
 
-    public FileService(FilesRepository filesRepository, MessageRepository messageRepository) {
+    @Value("${media.keep-originals:false}")
+    private boolean keepOriginals;
+
+    public FileService(FilesRepository filesRepository, FileUploadRepository fileUploadRepository,
+                       ThumbnailService thumbnailService, BlobStorage blobStorage, ImageNormalizer imageNormalizer,
+                       QuotaService quotaService) {
         this.filesRepository = filesRepository;
+        this.fileUploadRepository = fileUploadRepository;
+        this.thumbnailService = thumbnailService;
+        this.blobStorage = blobStorage;
+        this.imageNormalizer = imageNormalizer;
+        this.quotaService = quotaService;
+        for (int i = 0; i < hashLocks.length; i++) {
+            hashLocks[i] = new Object();
+        }
     }
 
-    public UploadedFile storeFile(MultipartFile file) throws IOException {
-
-        // Generate a random filename with the original file name
-        String fileName = UUID.randomUUID() + "_" + file.getOriginalFilename();
-        fileName = fileName.replaceAll("\\s", "_");
-
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
 
-        // Define the target location with the file name appended
-        Path targetLocation = Paths.get(uploadDir).toAbsolutePath().normalize().resolve(fileName);
+    /**
+     * Stores an in-memory upload. The content is hashed first and only written if it is new.
+     * @param charged bytes already charged to the uploader for this upload; see {@link #recordUpload}
+     */
+    public UploadedFile storeFile(MultipartFile file, Long uploaderId, long charged) throws IOException {
+        String contentHash;
+        try (InputStream in = file.getInputStream()) {
+            contentHash = hash(in);
+        }
 
+        UploadedFile existing = reuseOrClaim(contentHash, file.getOriginalFilename(), uploaderId, charged);
+        if (existing != null) {
+            return existing;
+        }
         try {
-            // Copy the file to the target location
-            java.nio.file.Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+            return storeNewContent(contentHash, file::getInputStream, null, file.getSize(),
+                    file.getOriginalFilename(), file.getContentType(), uploaderId, charged);
         } catch (IOException e) {
-            // Log the exception and throw a RuntimeException with a custom message
-            System.err.println("Error copying file: " + e.getMessage());
+            log.error("Error copying file: {}", e.getMessage());
             throw new RuntimeException("Failed to copy the file to target location", e);
         }
-        
+    }
+
+    /**
+     * Commits a fully received upload. New content is handed to the storage driver, which
+     * renames it into place when it can; duplicate content just drops the partial file.
+     * @param contentHash hash computed while the chunks streamed in, or null to hash the file now
+     * @param charged bytes already charged to the uploader for this upload; see {@link #recordUpload}
+     */
+    public UploadedFile storeUploadedFile(Path partialFile, String contentHash, String originalFilename,
+                                          String contentType, Long uploaderId, long charged) throws IOException {
+        if (contentHash == null) {
+            try (InputStream in = Files.newInputStream(partialFile)) {
+                contentHash = hash(in);
+            }
+        }
+        long size = Files.size(partialFile);
+
+        UploadedFile existing = reuseOrClaim(contentHash, originalFilename, uploaderId, charged);
+        if (existing != null) {
+            // The upload is recorded and its charge settled, so a stuck partial file must not fail it
+            try {
+                Files.deleteIfExists(partialFile);
+            } catch (IOException e) {
+                log.warn("Failed to delete partial upload {}: {}", partialFile, e.getMessage());
+            }
+            return existing;
+        }
+        // A blob left behind by a crash is simply overwritten with the same bytes
+        return storeNewContent(contentHash, () -> Files.newInputStream(partialFile), partialFile, size,
+                originalFilename, contentType, uploaderId, charged);
+    }
+
+    /**
+     * Deletes a file's row and bytes, unless a message still references it.
+     * Holds the hash's lock throughout, so a concurrent upload of the same content on this
+     * node either reuses the row before it goes or writes a fresh blob after. Only the paced
+     * garbage collector deletes, so holding the lock over storage calls here is acceptable.
+     * Every user who uploaded the content gets its size back on their quota.
+     * @return true if the file was deleted
+     */
+    public boolean deleteIfUnreferenced(UploadedFile file) throws IOException {
+        Object lock = file.getContentHash() != null ? lockFor(file.getContentHash()) : file;
+        synchronized (lock) {
+            if (filesRepository.deleteIfUnreferenced(file.getFiles_id()) == 0) {
+                return false;
+            }
+            List<Long> uploaders = fileUploadRepository.findUserIdsByFileId(file.getFiles_id());
+            fileUploadRepository.deleteByFileId(file.getFiles_id());
+            long size = file.getSize() != null ? file.getSize() : 0;
+            for (Long uploader : uploaders) {
+                quotaService.release(OwnerType.USER, uploader, size);
+            }
+            deleteBlobs(file.getName());
+            return true;
+        }
+    }
 
+    /**
+     * Deletes a content-addressed blob and its thumbnails if no row claims the hash.
+     */
+    public boolean deleteIfOrphaned(String contentHash) throws IOException {
+        synchronized (lockFor(contentHash)) {
+            if (inFlight.containsKey(contentHash) || filesRepository.existsByContentHash(contentHash)) {
+                return false;
+            }
+            String key = blobKey(contentHash);
+            blobStorage.delete(key);
+            blobStorage.delete(originalKey(key));
+            for (int size : ThumbnailService.SIZES) {
+                blobStorage.delete(ThumbnailService.thumbnailKey(key, size));
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Looks up a previously uploaded file that the sender is allowed to attach to a message.
+     */
+    public UploadedFile getFileForSender(Long fileId, Long senderId) {
+        UploadedFile uploadedFile = filesRepository.findById(fileId)
+                .orElseThrow(() -> new IllegalArgumentException("File not found: " + fileId));
+        if (!fileUploadRepository.existsByFileIdAndUserId(fileId, senderId)) {
+            throw new IllegalArgumentException("File " + fileId + " was not uploaded by this user");
+        }
+        return uploadedFile;
+    }
+
+    /**
+     * Maps a stored file name to its storage key.
+     * @return the key, or null if the name is not a plain file name
+     */
+    public String storageKey(String fileName) {
+        Matcher matcher = CONTENT_ADDRESSED_NAME.matcher(fileName);
+        if (matcher.matches()) {
+            return blobKey(matcher.group(1));
+        }
+        // Files stored before content addressing sit at the top level of the storage root
+        boolean plainName = !fileName.isBlank() && !fileName.contains("/") && !fileName.contains("\\")
+                && !fileName.equals(".") && !fileName.equals("..");
+        return plainName ? fileName : null;
+    }
+
+    /**
+     * Key of a generated thumbnail, or null for files stored before content addressing.
+     */
+    public String thumbnailKey(String fileName, int size) {
+        Matcher matcher = CONTENT_ADDRESSED_NAME.matcher(fileName);
+        return matcher.matches() ? ThumbnailService.thumbnailKey(blobKey(matcher.group(1)), size) : null;
+    }
+
+    /**
+     * Strong validator for a stored file. Stored names are never reused for different bytes,
+     * so the hash (or, for older files, the unique name itself) identifies the content.
+     */
+    public String etag(String fileName) {
+        Matcher matcher = CONTENT_ADDRESSED_NAME.matcher(fileName);
+        if (matcher.matches()) {
+            return "\"" + matcher.group(1) + "\"";
+        }
+        byte[] nameHash = newDigest().digest(fileName.getBytes(StandardCharsets.UTF_8));
+        return "\"" + HexFormat.of().formatHex(nameHash, 0, 16) + "\"";
+    }
+
+    public static String blobKey(String contentHash) {
+        return contentHash.substring(0, 2) + "/" + contentHash.substring(2, 4) + "/" + contentHash;
+    }
+
+    /**
+     * Writes content that has no row yet. Photos are normalised first and the re-encoded
+     * JPEG becomes the stored blob; the row keeps the hash of the uploaded bytes, so the
+     * same upload still deduplicates. The original is kept beside it only if configured.
+     * Runs without the hash's lock; the caller must hold a claim from {@link #reuseOrClaim}.
+     * @param partialFile the upload on local disk, consumed here, or null to read from source
+     */
+    private UploadedFile storeNewContent(String contentHash, ImageNormalizer.Source source, Path partialFile, long size,
+                                         String originalFilename, String contentType, Long uploaderId,
+                                         long charged) throws IOException {
+        try {
+            String key = blobKey(contentHash);
+            byte[] normalized = imageNormalizer.normalize(source, contentType, size).orElse(null);
+            if (normalized == null) {
+                putOriginal(key, source, partialFile, size);
+                return saveMetadata(contentHash, originalFilename, contentType, size, uploaderId, charged);
+            }
+
+            blobStorage.put(key, new ByteArrayInputStream(normalized), normalized.length);
+            if (keepOriginals) {
+                putOriginal(originalKey(key), source, partialFile, size);
+            } else if (partialFile != null) {
+                Files.deleteIfExists(partialFile);
+            }
+            log.info("Normalised '{}' from {} to {} bytes", originalFilename, size, normalized.length);
+            return saveMetadata(contentHash, withJpegExtension(originalFilename), "image/jpeg", normalized.length,
+                    uploaderId, charged);
+        } finally {
+            inFlight.computeIfPresent(contentHash, (hash, writers) -> writers == 1 ? null : writers - 1);
+        }
+    }
+
+    /**
+     * Returns the existing row for the content, recording the upload against it, or null after
+     * claiming the hash so the garbage collector leaves its blob alone while it is written.
+     */
+    private UploadedFile reuseOrClaim(String contentHash, String originalFilename, Long uploaderId, long charged) {
+        synchronized (lockFor(contentHash)) {
+            Optional<UploadedFile> existing = filesRepository.findByContentHash(contentHash);
+            if (existing.isPresent()) {
+                log.info("Deduplicated upload '{}' to existing file {}", originalFilename, existing.get().getFiles_id());
+                recordUpload(existing.get(), uploaderId, charged);
+                return existing.get();
+            }
+            inFlight.merge(contentHash, 1, Integer::sum);
+            return null;
+        }
+    }
+
+    private void putOriginal(String key, ImageNormalizer.Source source, Path partialFile, long size) throws IOException {
+        if (partialFile != null) {
+            blobStorage.put(key, partialFile);
+        } else {
+            try (InputStream in = source.open()) {
+                blobStorage.put(key, in, size);
+            }
+        }
+    }
+
+    // Untouched upload kept next to a normalised blob when media.keep-originals is set
+    public static String originalKey(String blobKey) {
+        return blobKey + "_original";
+    }
+
+    private static String withJpegExtension(String originalFilename) {
+        String name = String.valueOf(originalFilename);
+        int dot = name.lastIndexOf('.');
+        return (dot > 0 ? name.substring(0, dot) : name) + ".jpg";
+    }
+
+    // Serialises the find-or-claim and row insert against deletion for the same content; 256 stripes by hash prefix
+    private Object lockFor(String contentHash) {
+        return hashLocks[Integer.parseInt(contentHash.substring(0, 2), 16)];
+    }
+
+    private void deleteBlobs(String fileName) throws IOException {
+        String key = storageKey(fileName);
+        if (key == null) {
+            return;
+        }
+        blobStorage.delete(key);
+        if (CONTENT_ADDRESSED_NAME.matcher(fileName).matches()) {
+            blobStorage.delete(originalKey(key));
+        }
+        for (int size : ThumbnailService.SIZES) {
+            String thumbnail = thumbnailKey(fileName, size);
+            if (thumbnail != null) {
+                blobStorage.delete(thumbnail);
+            }
+        }
+    }
+
+    private String hash(InputStream in) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Save the file metadata to the database
+    private UploadedFile saveMetadata(String contentHash, String originalFilename, String contentType, long size,
+                                      Long uploaderId, long charged) {
+        String fileName = contentHash + "_" + sanitizeName(originalFilename);
 
-        // Save the file metadata to the database
         UploadedFile uploadedFileEntity = new UploadedFile();
         uploadedFileEntity.setName(fileName);
-        uploadedFileEntity.setType(file.getContentType());
-        uploadedFileEntity.setSize(file.getSize());
+        uploadedFileEntity.setType(contentType);
+        uploadedFileEntity.setSize(size);
         uploadedFileEntity.setUrl("/uploads/" + fileName);
         uploadedFileEntity.setUpload_time(LocalDateTime.now());
+        uploadedFileEntity.setContentHash(contentHash);
 
-        return filesRepository.save(uploadedFileEntity);
+        UploadedFile saved;
+        try {
+            // Locked only for the insert; the unique content hash settles races with other nodes
+            synchronized (lockFor(contentHash)) {
+                saved = filesRepository.save(uploadedFileEntity);
+            }
+            // Only the upload that created the row generates previews, once the row is committed
+            if (ThumbnailService.isSupported(contentType)) {
+                thumbnailService.generateAsync(saved.getFiles_id(), blobKey(contentHash));
+            }
+        } catch (DataIntegrityViolationException e) {
+            // Lost a race with an identical upload; both point at the same blob
+            saved = filesRepository.findByContentHash(contentHash).orElseThrow(() -> e);
+        }
+        recordUpload(saved, uploaderId, charged);
+        return saved;
     }
 
-}
+    /**
+     * Records the upload against the file and settles its charge. A user pays for a file once,
+     * however often they send it, and for its stored size, which is what deleting it credits
+     * back: a repeat upload of content they already hold is refunded in full, and a first one
+     * is trued up to the size after normalizing.
+     */
+    private void recordUpload(UploadedFile uploadedFile, Long uploaderId, long charged) {
+        if (uploaderId == null) {
+            return;
+        }
+        // Refreshing the timestamp keeps a just-reused file out of the garbage collector's reach
+        boolean repeat = fileUploadRepository.touch(uploadedFile.getFiles_id(), uploaderId, LocalDateTime.now()) > 0;
+        if (!repeat) {
+            try {
+                fileUploadRepository.save(new FileUpload(uploadedFile.getFiles_id(), uploaderId));
+            } catch (DataIntegrityViolationException e) {
+                // Already recorded by a concurrent upload, which keeps the charge
+                repeat = true;
+            }
+        }
+        long stored = uploadedFile.getSize() != null ? uploadedFile.getSize() : 0;
+        quotaService.release(OwnerType.USER, uploaderId, repeat ? charged : charged - stored);
+    }
 
+    private String sanitizeName(String originalFilename) {
+        String name = String.valueOf(Paths.get(String.valueOf(originalFilename)).getFileName()).replaceAll("\\s", "_");
+        return name.length() > MAX_ORIGINAL_NAME_LENGTH ? name.substring(name.length() - MAX_ORIGINAL_NAME_LENGTH) : name;
+    }
+}
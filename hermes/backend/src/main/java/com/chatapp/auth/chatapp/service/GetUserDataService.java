@@ -1,5 +1,6 @@
 package com.chatapp.auth.chatapp.service;
 
+import com.chatapp.auth.chatapp.DTO.SearchPageDTO;
 import com.chatapp.auth.chatapp.DTO.UserDataDto;
 
 import java.util.List;
@@ -7,4 +8,5 @@ import java.util.List;
 public interface GetUserDataService {
         UserDataDto getUserData(Long userId);
         List<Object> searchUsersAndGroups(String query);
+        SearchPageDTO searchPage(String query, Integer cursor, int limit);
 }
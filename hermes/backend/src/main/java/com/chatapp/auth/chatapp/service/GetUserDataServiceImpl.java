@@ -1,26 +1,83 @@
 package com.chatapp.auth.chatapp.service;
 
+import com.chatapp.auth.chatapp.DTO.SearchPageDTO;
+import com.chatapp.auth.chatapp.DTO.SearchResultDTO;
 import com.chatapp.auth.chatapp.DTO.UserDataDto;
 import com.chatapp.auth.model.GroupDetails;
 import com.chatapp.auth.model.User;
 import com.chatapp.auth.repository.GroupDetailsRepository;
 import com.chatapp.auth.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class GetUserDataServiceImpl implements GetUserDataService {
 
+    // Page size of the original unpaginated search endpoint
+    private static final int LEGACY_RESULTS = 50;
+
+    private record CachedSearch(List<SearchResultDTO> results, long expiresAt) {
+    }
+
     @Autowired
     private UserRepository userRepository;
 
     @Autowired
     private GroupDetailsRepository groupDetailsRepository;
 
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Hard cap on results for one query, across all of its pages
+    @Value("${search.max-results:200}")
+    private int maxResults;
+
+    @Value("${search.cache-ttl:10000}")
+    private long cacheTtl;
+
+    @Value("${search.cache-size:1000}")
+    private int cacheSize;
+
+    // Typeahead fires the same prefixes from many clients at once; they share one computation
+    private final Map<String, CompletableFuture<List<SearchResultDTO>>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, CachedSearch> cache = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedSearch> eldest) {
+                    return size() > cacheSize;
+                }
+            });
+
+    private Counter cacheHits;
+    private Counter coalesced;
+    private Counter computed;
+
+    @PostConstruct
+    void registerMetrics() {
+        cacheHits = searchCounter("cache");
+        coalesced = searchCounter("coalesced");
+        computed = searchCounter("computed");
+    }
+
     @Override
     public UserDataDto getUserData(Long userId) {
         User user = userRepository.findById(userId).orElse(null);
@@ -32,28 +89,98 @@ public class GetUserDataServiceImpl implements GetUserDataService {
 
     @Override
     public List<Object> searchUsersAndGroups(String query) {
-        // Search users by username
-        List<User> users = userRepository.findByUsernameContainingIgnoreCase(query);
+        List<Object> results = new ArrayList<>();
+        for (SearchResultDTO result : searchPage(query, null, LEGACY_RESULTS).getItems()) {
+            results.add(new UserDataDto(result.getId(), result.getName(), result.getType() == SearchResultDTO.Type.GROUP));
+        }
+        return results;
+    }
 
-        // Convert user results to DTOs
-        List<UserDataDto> userResults = users.stream()
-                .map(user -> new UserDataDto(user.getId(), user.getUsername(),false))
-                .collect(Collectors.toList());
+    /**
+     * One page of ranked users and groups. Pages are slices of one cached result list,
+     * so they stay consistent while the cache entry lives.
+     * @param cursor the {@code nextCursor} of the previous page, or null for the first page
+     */
+    @Override
+    public SearchPageDTO searchPage(String query, Integer cursor, int limit) {
+        String key = query == null ? "" : query.trim().toLowerCase(Locale.ROOT);
+        int from = cursor != null ? cursor : 0;
+        if (from < 0) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (key.isEmpty()) {
+            return new SearchPageDTO(List.of(), null);
+        }
+
+        List<SearchResultDTO> results = ranked(key);
+        int to = Math.min(results.size(), from + limit);
+        if (from >= to) {
+            return new SearchPageDTO(List.of(), null);
+        }
+        return new SearchPageDTO(results.subList(from, to), to < results.size() ? to : null);
+    }
+
+    private List<SearchResultDTO> ranked(String key) {
+        CachedSearch cached = cache.get(key);
+        if (cached != null && cached.expiresAt() - System.nanoTime() > 0) {
+            cacheHits.increment();
+            return cached.results();
+        }
 
-        // Search groups by group name
-        List<GroupDetails> groups = groupDetailsRepository.findByGroupNameContainingIgnoreCase(query);
+        CompletableFuture<List<SearchResultDTO>> mine = new CompletableFuture<>();
+        CompletableFuture<List<SearchResultDTO>> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.increment();
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            computed.increment();
+            List<SearchResultDTO> results = List.copyOf(compute(key));
+            // Cache before leaving the in-flight map so no request falls between the two
+            cache.put(key, new CachedSearch(results, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(cacheTtl)));
+            mine.complete(results);
+            return results;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
 
-        // Convert group results to DTOs
-        List<UserDataDto> groupResults = groups.stream()
-                .map(group -> new UserDataDto(group.getId(), group.getGroupName(),true))
-                .collect(Collectors.toList());
+    private List<SearchResultDTO> compute(String key) {
+        List<SearchResultDTO> results = new ArrayList<>();
+        if (searchIndexService.isReady()) {
+            for (UserDataDto hit : searchIndexService.search(key, maxResults)) {
+                results.add(new SearchResultDTO(hit.getId(), hit.getName(),
+                        hit.isGroup() ? SearchResultDTO.Type.GROUP : SearchResultDTO.Type.USER));
+            }
+            return results;
+        }
 
-        // Combine user and group results into a single list
-        List<Object> combinedResults = new ArrayList<>();
-        combinedResults.addAll(userResults);
-        combinedResults.addAll(groupResults);
+        // Index still loading after startup; bounded so a one-letter query can't return every row
+        for (User user : userRepository.findByUsernameContainingIgnoreCase(key, PageRequest.of(0, maxResults))) {
+            results.add(new SearchResultDTO(user.getId(), user.getUsername(), SearchResultDTO.Type.USER));
+        }
+        int remaining = maxResults - results.size();
+        if (remaining > 0) {
+            for (GroupDetails group : groupDetailsRepository.findByGroupNameContainingIgnoreCase(key, PageRequest.of(0, remaining))) {
+                results.add(new SearchResultDTO(group.getId(), group.getGroupName(), SearchResultDTO.Type.GROUP));
+            }
+        }
+        return results;
+    }
 
-        return combinedResults;
+    private Counter searchCounter(String outcome) {
+        return Counter.builder("hermes.search.requests")
+                .tag("outcome", outcome)
+                .description("User and group searches by how they were answered")
+                .register(meterRegistry);
     }
 
 }
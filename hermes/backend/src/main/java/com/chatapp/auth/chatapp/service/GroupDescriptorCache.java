@@ -0,0 +1,60 @@
+package com.chatapp.auth.chatapp.service;
+
+import com.chatapp.auth.model.GroupDetails;
+import com.chatapp.auth.repository.GroupDetailsRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The immutable facts about a group that the message path needs, kept in memory so sending to a
+ * group does not load the group row. Groups are never renamed or deleted, so entries never go stale.
+ */
+@Service
+public class GroupDescriptorCache {
+
+    public record GroupDescriptor(Long id, String groupName, Long createdBy) {
+    }
+
+    private final GroupDetailsRepository groupDetailsRepository;
+
+    @Value("${groups.descriptor-cache-size:10000}")
+    private int cacheSize;
+
+    private final Map<Long, GroupDescriptor> descriptors = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, GroupDescriptor> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    public GroupDescriptorCache(GroupDetailsRepository groupDetailsRepository) {
+        this.groupDetailsRepository = groupDetailsRepository;
+    }
+
+    public Optional<GroupDescriptor> get(Long groupId) {
+        synchronized (descriptors) {
+            GroupDescriptor cached = descriptors.get(groupId);
+            if (cached != null) {
+                return Optional.of(cached);
+            }
+        }
+        // Unknown IDs are not cached, so a group created on another node is found on first use
+        Optional<GroupDescriptor> loaded = groupDetailsRepository.findById(groupId).map(GroupDescriptorCache::describe);
+        loaded.ifPresent(this::put);
+        return loaded;
+    }
+
+    public void put(GroupDescriptor descriptor) {
+        synchronized (descriptors) {
+            descriptors.put(descriptor.id(), descriptor);
+        }
+    }
+
+    static GroupDescriptor describe(GroupDetails group) {
+        return new GroupDescriptor(group.getId(), group.getGroupName(), group.getCreatedBy());
+    }
+}
@@ -3,25 +3,41 @@ package com.chatapp.auth.chatapp.service;
 import com.chatapp.auth.chatapp.DTO.GroupDTO;
 import com.chatapp.auth.model.Group;
 import com.chatapp.auth.model.GroupDetails;
-import com.chatapp.auth.model.User;
 import com.chatapp.auth.repository.GroupDetailsRepository;
-import com.chatapp.auth.repository.GroupRepository;
 import com.chatapp.auth.repository.UserRepository;
 import org.springframework.stereotype.Service;
-import java.time.LocalDateTime;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class GroupDetailsService {
 
-    private final GroupRepository groupRepository;
     private final GroupDetailsRepository groupDetailsRepository;
     private final UserRepository userRepository;
+    // Present only with messages.body-store=segment
+    private final Optional<MessageSegmentLog> segmentLog;
+    private final SearchIndexService searchIndexService;
+    private final MessageSearchIndex messageSearchIndex;
+    private final GroupMembershipService groupMembershipService;
+    private final GroupDescriptorCache groupDescriptorCache;
+    private final GroupMessageWriter groupMessageWriter;
 
-    public GroupDetailsService(GroupRepository groupRepository, GroupDetailsRepository groupDetailsRepository, UserRepository userRepository) {
-        this.groupRepository = groupRepository;
+    public GroupDetailsService(GroupDetailsRepository groupDetailsRepository, UserRepository userRepository,
+                               Optional<MessageSegmentLog> segmentLog, SearchIndexService searchIndexService,
+                               MessageSearchIndex messageSearchIndex, GroupMembershipService groupMembershipService,
+                               GroupDescriptorCache groupDescriptorCache, GroupMessageWriter groupMessageWriter) {
         this.groupDetailsRepository = groupDetailsRepository;
         this.userRepository = userRepository;
+        this.segmentLog = segmentLog;
+        this.searchIndexService = searchIndexService;
+        this.messageSearchIndex = messageSearchIndex;
+        this.groupMembershipService = groupMembershipService;
+        this.groupDescriptorCache = groupDescriptorCache;
+        this.groupMessageWriter = groupMessageWriter;
     }
 
     /**
@@ -31,41 +47,51 @@ public class GroupDetailsService {
      * @param memberIds list of user IDs to be added as group members
      * @return the created GroupDetails entity
      */
+    @Transactional
     public GroupDetails createGroup(String groupName, Long createdBy, List<Long> memberIds) {
         // Check if a group with the same name already exists
         if (groupDetailsRepository.existsByGroupName(groupName)) {
             throw new IllegalArgumentException("A group with this name already exists.");
         }
+        if (!userRepository.existsById(createdBy)) {
+            throw new IllegalArgumentException("Creator user not found.");
+        }
 
-        // Create a new GroupDetails entity
-        GroupDetails groupDetails = new GroupDetails(groupName, createdBy);
-
-        // Fetch users by IDs
-        List<User> members = userRepository.findAllById(memberIds);
-
-        // Add the creator to the member list
-        User creator = userRepository.findById(createdBy)
-                .orElseThrow(() -> new IllegalArgumentException("Creator user not found."));
-        members.add(creator);
-
-        // Add all members (including creator) to the group
-        groupDetails.getMembers().addAll(members);
-
-        // Save the group to the database
-        return groupDetailsRepository.save(groupDetails);
+        // Save the group, then write its members (including the creator) straight to the join table
+        GroupDetails saved = groupDetailsRepository.save(new GroupDetails(groupName, createdBy));
+        Set<Long> members = new LinkedHashSet<>();
+        members.add(createdBy);
+        if (memberIds != null) {
+            members.addAll(memberIds);
+        }
+        groupMembershipService.addMembers(saved.getId(), members);
+        searchIndexService.indexGroup(saved.getId(), saved.getGroupName());
+        TransactionHooks.afterCommit(() -> groupDescriptorCache.put(GroupDescriptorCache.describe(saved)));
+        return saved;
     }
 
-    public void saveMessage(GroupDTO groupDTO) {
-        GroupDetails groupDetails = groupDetailsRepository.findById(groupDTO.getGroupId())
-                .orElseThrow(() -> new IllegalArgumentException("Group not found"));
-        Group message = new Group(
-                groupDTO.getContent(),
-                groupDetails,
-                groupDTO.getSenderId()
-
-
-        );
-        message.setTimestamp(LocalDateTime.now());
-        groupRepository.save(message);
+    /**
+     * Persists a group message through the batched writer. The group and its members come from
+     * memory, so the only round trip on this path is the writer's shared insert.
+     * @return the saved message with its ID
+     */
+    public Group saveMessage(GroupDTO groupDTO) {
+        Long groupId = groupDTO.getGroupId();
+        if (groupDescriptorCache.get(groupId).isEmpty()) {
+            throw new IllegalArgumentException("Group not found");
+        }
+        if (!groupMembershipService.isMember(groupDTO.getSenderId(), groupId)) {
+            throw new IllegalArgumentException("Not a member of group " + groupId);
+        }
+        Group message = new Group(groupDTO.getContent(), null, groupDTO.getSenderId());
+        message.setSenderName(groupDTO.getSenderName());
+        segmentLog.ifPresent(bodies -> {
+            message.setBodyRef(bodies.append(groupDTO.getContent()));
+            message.setContent("");
+        });
+        groupMessageWriter.write(groupId, message, groupDTO.getContent());
+        messageSearchIndex.indexGroup(message.getId(), message.getSenderId(), groupId,
+                groupDTO.getContent(), message.getTimestamp());
+        return message;
     }
 }
@@ -0,0 +1,314 @@
+package com.chatapp.auth.chatapp.service;
+
+import com.chatapp.auth.chatapp.components.EncodedMessage;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Delivers group broadcasts off the caller's thread. The payload is encoded once, the
+ * group's subscribed sessions are kept split across a fixed number of shards by session ID, and
+ * shards are handed straight to the client outbound channel by a dedicated worker pool,
+ * bypassing the simple broker's walk over every subscription. The caller only queues one
+ * delivery per shard; checking membership and building frames happens on the workers, so a
+ * broadcast costs the caller the same whatever the group's size. A shard task delivers one chunk
+ * of at most shard-size sessions and then goes to the back of the pool's queue, and each group
+ * has at most one task per shard queued, so a huge group gets a few threads' worth of turns
+ * while small groups keep theirs. A session always hashes to the same shard, whatever the
+ * group's size, and a shard is drained in order, so its messages from one group stay in order.
+ * Group typing events take the same path to /topic/group/{id}/typing, so they also reach only members.
+ */
+@Service
+public class GroupFanoutService {
+
+    private static final Logger log = LoggerFactory.getLogger(GroupFanoutService.class);
+    private static final Pattern GROUP_TOPIC = Pattern.compile("/topic/group/(\\d+)(/typing)?");
+    private static final String TYPING_SUFFIX = "/typing";
+    private static final String[] SIZE_BUCKETS = {"1-10", "11-100", "101-1000", "1000+"};
+
+    private record Subscription(String sessionId, String subscriptionId, Long userId) {
+    }
+
+    private static final class Broadcast {
+        private final String destination;
+        private final byte[] payload;
+        private final Set<Long> members;
+        private final Timer timer;
+        private final long startedAt = System.nanoTime();
+        private final AtomicInteger pendingShards;
+
+        private Broadcast(String destination, byte[] payload, Set<Long> members, Timer timer, int shards) {
+            this.destination = destination;
+            this.payload = payload;
+            this.members = members;
+            this.timer = timer;
+            this.pendingShards = new AtomicInteger(shards);
+        }
+    }
+
+    // One broadcast's share of one shard; only ever touched by the task draining that shard
+    private static final class Delivery {
+        private final Broadcast broadcast;
+        private final Map<String, Subscription> sessions;
+        private List<Subscription> recipients;
+        private int next;
+
+        private Delivery(Broadcast broadcast, Map<String, Subscription> sessions) {
+            this.broadcast = broadcast;
+            this.sessions = sessions;
+        }
+    }
+
+    private static final class Shard {
+        private final Queue<Delivery> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+    }
+
+    private final MessageChannel clientOutboundChannel;
+    private final MessageEncoder messageEncoder;
+    private final GroupMembershipService groupMembershipService;
+    // destination -> subscriptions to /topic/group/{groupId} or its typing topic, by the shard their
+    // session hashes to, keyed "sessionId:subscriptionId"
+    private final Map<String, List<Map<String, Subscription>>> subscribers = new ConcurrentHashMap<>();
+    // sessionId -> destinations it subscribed to, for cleanup on unsubscribe and disconnect
+    private final Map<String, Set<String>> sessionTopics = new ConcurrentHashMap<>();
+    private final Map<Long, Shard[]> shards = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor workers;
+    private final Timer[] fanoutTimers = new Timer[SIZE_BUCKETS.length];
+
+    @Value("${groups.fanout-shard-size:256}")
+    private int shardSize;
+
+    @Value("${groups.fanout-max-shards:8}")
+    private int maxShards;
+
+    public GroupFanoutService(@Qualifier("clientOutboundChannel") MessageChannel clientOutboundChannel,
+                              MessageEncoder messageEncoder, GroupMembershipService groupMembershipService,
+                              MeterRegistry meterRegistry, @Value("${groups.fanout-threads:4}") int threads) {
+        this.clientOutboundChannel = clientOutboundChannel;
+        this.messageEncoder = messageEncoder;
+        this.groupMembershipService = groupMembershipService;
+        AtomicInteger threadNumber = new AtomicInteger();
+        // Bounded by groups x shards, since each shard has at most one task queued
+        this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "group-fanout-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        for (int i = 0; i < SIZE_BUCKETS.length; i++) {
+            fanoutTimers[i] = Timer.builder("hermes.groups.fanout")
+                    .tag("members", SIZE_BUCKETS[i])
+                    .description("Time from a group broadcast to its last chunk being handed to the sessions")
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry);
+        }
+        Gauge.builder("hermes.groups.fanout.queued", workers, pool -> pool.getQueue().size())
+                .description("Group fan-out shard tasks waiting for a worker")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Sends the payload to every member subscribed to /topic/group/{groupId}. Returns once the
+     * shards are queued; delivery happens on the fan-out workers.
+     */
+    public void broadcast(Long groupId, Object payload) {
+        broadcast(groupId, messageEncoder.encode(payload));
+    }
+
+    /**
+     * Same as {@link #broadcast(Long, Object)} for a payload the caller has already encoded,
+     * e.g. to reuse it for other destinations.
+     */
+    public void broadcast(Long groupId, EncodedMessage payload) {
+        Set<Long> members = groupMembershipService.getMemberIds(groupId);
+        fanOut(groupId, "/topic/group/" + groupId, payload, members, timerFor(members.size()));
+    }
+
+    /**
+     * Sends a typing event to every member subscribed to /topic/group/{groupId}/typing.
+     * Not timed, so short-lived typing traffic does not skew the broadcast latency figures.
+     */
+    public void broadcastTyping(Long groupId, Object event) {
+        fanOut(groupId, "/topic/group/" + groupId + TYPING_SUFFIX, messageEncoder.encode(event),
+                groupMembershipService.getMemberIds(groupId), null);
+    }
+
+    private void fanOut(Long groupId, String destination, EncodedMessage payload, Set<Long> members, Timer timer) {
+        List<Map<String, Subscription>> topic = subscribers.get(destination);
+        if (topic == null) {
+            return;
+        }
+        int active = 0;
+        for (Map<String, Subscription> sessions : topic) {
+            if (!sessions.isEmpty()) {
+                active++;
+            }
+        }
+        if (active == 0) {
+            return;
+        }
+
+        // Small groups simply leave most shards idle; the shard of a session never changes
+        Broadcast broadcast = new Broadcast(destination, payload.getPayload(), members, timer, active);
+        Shard[] lane = shards.computeIfAbsent(groupId, id -> newShards());
+        for (int i = 0; i < topic.size(); i++) {
+            if (!topic.get(i).isEmpty()) {
+                lane[i].queue.add(new Delivery(broadcast, topic.get(i)));
+                schedule(lane[i]);
+            }
+        }
+    }
+
+    public void subscribe(String sessionId, String subscriptionId, String destination, Long userId) {
+        if (sessionId == null || subscriptionId == null || destination == null || userId == null) {
+            return;
+        }
+        if (!GROUP_TOPIC.matcher(destination).matches()) {
+            return;
+        }
+        sessionTopics.computeIfAbsent(sessionId, id -> ConcurrentHashMap.newKeySet()).add(destination);
+        subscribers.computeIfAbsent(destination, id -> newTopic())
+                .get(Math.floorMod(sessionId.hashCode(), maxShards))
+                .put(sessionId + ":" + subscriptionId, new Subscription(sessionId, subscriptionId, userId));
+    }
+
+    public void unsubscribe(String sessionId, String subscriptionId) {
+        Set<String> topics = sessionTopics.get(sessionId);
+        if (topics == null || subscriptionId == null) {
+            return;
+        }
+        for (String destination : topics) {
+            List<Map<String, Subscription>> topic = subscribers.get(destination);
+            if (topic != null) {
+                topic.get(Math.floorMod(sessionId.hashCode(), topic.size())).remove(sessionId + ":" + subscriptionId);
+            }
+        }
+    }
+
+    public void disconnect(String sessionId) {
+        Set<String> topics = sessionTopics.remove(sessionId);
+        if (topics == null) {
+            return;
+        }
+        String prefix = sessionId + ":";
+        for (String destination : topics) {
+            List<Map<String, Subscription>> topic = subscribers.get(destination);
+            if (topic != null) {
+                topic.get(Math.floorMod(sessionId.hashCode(), topic.size())).keySet().removeIf(key -> key.startsWith(prefix));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    private List<Map<String, Subscription>> newTopic() {
+        List<Map<String, Subscription>> topic = new ArrayList<>(maxShards);
+        for (int i = 0; i < maxShards; i++) {
+            topic.add(new ConcurrentHashMap<>());
+        }
+        return topic;
+    }
+
+    private Shard[] newShards() {
+        Shard[] lane = new Shard[maxShards];
+        for (int i = 0; i < lane.length; i++) {
+            lane[i] = new Shard();
+        }
+        return lane;
+    }
+
+    private void schedule(Shard shard) {
+        if (shard.scheduled.compareAndSet(false, true)) {
+            workers.execute(() -> drain(shard));
+        }
+    }
+
+    // One chunk per turn, then back of the queue
+    private void drain(Shard shard) {
+        Delivery delivery = shard.queue.peek();
+        if (delivery != null && deliverChunk(delivery)) {
+            shard.queue.poll();
+        }
+        shard.scheduled.set(false);
+        if (!shard.queue.isEmpty()) {
+            schedule(shard);
+        }
+    }
+
+    // Returns true once the delivery has reached every recipient in its shard
+    private boolean deliverChunk(Delivery delivery) {
+        Broadcast broadcast = delivery.broadcast;
+        if (delivery.recipients == null) {
+            delivery.recipients = new ArrayList<>();
+            for (Subscription subscription : delivery.sessions.values()) {
+                // Subscribing is not membership; former members and strangers get nothing
+                if (broadcast.members.contains(subscription.userId())) {
+                    delivery.recipients.add(subscription);
+                }
+            }
+        }
+        int from = delivery.next;
+        int to = Math.min(delivery.recipients.size(), from + shardSize);
+        for (Subscription subscription : delivery.recipients.subList(from, to)) {
+            SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            headers.setSessionId(subscription.sessionId());
+            headers.setSubscriptionId(subscription.subscriptionId());
+            headers.setDestination(broadcast.destination);
+            headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+            try {
+                clientOutboundChannel.send(MessageBuilder.createMessage(broadcast.payload, headers.getMessageHeaders()));
+            } catch (Exception e) {
+                // One closed session must not cost the rest of the shard its delivery
+                log.debug("Fan-out to session {} failed: {}", subscription.sessionId(), e.getMessage());
+            }
+        }
+        messageEncoder.countGroupDeliveries(to - from);
+        delivery.next = to;
+        if (to < delivery.recipients.size()) {
+            return false;
+        }
+        if (broadcast.pendingShards.decrementAndGet() == 0 && broadcast.timer != null) {
+            broadcast.timer.record(System.nanoTime() - broadcast.startedAt, TimeUnit.NANOSECONDS);
+        }
+        return true;
+    }
+
+    private Timer timerFor(int members) {
+        if (members <= 10) {
+            return fanoutTimers[0];
+        }
+        if (members <= 100) {
+            return fanoutTimers[1];
+        }
+        return members <= 1000 ? fanoutTimers[2] : fanoutTimers[3];
+    }
+}
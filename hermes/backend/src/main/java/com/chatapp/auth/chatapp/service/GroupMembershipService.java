@@ -0,0 +1,198 @@
+package com.chatapp.auth.chatapp.service;
+
+import com.chatapp.auth.chatapp.DTO.GroupMembersPageDTO;
+import com.chatapp.auth.chatapp.DTO.UserDataDto;
+import com.chatapp.auth.model.GroupDetails;
+import com.chatapp.auth.repository.GroupDetailsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Group membership, written and read through the Group_Members join table in batches so a
+ * membership change never loads the member set or its users. Keeps a cache of member IDs for
+ * recently active groups, and keeps the inbox and the cache in step with every change. Every
+ * change also stamps the group's members_changed_at, which other nodes poll to drop their copy.
+ */
+@Service
+public class GroupMembershipService {
+
+    private static final Logger log = LoggerFactory.getLogger(GroupMembershipService.class);
+    // Rows per statement; keeps IN lists well below packet and placeholder limits
+    private static final int BATCH_SIZE = 1000;
+    // Re-read a little history on each sync so changes committed out of order are not missed
+    private static final long SYNC_OVERLAP_SECONDS = 30;
+
+    private final GroupDetailsRepository groupDetailsRepository;
+    private final InboxService inboxService;
+    private final GroupDescriptorCache groupDescriptorCache;
+
+    @Value("${groups.member-cache-size:1000}")
+    private int memberCacheSize;
+
+    // Bumped on every committed change, so a load that raced with one is not cached
+    private long generation;
+    // Changes already applied, so the sync overlap does not evict the same group over and over
+    private final Map<Long, Instant> seenChanges = new ConcurrentHashMap<>();
+    private volatile Instant lastSync = Instant.now();
+    private final Map<Long, Set<Long>> memberCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Set<Long>> eldest) {
+            return size() > memberCacheSize;
+        }
+    };
+
+    public GroupMembershipService(GroupDetailsRepository groupDetailsRepository, InboxService inboxService,
+                                  GroupDescriptorCache groupDescriptorCache) {
+        this.groupDetailsRepository = groupDetailsRepository;
+        this.inboxService = inboxService;
+        this.groupDescriptorCache = groupDescriptorCache;
+    }
+
+    /**
+     * Adds users to a group. Unknown user IDs and existing members are skipped.
+     * @return the users that were actually added
+     */
+    @Transactional
+    public Set<Long> addMembers(Long groupId, Collection<Long> userIds) {
+        Set<Long> added = new LinkedHashSet<>();
+        for (List<Long> batch : batches(userIds)) {
+            List<Long> newMembers = groupDetailsRepository.findNewMemberIds(groupId, batch);
+            if (!newMembers.isEmpty()) {
+                groupDetailsRepository.insertMembers(groupId, newMembers);
+                added.addAll(newMembers);
+            }
+        }
+        if (!added.isEmpty()) {
+            LocalDateTime joinedAt = LocalDateTime.now();
+            for (List<Long> batch : batches(added)) {
+                inboxService.addGroupMembers(groupId, batch, joinedAt);
+            }
+            groupDetailsRepository.markMembersChanged(groupId, Instant.now());
+            TransactionHooks.afterCommit(() -> invalidate(groupId));
+            log.info("Added {} members to group {}", added.size(), groupId);
+        }
+        return added;
+    }
+
+    /**
+     * Removes users from a group. IDs that are not members are skipped.
+     * @return the users that were actually removed
+     */
+    @Transactional
+    public Set<Long> removeMembers(Long groupId, Collection<Long> userIds) {
+        Set<Long> removed = new LinkedHashSet<>();
+        for (List<Long> batch : batches(userIds)) {
+            List<Long> members = groupDetailsRepository.findMemberIdsIn(groupId, batch);
+            if (!members.isEmpty()) {
+                groupDetailsRepository.deleteMembers(groupId, members);
+                inboxService.removeGroupMembers(groupId, members);
+                removed.addAll(members);
+            }
+        }
+        if (!removed.isEmpty()) {
+            groupDetailsRepository.markMembersChanged(groupId, Instant.now());
+            TransactionHooks.afterCommit(() -> invalidate(groupId));
+            log.info("Removed {} members from group {}", removed.size(), groupId);
+        }
+        return removed;
+    }
+
+    /**
+     * One page of a group's members in user ID order.
+     * @param cursor the {@code nextCursor} of the previous page, or null for the first page
+     */
+    public GroupMembersPageDTO getMembers(Long groupId, Long cursor, int limit) {
+        // Fetch one extra row to learn whether there is another page
+        List<UserDataDto> items = groupDetailsRepository.findMembersAfter(groupId, cursor != null ? cursor : 0L,
+                PageRequest.of(0, limit + 1));
+        Long nextCursor = null;
+        if (items.size() > limit) {
+            items = items.subList(0, limit);
+            nextCursor = items.get(limit - 1).getId();
+        }
+        return new GroupMembersPageDTO(items, nextCursor);
+    }
+
+    public boolean isMember(Long userId, Long groupId) {
+        return getMemberIds(groupId).contains(userId);
+    }
+
+    /**
+     * IDs of every member of the group, from the cache when the group was used recently.
+     * The returned set is read-only and is not updated by later changes.
+     */
+    public Set<Long> getMemberIds(Long groupId) {
+        long loadedAt;
+        synchronized (memberCache) {
+            Set<Long> cached = memberCache.get(groupId);
+            if (cached != null) {
+                return cached;
+            }
+            loadedAt = generation;
+        }
+        Set<Long> members = Collections.unmodifiableSet(new LinkedHashSet<>(groupDetailsRepository.findMemberIds(groupId)));
+        synchronized (memberCache) {
+            if (generation == loadedAt) {
+                memberCache.put(groupId, members);
+            }
+        }
+        return members;
+    }
+
+    public boolean isCreator(Long userId, Long groupId) {
+        return groupDescriptorCache.get(groupId)
+                .map(group -> userId.equals(group.createdBy()))
+                .orElse(false);
+    }
+
+    /**
+     * Drops cached members of groups changed on any node since the last sync.
+     */
+    @Scheduled(fixedDelayString = "${groups.member-sync-interval:2000}")
+    public void syncChanges() {
+        Instant startedAt = Instant.now();
+        Instant since = lastSync.minusSeconds(SYNC_OVERLAP_SECONDS);
+        for (GroupDetails group : groupDetailsRepository.findByMembersChangedAtAfter(since)) {
+            Instant changedAt = group.getMembersChangedAt();
+            Instant seen = seenChanges.put(group.getId(), changedAt);
+            if (seen == null || changedAt.isAfter(seen)) {
+                invalidate(group.getId());
+            }
+        }
+        seenChanges.values().removeIf(changedAt -> changedAt.isBefore(since));
+        lastSync = startedAt;
+    }
+
+    private void invalidate(Long groupId) {
+        synchronized (memberCache) {
+            generation++;
+            memberCache.remove(groupId);
+        }
+    }
+
+    private static List<List<Long>> batches(Collection<Long> ids) {
+        List<Long> unique = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<List<Long>> batches = new ArrayList<>();
+        for (int from = 0; from < unique.size(); from += BATCH_SIZE) {
+            batches.add(unique.subList(from, Math.min(unique.size(), from + BATCH_SIZE)));
+        }
+        return batches;
+    }
+}
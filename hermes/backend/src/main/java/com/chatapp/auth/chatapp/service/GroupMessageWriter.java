@@ -0,0 +1,214 @@
+package com.chatapp.auth.chatapp.service;
+
+import com.chatapp.auth.model.Group;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Persists group messages in batches. Each group has its own queue drained by at most one task at a
+ * time, so a group's messages get IDs in the order they arrived. Messages that arrive while a batch
+ * is being written go out together in the next one: an idle group pays no extra latency, and a
+ * busy one commits many messages per round trip. A group's task writes one batch and then yields
+ * its thread, so a chatty group can't starve the others.
+ */
+@Service
+public class GroupMessageWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(GroupMessageWriter.class);
+
+    private static final String INSERT_MESSAGE =
+            "INSERT INTO group_chats (content, body_ref, timestamp, sender_name, sender_id, group_id, file_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    // content is what the inbox preview shows, even when the row only holds a segment log reference.
+    // claimed is set by whoever decides the entry's fate first: a drain taking it, or its caller giving up.
+    private record Pending(Group message, String content, CompletableFuture<Group> written, AtomicBoolean claimed) {
+    }
+
+    /**
+     * The write outlived the caller's timeout after it had already been handed to the database,
+     * so the message may or may not be committed.
+     */
+    public static class OutcomeUnknownException extends RuntimeException {
+        public OutcomeUnknownException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class Lane {
+        private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final InboxService inboxService;
+    private final Map<Long, Lane> lanes = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor writers;
+    private final Timer batchTimer;
+    private final DistributionSummary batchSizes;
+
+    @Value("${groups.writer-batch-size:100}")
+    private int batchSize;
+
+    @Value("${groups.writer-timeout:10000}")
+    private long timeout;
+
+    public GroupMessageWriter(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, InboxService inboxService,
+                              MeterRegistry meterRegistry, @Value("${groups.writer-threads:4}") int threads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.inboxService = inboxService;
+        AtomicInteger threadNumber = new AtomicInteger();
+        // At most one queued task per group, so the queue is bounded by the number of groups
+        this.writers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "group-writer-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.batchTimer = Timer.builder("hermes.groups.write.batch")
+                .description("Time to persist one batch of group messages, inbox updates included")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("hermes.groups.write.batch.size")
+                .description("Group messages persisted per batch")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Persists the message and updates the members' inboxes, waiting until both are committed.
+     * Must not be called inside a transaction; the write commits on its own. A write that times
+     * out while still queued is withdrawn, so a failure here means the message was not saved.
+     * @param content the message text for the inbox preview
+     * @return the message with its ID assigned
+     * @throws OutcomeUnknownException if it timed out while its batch was already being written
+     */
+    public Group write(Long groupId, Group message, String content) {
+        Pending pending = new Pending(message, content, new CompletableFuture<>(), new AtomicBoolean());
+        Lane lane = lanes.computeIfAbsent(groupId, id -> new Lane());
+        lane.queue.add(pending);
+        schedule(groupId, lane);
+        try {
+            return pending.written().get(timeout, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            if (pending.claimed().compareAndSet(false, true)) {
+                lane.queue.remove(pending);
+                throw new RuntimeException("Timed out waiting to write message to group " + groupId + "; it was not saved");
+            }
+            throw new OutcomeUnknownException("Timed out writing message to group " + groupId + "; it may still be saved");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted writing message to group " + groupId);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        writers.shutdown();
+        writers.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    private void schedule(Long groupId, Lane lane) {
+        if (lane.scheduled.compareAndSet(false, true)) {
+            writers.execute(() -> drain(groupId, lane));
+        }
+    }
+
+    private void drain(Long groupId, Lane lane) {
+        List<Pending> batch = new ArrayList<>();
+        Pending next;
+        while (batch.size() < batchSize && (next = lane.queue.poll()) != null) {
+            // Skips entries whose callers already gave up
+            if (next.claimed().compareAndSet(false, true)) {
+                batch.add(next);
+            }
+        }
+        if (!batch.isEmpty()) {
+            persist(groupId, batch);
+        }
+        lane.scheduled.set(false);
+        // Picks up whatever arrived meanwhile, including a message queued just before the flag cleared
+        if (!lane.queue.isEmpty()) {
+            schedule(groupId, lane);
+        }
+    }
+
+    private void persist(Long groupId, List<Pending> batch) {
+        try {
+            batchTimer.record(() -> transactionTemplate.executeWithoutResult(status -> {
+                KeyHolder keys = new GeneratedKeyHolder();
+                jdbcTemplate.batchUpdate(
+                        connection -> connection.prepareStatement(INSERT_MESSAGE, Statement.RETURN_GENERATED_KEYS),
+                        new BatchPreparedStatementSetter() {
+                            @Override
+                            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                                Group message = batch.get(i).message();
+                                statement.setString(1, message.getContent());
+                                statement.setObject(2, message.getBodyRef());
+                                statement.setObject(3, message.getTimestamp());
+                                statement.setString(4, message.getSenderName());
+                                statement.setLong(5, message.getSenderId());
+                                statement.setLong(6, groupId);
+                                statement.setObject(7, message.getUploadedFile() != null ? message.getUploadedFile().getFiles_id() : null);
+                            }
+
+                            @Override
+                            public int getBatchSize() {
+                                return batch.size();
+                            }
+                        }, keys);
+
+                List<Map<String, Object>> ids = keys.getKeyList();
+                List<InboxService.GroupMessage> inboxUpdates = new ArrayList<>(batch.size());
+                for (int i = 0; i < batch.size(); i++) {
+                    Group message = batch.get(i).message();
+                    message.setId(((Number) ids.get(i).values().iterator().next()).longValue());
+                    inboxUpdates.add(new InboxService.GroupMessage(message.getId(), message.getSenderId(),
+                            batch.get(i).content(), message.getTimestamp()));
+                }
+                // One inbox update per batch rather than per message, however large the group
+                inboxService.recordGroupMessages(groupId, inboxUpdates);
+            }));
+            batchSizes.record(batch.size());
+            for (Pending pending : batch) {
+                pending.written().complete(pending.message());
+            }
+        } catch (Exception e) {
+            log.error("Failed to write {} messages to group {}: {}", batch.size(), groupId, e.getMessage());
+            for (Pending pending : batch) {
+                pending.written().completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.chatapp.auth.chatapp.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.w3c.dom.Node;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Re-encodes uploaded photos before they are stored: EXIF orientation is applied, every
+ * other piece of metadata (GPS, camera, thumbnails) is dropped, the longest edge is capped
+ * and the result is written as a quality-tuned JPEG. Runs on a small bounded pool; if the
+ * pool is saturated or anything fails, the upload is stored unchanged.
+ */
+@Service
+public class ImageNormalizer {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageNormalizer.class);
+
+    // Formats worth re-encoding; GIFs may be animated and are left alone
+    private static final Set<String> SUPPORTED_TYPES = Set.of("image/jpeg", "image/jpg", "image/png", "image/bmp");
+    private static final long MAX_SOURCE_PIXELS = 64L * 1024 * 1024;
+    private static final int EXIF_ORIENTATION_TAG = 0x0112;
+
+    @FunctionalInterface
+    public interface Source {
+        InputStream open() throws IOException;
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final DistributionSummary bytesSaved;
+    private final Counter skippedBusy;
+
+    @Value("${media.normalize.enabled:true}")
+    private boolean enabled;
+
+    @Value("${media.max-edge:2048}")
+    private int maxEdge;
+
+    @Value("${media.jpeg-quality:0.82}")
+    private float jpegQuality;
+
+    @Value("${media.normalize.min-bytes:131072}")
+    private long minBytes;
+
+    @Value("${media.normalize.timeout:30000}")
+    private long timeoutMillis;
+
+    public ImageNormalizer(@Value("${media.normalize.workers:2}") int workers,
+                           @Value("${media.normalize.queue:16}") int queueCapacity,
+                           MeterRegistry meterRegistry) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "image-normalizer-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.bytesSaved = DistributionSummary.builder("hermes.media.normalize.saved")
+                .baseUnit("bytes").description("Bytes saved per normalised image")
+                .register(meterRegistry);
+        this.skippedBusy = Counter.builder("hermes.media.normalize.skipped")
+                .tag("reason", "busy").description("Images stored unchanged because the pool was full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Normalises an image upload, waiting for a pool worker.
+     * @return the re-encoded JPEG, or empty if the upload should be stored as it is
+     */
+    public Optional<byte[]> normalize(Source source, String contentType, long size) {
+        if (!enabled || size < minBytes || contentType == null || !SUPPORTED_TYPES.contains(contentType.toLowerCase(Locale.ROOT))) {
+            return Optional.empty();
+        }
+
+        Future<Optional<byte[]>> result;
+        try {
+            result = executor.submit(() -> transcode(source, size));
+        } catch (RejectedExecutionException e) {
+            skippedBusy.increment();
+            log.warn("Image normalizer busy, storing upload unchanged");
+            return Optional.empty();
+        }
+
+        try {
+            Optional<byte[]> normalized = result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            normalized.ifPresent(bytes -> bytesSaved.record(size - bytes.length));
+            return normalized;
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch (ExecutionException | TimeoutException e) {
+            result.cancel(true);
+            log.warn("Image normalization failed, storing upload unchanged: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Optional<byte[]> transcode(Source source, long originalSize) throws IOException {
+        BufferedImage image;
+        int orientation;
+        boolean oversized;
+        try (InputStream in = source.open(); ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return Optional.empty();
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, false);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > MAX_SOURCE_PIXELS) {
+                    return Optional.empty();
+                }
+                oversized = Math.max(width, height) > maxEdge;
+                orientation = exifOrientation(reader.getImageMetadata(0));
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                // Subsample only down to the target size so the final resize still smooths
+                int step = Math.max(1, Math.max(width, height) / maxEdge);
+                param.setSourceSubsampling(step, step, 0, 0);
+                image = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        // Transparency would be lost in JPEG; such images are kept as they are
+        if (image.getColorModel().hasAlpha() && !isOpaque(image)) {
+            return Optional.empty();
+        }
+
+        BufferedImage normalized = orient(resize(image), orientation);
+        byte[] jpeg = encode(normalized);
+
+        // Only worth it if the file got smaller or had to be shrunk anyway
+        if (jpeg.length >= originalSize && !oversized) {
+            return Optional.empty();
+        }
+        return Optional.of(jpeg);
+    }
+
+    private BufferedImage resize(BufferedImage source) {
+        double ratio = Math.min(1.0, (double) maxEdge / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    // Bakes the EXIF orientation into the pixels, since the tag itself is not carried over
+    private BufferedImage orient(BufferedImage image, int orientation) {
+        if (orientation <= 1 || orientation > 8) {
+            return image;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean swap = orientation >= 5;
+        AffineTransform transform = new AffineTransform();
+        switch (orientation) {
+            case 2 -> { transform.translate(width, 0); transform.scale(-1, 1); }
+            case 3 -> { transform.translate(width, height); transform.rotate(Math.PI); }
+            case 4 -> { transform.translate(0, height); transform.scale(1, -1); }
+            case 5 -> { transform.rotate(Math.PI / 2); transform.scale(1, -1); }
+            case 6 -> { transform.translate(height, 0); transform.rotate(Math.PI / 2); }
+            case 7 -> { transform.translate(height, width); transform.scale(-1, 1); transform.rotate(3 * Math.PI / 2); }
+            case 8 -> { transform.translate(0, width); transform.rotate(3 * Math.PI / 2); }
+            default -> { }
+        }
+        BufferedImage target = new BufferedImage(swap ? height : width, swap ? width : height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.drawImage(image, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    // Written without source metadata, so EXIF, GPS and embedded thumbnails are dropped
+    private byte[] encode(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private boolean isOpaque(BufferedImage image) {
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                if ((image.getRGB(x, y) >>> 24) != 0xff) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // Reads tag 0x0112 from the APP1 Exif segment of a JPEG; 1 (upright) when absent
+    private int exifOrientation(IIOMetadata metadata) {
+        if (metadata == null || !"javax_imageio_jpeg_image_1.0".equals(metadata.getNativeMetadataFormatName())) {
+            return 1;
+        }
+        Node root = metadata.getAsTree("javax_imageio_jpeg_image_1.0");
+        for (Node sequence = root.getFirstChild(); sequence != null; sequence = sequence.getNextSibling()) {
+            if (!"markerSequence".equals(sequence.getNodeName())) {
+                continue;
+            }
+            for (Node marker = sequence.getFirstChild(); marker != null; marker = marker.getNextSibling()) {
+                if ("unknown".equals(marker.getNodeName())
+                        && "225".equals(marker.getAttributes().getNamedItem("MarkerTag").getNodeValue())
+                        && marker instanceof IIOMetadataNode node
+                        && node.getUserObject() instanceof byte[] data) {
+                    int orientation = parseOrientation(data);
+                    if (orientation > 0) {
+                        return orientation;
+                    }
+                }
+            }
+        }
+        return 1;
+    }
+
+    private int parseOrientation(byte[] app1) {
+        // "Exif\0\0" followed by a TIFF header
+        if (app1.length < 14 || app1[0] != 'E' || app1[1] != 'x' || app1[2] != 'i' || app1[3] != 'f') {
+            return -1;
+        }
+        ByteBuffer tiff = ByteBuffer.wrap(app1, 6, app1.length - 6).slice();
+        tiff.order(tiff.get(0) == 'I' ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+        int ifd = tiff.getInt(4);
+        if (ifd < 8 || ifd + 2 > tiff.limit()) {
+            return -1;
+        }
+        int entries = tiff.getShort(ifd) & 0xffff;
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > tiff.limit()) {
+                break;
+            }
+            if ((tiff.getShort(entry) & 0xffff) == EXIF_ORIENTATION_TAG) {
+                return tiff.getShort(entry + 8) & 0xffff;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,159 @@
+package com.chatapp.auth.chatapp.service;
+
+import com.chatapp.auth.chatapp.DTO.InboxItemDTO;
+import com.chatapp.auth.chatapp.DTO.InboxPageDTO;
+import com.chatapp.auth.model.InboxEntry;
+import com.chatapp.auth.model.InboxEntry.ConversationType;
+import com.chatapp.auth.repository.InboxEntryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains the inbox read model: one row per (user, conversation) with the latest message
+ * preview and an unread count. Updated inside the message write paths, so the conversation
+ * list is always a single keyset query.
+ */
+@Service
+public class InboxService {
+
+    private static final Logger log = LoggerFactory.getLogger(InboxService.class);
+
+    // InboxEntryRepository.upsertMessage for a group, as a JDBC batch that the driver sends as one statement
+    private static final String UPSERT_GROUP_ENTRY =
+            "INSERT INTO inbox_entries (user_id, conversation_type, peer_id, last_message_id, last_sender_id, " +
+            "preview, last_message_at, last_read_message_id, unread_count) " +
+            "VALUES (?, 'GROUP', ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "last_sender_id = IF(VALUES(last_message_id) > last_message_id, VALUES(last_sender_id), last_sender_id), " +
+            "preview = IF(VALUES(last_message_id) > last_message_id, VALUES(preview), preview), " +
+            "last_message_at = IF(VALUES(last_message_id) > last_message_id, VALUES(last_message_at), last_message_at), " +
+            "unread_count = unread_count + VALUES(unread_count), " +
+            "last_read_message_id = GREATEST(last_read_message_id, VALUES(last_read_message_id)), " +
+            "last_message_id = GREATEST(last_message_id, VALUES(last_message_id))";
+
+    private final InboxEntryRepository inboxEntryRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    // One persisted group message, as the inbox needs it
+    public record GroupMessage(long messageId, Long senderId, String content, LocalDateTime at) {
+    }
+
+    public InboxService(InboxEntryRepository inboxEntryRepository, JdbcTemplate jdbcTemplate) {
+        this.inboxEntryRepository = inboxEntryRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void recordDirectMessage(Long messageId, Long senderId, Long receiverId, String content, LocalDateTime at) {
+        String preview = preview(content);
+        inboxEntryRepository.upsertMessage(senderId, ConversationType.DIRECT.name(), receiverId, messageId, senderId, preview, at, messageId, 0);
+        if (!senderId.equals(receiverId)) {
+            inboxEntryRepository.upsertMessage(receiverId, ConversationType.DIRECT.name(), senderId, messageId, senderId, preview, at, 0, 1);
+        }
+    }
+
+    /**
+     * Records a batch of one group's messages, in ID order, in two round trips however many members
+     * and senders it has: one update for the members who sent none of them, and one batch upserting
+     * each sender's entry, counting only the others' messages as unread. Members already have an
+     * entry from when they joined.
+     */
+    public void recordGroupMessages(Long groupId, List<GroupMessage> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        GroupMessage last = messages.get(messages.size() - 1);
+        String preview = preview(last.content());
+        // Sender -> their last message in the batch and how many they sent
+        Map<Long, long[]> senders = new LinkedHashMap<>();
+        for (GroupMessage message : messages) {
+            long[] sent = senders.computeIfAbsent(message.senderId(), id -> new long[2]);
+            sent[0] = message.messageId();
+            sent[1]++;
+        }
+        inboxEntryRepository.recordGroupMessages(groupId, last.messageId(), last.senderId(), preview, last.at(),
+                messages.size(), senders.keySet());
+        List<Map.Entry<Long, long[]>> entries = List.copyOf(senders.entrySet());
+        jdbcTemplate.batchUpdate(UPSERT_GROUP_ENTRY, entries, entries.size(), (statement, sender) -> {
+            statement.setLong(1, sender.getKey());
+            statement.setLong(2, groupId);
+            statement.setLong(3, last.messageId());
+            statement.setLong(4, last.senderId());
+            statement.setString(5, preview);
+            statement.setObject(6, last.at());
+            statement.setLong(7, sender.getValue()[0]);
+            statement.setInt(8, messages.size() - (int) sender.getValue()[1]);
+        });
+    }
+
+    // The group shows up in a new member's inbox as of the time they joined
+    public void addGroupMembers(Long groupId, Collection<Long> memberIds, LocalDateTime joinedAt) {
+        inboxEntryRepository.insertGroupEntries(groupId, memberIds, joinedAt);
+    }
+
+    public void removeGroupMembers(Long groupId, Collection<Long> memberIds) {
+        inboxEntryRepository.deleteGroupEntries(groupId, memberIds, ConversationType.GROUP);
+    }
+
+    /**
+     * One page of the user's conversations, most recently active first.
+     * @param cursor the {@code nextCursor} of the previous page, or null for the first page
+     */
+    public InboxPageDTO getInbox(Long userId, String cursor, int limit) {
+        LocalDateTime at = null;
+        Long id = null;
+        if (cursor != null) {
+            int separator = cursor.lastIndexOf('_');
+            try {
+                at = LocalDateTime.parse(cursor.substring(0, Math.max(separator, 0)));
+                id = Long.parseLong(cursor.substring(separator + 1));
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+
+        // Fetch one extra row to learn whether there is another page
+        List<InboxItemDTO> items = inboxEntryRepository.findPage(userId, at, id, ConversationType.DIRECT,
+                ConversationType.GROUP, PageRequest.of(0, limit + 1));
+        String nextCursor = null;
+        if (items.size() > limit) {
+            items = items.subList(0, limit);
+            InboxItemDTO last = items.get(limit - 1);
+            nextCursor = last.getLastMessageAt() + "_" + last.getEntryId();
+        }
+        return new InboxPageDTO(items, nextCursor);
+    }
+
+    // Existing conversations are copied in once, the first time the read model is empty
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (inboxEntryRepository.count() > 0) {
+            return;
+        }
+        try {
+            int groups = inboxEntryRepository.backfillGroups();
+            int direct = inboxEntryRepository.backfillDirect();
+            log.info("📥 Backfilled inbox with {} group and {} direct conversation entries", groups, direct);
+        } catch (Exception e) {
+            log.warn("Inbox backfill failed: {}", e.getMessage());
+        }
+    }
+
+    private static String preview(String content) {
+        if (content == null) {
+            return null;
+        }
+        return content.length() > InboxEntry.PREVIEW_LENGTH ? content.substring(0, InboxEntry.PREVIEW_LENGTH) : content;
+    }
+}
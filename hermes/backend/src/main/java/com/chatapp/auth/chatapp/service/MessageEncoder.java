@@ -0,0 +1,84 @@
+package com.chatapp.auth.chatapp.service;
+
+import com.chatapp.auth.chatapp.components.EncodedMessage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializes outgoing chat payloads once and sends the resulting bytes without another pass
+ * through the message converters. Encoding cost and size are measured here and deliveries are
+ * counted where the bytes go out, so encoded bytes and encode time per delivered message can be
+ * read straight off the metrics.
+ */
+@Service
+public class MessageEncoder {
+
+    private final ObjectMapper objectMapper;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final Timer encodeTimer;
+    private final DistributionSummary encodedBytes;
+    private final Counter directDeliveries;
+    private final Counter groupDeliveries;
+
+    public MessageEncoder(ObjectMapper objectMapper, SimpMessagingTemplate messagingTemplate, MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.messagingTemplate = messagingTemplate;
+        this.encodeTimer = Timer.builder("hermes.messages.encode")
+                .description("Time to serialize one outgoing message payload")
+                .register(meterRegistry);
+        this.encodedBytes = DistributionSummary.builder("hermes.messages.encoded.bytes")
+                .baseUnit("bytes")
+                .description("Size of each serialized outgoing message payload")
+                .register(meterRegistry);
+        this.directDeliveries = deliveryCounter(meterRegistry, "direct");
+        this.groupDeliveries = deliveryCounter(meterRegistry, "group");
+    }
+
+    public EncodedMessage encode(Object payload) {
+        long startedAt = System.nanoTime();
+        try {
+            EncodedMessage encoded = new EncodedMessage(objectMapper.writeValueAsBytes(payload));
+            encodedBytes.record(encoded.size());
+            return encoded;
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Could not serialize outgoing message", e);
+        } finally {
+            encodeTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Publishes pre-encoded bytes to a broker destination. The simple broker passes the same
+     * byte array to every subscribed session.
+     */
+    public void send(String destination, EncodedMessage message) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create();
+        headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        headers.setLeaveMutable(true);
+        messagingTemplate.send(destination, MessageBuilder.createMessage(message.getPayload(), headers.getMessageHeaders()));
+        directDeliveries.increment();
+    }
+
+    // Called by the group fan-out once per session the bytes were handed to
+    void countGroupDeliveries(int sessions) {
+        groupDeliveries.increment(sessions);
+    }
+
+    private static Counter deliveryCounter(MeterRegistry meterRegistry, String route) {
+        return Counter.builder("hermes.messages.deliveries")
+                .tag("route", route)
+                .description("Sends of an encoded payload; divide encoded bytes and encode time by this")
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,500 @@
+package com.chatapp.auth.chatapp.service;
+
+import com.chatapp.auth.chatapp.DTO.MessageSearchHitDTO;
+import com.chatapp.auth.chatapp.DTO.MessageSearchPageDTO;
+import com.chatapp.auth.repository.GroupDetailsRepository;
+import com.chatapp.auth.repository.GroupRepository;
+import com.chatapp.auth.repository.MessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+
+/**
+ * Full-text search over message history, held in memory as one inverted index per conversation.
+ * A query can only ever reach conversations the caller is part of: direct conversations are keyed
+ * by both participants, groups are checked for membership, and the per-user list of direct
+ * conversations drives searches across all of them. Results come newest first with a message-ID
+ * cursor and never touch MySQL.
+ * <p>
+ * New messages are indexed on a background thread after their transaction commits. On startup the
+ * whole index is rebuilt from the database by loading ID ranges in parallel; messages written
+ * meanwhile go into both the old and the new index, so nothing is lost at the swap. After that a
+ * periodic catch-up reads both message tables past the highest ID seen, which picks up messages
+ * written on other nodes and any this node dropped before indexing them.
+ * <p>
+ * Memory is bounded by search.max-messages. Once the index holds that many, each new message
+ * pushes the oldest one of its own conversation out, so recent history stays searchable. A
+ * conversation's first message is always kept, so the bound can be exceeded by at most one
+ * message per conversation.
+ */
+@Service
+public class MessageSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageSearchIndex.class);
+    private static final String FILE_MARKER = "---FILE---";
+    private static final int MIN_TERM_LENGTH = 2;
+    private static final int MAX_TERM_LENGTH = 40;
+    private static final int PAGE_SIZE = 1000;
+    // Re-read a few rows behind the cursor so IDs committed out of order are not missed
+    private static final long CATCH_UP_OVERLAP_ROWS = 1000;
+
+    private final MessageRepository messageRepository;
+    private final GroupRepository groupRepository;
+    private final GroupDetailsRepository groupDetailsRepository;
+    private final Optional<MessageSegmentLog> segmentLog;
+    private final ThreadPoolExecutor indexer;
+    private final long maxMessages;
+    private final Counter evicted;
+    // Held by a rebuild or a catch-up, so the two never load at the same time
+    private final ReentrantLock loading = new ReentrantLock();
+
+    private volatile Index current;
+    // Non-null while a rebuild is running
+    private volatile Index building;
+    // Highest message IDs loaded from each table; -1 until the first rebuild has finished
+    private long directCursor = -1;
+    private long groupCursor = -1;
+
+    @Value("${search.rebuild-threads:4}")
+    private int rebuildThreads;
+
+    @Value("${search.rebuild-range:50000}")
+    private long rebuildRange;
+
+    public MessageSearchIndex(MessageRepository messageRepository, GroupRepository groupRepository,
+                              GroupDetailsRepository groupDetailsRepository, Optional<MessageSegmentLog> segmentLog,
+                              MeterRegistry meterRegistry, @Value("${search.index-queue:10000}") int queueCapacity,
+                              @Value("${search.max-messages:5000000}") long maxMessages) {
+        this.messageRepository = messageRepository;
+        this.groupRepository = groupRepository;
+        this.groupDetailsRepository = groupDetailsRepository;
+        this.segmentLog = segmentLog;
+        this.maxMessages = maxMessages;
+        this.evicted = Counter.builder("hermes.search.messages.evicted")
+                .description("Old messages dropped from the search index to stay within search.max-messages")
+                .register(meterRegistry);
+        this.current = new Index(maxMessages, evicted);
+        Gauge.builder("hermes.search.messages", this, index -> index.current.size.get())
+                .description("Messages held in the in-memory search index")
+                .register(meterRegistry);
+        // One writer keeps per-conversation postings mostly in ID order; when it falls behind,
+        // the sender indexes its own message rather than the update being dropped
+        this.indexer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "message-indexer");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public void indexDirect(Long messageId, Long senderId, Long receiverId, String content, LocalDateTime timestamp) {
+        submit(new MessageSearchHitDTO(messageId, senderId, receiverId, false, content, null, timestamp));
+    }
+
+    public void indexGroup(Long messageId, Long senderId, Long groupId, String content, LocalDateTime timestamp) {
+        submit(new MessageSearchHitDTO(messageId, senderId, groupId, true, content, null, timestamp));
+    }
+
+    /**
+     * One page of matches for every term in the query, newest first.
+     * @param peerId the other user or the group to search in, or null for all of the user's direct conversations
+     * @param cursor the {@code nextCursor} of the previous page, or null for the first page
+     */
+    public MessageSearchPageDTO search(Long userId, Long peerId, boolean isGroup, String query, Long cursor, int limit) {
+        List<String> terms = terms(query);
+        if (terms.isEmpty()) {
+            return new MessageSearchPageDTO(List.of(), null);
+        }
+        long before = cursor != null ? cursor : Long.MAX_VALUE;
+        Index index = current;
+
+        List<MessageSearchHitDTO> hits;
+        if (peerId == null) {
+            // Direct message IDs share one sequence, so merging conversations by ID keeps the order
+            hits = new ArrayList<>();
+            for (String key : index.userConversations.getOrDefault(userId, Set.of())) {
+                Partition partition = index.conversations.get(key);
+                if (partition != null) {
+                    hits.addAll(partition.search(terms, before, limit + 1));
+                }
+            }
+            hits.sort(Comparator.comparing(MessageSearchHitDTO::getMessageId).reversed());
+            if (hits.size() > limit + 1) {
+                hits = hits.subList(0, limit + 1);
+            }
+        } else {
+            if (isGroup && !groupDetailsRepository.existsByIdAndMembersId(peerId, userId)) {
+                throw new IllegalArgumentException("Not a member of group " + peerId);
+            }
+            Partition partition = index.conversations.get(isGroup ? groupKey(peerId) : directKey(userId, peerId));
+            hits = partition != null ? partition.search(terms, before, limit + 1) : List.of();
+        }
+
+        Long nextCursor = null;
+        if (hits.size() > limit) {
+            hits = hits.subList(0, limit);
+            nextCursor = hits.get(limit - 1).getMessageId();
+        }
+        return new MessageSearchPageDTO(List.copyOf(hits), nextCursor);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        Thread thread = new Thread(this::rebuild, "message-index-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Rebuilds the whole index from the database and swaps it in once complete.
+     */
+    public void rebuild() {
+        loading.lock();
+        try {
+            rebuildLocked();
+        } finally {
+            loading.unlock();
+        }
+    }
+
+    /**
+     * Indexes messages added to the database since the last rebuild or catch-up. Skipped while a
+     * rebuild is running or has not completed yet.
+     */
+    @Scheduled(fixedDelayString = "${search.catch-up-interval:5000}")
+    public void catchUp() {
+        if (!loading.tryLock()) {
+            return;
+        }
+        try {
+            if (directCursor < 0 || groupCursor < 0) {
+                return;
+            }
+            Index index = current;
+            directCursor = loadAfter(index, directCursor,
+                    (after, upTo) -> messageRepository.findSearchEntries(after, upTo, PageRequest.of(0, PAGE_SIZE)));
+            groupCursor = loadAfter(index, groupCursor,
+                    (after, upTo) -> groupRepository.findSearchEntries(after, upTo, PageRequest.of(0, PAGE_SIZE)));
+        } catch (Exception e) {
+            log.warn("Message search index catch-up failed: {}", e.getMessage());
+        } finally {
+            loading.unlock();
+        }
+    }
+
+    private void rebuildLocked() {
+        long startedAt = System.nanoTime();
+        Index index = new Index(maxMessages, evicted);
+        building = index;
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, rebuildThreads), runnable -> {
+            Thread thread = new Thread(runnable, "message-index-rebuild-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Integer>> ranges = new ArrayList<>();
+            long directMax = messageRepository.findMaxId();
+            long groupMax = groupRepository.findMaxId();
+            submitRanges(pool, ranges, index, directMax,
+                    (after, upTo) -> messageRepository.findSearchEntries(after, upTo, PageRequest.of(0, PAGE_SIZE)));
+            submitRanges(pool, ranges, index, groupMax,
+                    (after, upTo) -> groupRepository.findSearchEntries(after, upTo, PageRequest.of(0, PAGE_SIZE)));
+            int total = 0;
+            for (Future<Integer> range : ranges) {
+                total += range.get();
+            }
+            current = index;
+            directCursor = directMax;
+            groupCursor = groupMax;
+            log.info("🔎 Message search index rebuilt: {} messages in {} conversations in {} ms",
+                    total, index.conversations.size(), (System.nanoTime() - startedAt) / 1_000_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Message search index rebuild failed: {}", e.getMessage(), e);
+        } finally {
+            building = null;
+            pool.shutdownNow();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        indexer.shutdownNow();
+    }
+
+    private void submitRanges(ExecutorService pool, List<Future<Integer>> ranges, Index index, long maxId,
+                              BiFunction<Long, Long, List<MessageSearchHitDTO>> query) {
+        for (long start = 0; start < maxId; start += rebuildRange) {
+            long rangeStart = start;
+            ranges.add(pool.submit(() -> loadRange(index, rangeStart, rangeStart + rebuildRange, query)));
+        }
+    }
+
+    // Keyset pages through the IDs in (start, end]
+    private int loadRange(Index index, long start, long end, BiFunction<Long, Long, List<MessageSearchHitDTO>> query) {
+        int loaded = 0;
+        long after = start;
+        while (true) {
+            List<MessageSearchHitDTO> rows = query.apply(after, end);
+            for (MessageSearchHitDTO row : rows) {
+                addLoaded(index, row);
+                loaded++;
+                after = row.getMessageId();
+            }
+            if (rows.size() < PAGE_SIZE) {
+                break;
+            }
+        }
+        return loaded;
+    }
+
+    // Loads every row past the cursor, overlap included, and returns the new cursor
+    private long loadAfter(Index index, long cursor, BiFunction<Long, Long, List<MessageSearchHitDTO>> query) {
+        long after = Math.max(0, cursor - CATCH_UP_OVERLAP_ROWS);
+        List<MessageSearchHitDTO> rows;
+        do {
+            rows = query.apply(after, Long.MAX_VALUE);
+            for (MessageSearchHitDTO row : rows) {
+                addLoaded(index, row);
+                after = row.getMessageId();
+            }
+        } while (rows.size() == PAGE_SIZE);
+        return Math.max(cursor, after);
+    }
+
+    private void addLoaded(Index index, MessageSearchHitDTO row) {
+        if (row.getBodyRef() != null && segmentLog.isPresent()) {
+            row.setContent(segmentLog.get().read(row.getBodyRef()));
+        }
+        row.setBodyRef(null);
+        if (row.getContent() != null && !row.getContent().equals(FILE_MARKER)) {
+            index.add(row);
+        }
+    }
+
+    private void submit(MessageSearchHitDTO message) {
+        if (message.getContent() == null || message.getContent().equals(FILE_MARKER)) {
+            return;
+        }
+        TransactionHooks.afterCommit(() -> indexer.execute(() -> {
+            // Read building first: once it is null, current is already the rebuilt index
+            Index next = building;
+            if (next != null) {
+                next.add(message);
+            }
+            current.add(message);
+        }));
+    }
+
+    static List<String> terms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        String folded = text == null ? "" : text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                if (i - start >= MIN_TERM_LENGTH && i - start <= MAX_TERM_LENGTH) {
+                    terms.add(folded.substring(start, i));
+                }
+                start = -1;
+            }
+        }
+        return new ArrayList<>(terms);
+    }
+
+    private static String directKey(Long userId, Long peerId) {
+        return "u:" + Math.min(userId, peerId) + ":" + Math.max(userId, peerId);
+    }
+
+    private static String groupKey(Long groupId) {
+        return "g:" + groupId;
+    }
+
+    static final class Index {
+        private final Map<String, Partition> conversations = new ConcurrentHashMap<>();
+        private final Map<Long, Set<String>> userConversations = new ConcurrentHashMap<>();
+        private final AtomicLong size = new AtomicLong();
+        private final long maxMessages;
+        private final Counter evicted;
+
+        Index(long maxMessages, Counter evicted) {
+            this.maxMessages = maxMessages;
+            this.evicted = evicted;
+        }
+
+        long size() {
+            return size.get();
+        }
+
+        void add(MessageSearchHitDTO message) {
+            String key;
+            if (message.isGroup()) {
+                key = groupKey(message.getPeerId());
+            } else {
+                key = directKey(message.getSenderId(), message.getPeerId());
+                userConversations.computeIfAbsent(message.getSenderId(), id -> ConcurrentHashMap.newKeySet()).add(key);
+                userConversations.computeIfAbsent(message.getPeerId(), id -> ConcurrentHashMap.newKeySet()).add(key);
+            }
+            Partition partition = conversations.computeIfAbsent(key, k -> new Partition());
+            if (!partition.add(message)) {
+                return;
+            }
+            if (size.incrementAndGet() > maxMessages && partition.evictOldest()) {
+                size.decrementAndGet();
+                evicted.increment();
+            }
+        }
+    }
+
+    // Inverted index of one conversation: term -> message IDs, plus the messages themselves in ID order
+    static final class Partition {
+        private final TreeMap<Long, MessageSearchHitDTO> messages = new TreeMap<>();
+        private final Map<String, Postings> postings = new HashMap<>();
+
+        // False if the message was already indexed
+        synchronized boolean add(MessageSearchHitDTO message) {
+            if (messages.putIfAbsent(message.getMessageId(), message) != null) {
+                return false;
+            }
+            for (String term : terms(message.getContent())) {
+                postings.computeIfAbsent(term, t -> new Postings()).add(message.getMessageId());
+            }
+            return true;
+        }
+
+        /**
+         * Drops the message with the lowest ID, unless it is the only one.
+         * @return true if a message was dropped
+         */
+        synchronized boolean evictOldest() {
+            if (messages.size() < 2) {
+                return false;
+            }
+            MessageSearchHitDTO oldest = messages.pollFirstEntry().getValue();
+            for (String term : terms(oldest.getContent())) {
+                Postings list = postings.get(term);
+                // The partition's lowest ID is also the lowest in each of its terms' lists
+                list.sort();
+                list.removeFirst();
+                if (list.size == 0) {
+                    postings.remove(term);
+                }
+            }
+            return true;
+        }
+
+        synchronized int size() {
+            return messages.size();
+        }
+
+        synchronized List<MessageSearchHitDTO> search(List<String> terms, long before, int limit) {
+            Postings[] lists = new Postings[terms.size()];
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = postings.get(terms.get(i));
+                if (lists[i] == null) {
+                    return List.of();
+                }
+                lists[i].sort();
+            }
+            Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+
+            List<MessageSearchHitDTO> hits = new ArrayList<>();
+            Postings smallest = lists[0];
+            int from = smallest.indexBefore(before);
+            for (int i = from; i >= smallest.start && hits.size() < limit; i--) {
+                long id = smallest.ids[i];
+                if (containsAll(lists, id)) {
+                    hits.add(messages.get(id));
+                }
+            }
+            return hits;
+        }
+
+        private static boolean containsAll(Postings[] lists, long id) {
+            for (int i = 1; i < lists.length; i++) {
+                if (Arrays.binarySearch(lists[i].ids, lists[i].start, lists[i].start + lists[i].size, id) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    // Message IDs in ids[start, start + size), appended as indexed; sorted lazily because
+    // parallel rebuilds arrive out of order. Evicting advances start instead of shifting the array.
+    private static final class Postings {
+        private long[] ids = new long[4];
+        private int start;
+        private int size;
+        private boolean sorted = true;
+
+        void add(long id) {
+            if (start + size == ids.length) {
+                // Reclaim the evicted head before growing
+                long[] grown = start > ids.length / 2 ? ids : new long[ids.length * 2];
+                System.arraycopy(ids, start, grown, 0, size);
+                ids = grown;
+                start = 0;
+            }
+            if (size > 0 && ids[start + size - 1] > id) {
+                sorted = false;
+            }
+            ids[start + size++] = id;
+        }
+
+        void sort() {
+            if (!sorted) {
+                Arrays.sort(ids, start, start + size);
+                sorted = true;
+            }
+        }
+
+        void removeFirst() {
+            start++;
+            size--;
+        }
+
+        // Position of the last ID below the bound, or start - 1
+        int indexBefore(long bound) {
+            int position = Arrays.binarySearch(ids, start, start + size, bound);
+            return (position >= 0 ? position : -position - 1) - 1;
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package com.chatapp.auth.chatapp.service;
+
+import com.chatapp.auth.repository.GroupRepository;
+import com.chatapp.auth.repository.MessageRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only store for message bodies, enabled with {@code messages.body-store=segment}.
+ * Bodies go into preallocated, memory-mapped segment files as {@code [length + 1][crc32][utf-8 bytes]}
+ * records; storing length + 1 keeps an empty body distinct from the zero fill that ends the log.
+ * The database row keeps only a {@code body_ref} locator (segment id in the high 32 bits,
+ * record offset in the low 32). History reads resolve their locators in order, which within one
+ * conversation is a forward scan through the mapping.
+ * <p>
+ * On startup the newest segment is scanned and a torn or corrupt tail seals it, so appends
+ * continue in a fresh segment. Sealed segments whose live bytes fall below the compaction
+ * threshold have their live records copied forward and are deleted one run later.
+ * <p>
+ * Single node only: segment ids are local to this node's directory while {@code body_ref} columns
+ * are shared, so a second node would hand out colliding locators and its compaction would rewrite
+ * rows it cannot read. The log holds a MySQL named lock for its lifetime and startup fails if
+ * another node already holds it.
+ */
+@Service
+@ConditionalOnProperty(name = "messages.body-store", havingValue = "segment")
+public class MessageSegmentLog {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageSegmentLog.class);
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d{10})\\.log");
+    private static final int HEADER_SIZE = 8;
+    private static final String OWNER_LOCK = "hermes.message-segments";
+
+    private final MessageRepository messageRepository;
+    private final GroupRepository groupRepository;
+    private final Path directory;
+    private final int segmentSize;
+    // Holds OWNER_LOCK; MySQL drops the lock if this session ends
+    private final Connection ownerConnection;
+    private final NavigableMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+    // Compacted segments, kept readable for one more run for readers holding old locators
+    private final Map<Integer, Instant> retired = new HashMap<>();
+    private volatile Segment active;
+
+    @Value("${messages.segment-fsync:true}")
+    private boolean fsync;
+
+    @Value("${messages.compaction-threshold:0.5}")
+    private double compactionThreshold;
+
+    // Sealed segments younger than this may still get rows pointing at their last records
+    @Value("${messages.compaction-grace-period:600000}")
+    private long compactionGracePeriod;
+
+    public MessageSegmentLog(MessageRepository messageRepository, GroupRepository groupRepository, DataSource dataSource,
+                             @Value("${messages.segment-dir:data/messages}") String directory,
+                             @Value("${messages.segment-size:67108864}") int segmentSize,
+                             MeterRegistry meterRegistry) throws IOException {
+        this.messageRepository = messageRepository;
+        this.groupRepository = groupRepository;
+        this.directory = Paths.get(directory).toAbsolutePath().normalize();
+        this.segmentSize = segmentSize;
+        this.ownerConnection = claimStore(dataSource);
+        Files.createDirectories(this.directory);
+        recover();
+
+        Gauge.builder("hermes.messages.segments", segments, Map::size)
+                .description("Message body segment files open on this node")
+                .register(meterRegistry);
+        Gauge.builder("hermes.messages.segment.bytes", this, MessageSegmentLog::usedBytes)
+                .baseUnit("bytes").description("Bytes written to message body segments")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Appends a body and returns its locator for the row's {@code body_ref} column.
+     * The record is flushed to disk before returning unless {@code messages.segment-fsync=false}.
+     */
+    public synchronized long append(String body) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        int recordSize = HEADER_SIZE + bytes.length;
+        if (recordSize > segmentSize) {
+            throw new IllegalArgumentException("Message body of " + bytes.length + " bytes does not fit in a segment");
+        }
+        try {
+            if (active.position + recordSize > active.buffer.capacity()) {
+                roll();
+            }
+            int offset = active.position;
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            MappedByteBuffer buffer = active.buffer;
+            buffer.put(offset + HEADER_SIZE, bytes);
+            buffer.putInt(offset + 4, (int) crc.getValue());
+            // Length last: a zero header marks the end of the log
+            buffer.putInt(offset, bytes.length + 1);
+            if (fsync) {
+                buffer.force(offset, recordSize);
+            }
+            active.position = offset + recordSize;
+            return ref(active.id, offset);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to append message body", e);
+        }
+    }
+
+    public String read(long ref) {
+        Segment segment = segments.get(segmentOf(ref));
+        if (segment == null) {
+            throw new IllegalStateException("Message body segment " + segmentOf(ref) + " is gone");
+        }
+        int offset = offsetOf(ref);
+        int length = lengthAt(segment.buffer, offset);
+        byte[] bytes = new byte[length];
+        segment.buffer.get(offset + HEADER_SIZE, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Resolves many locators at once, visiting them in file order.
+     */
+    public Map<Long, String> readAll(Collection<Long> refs) {
+        Map<Long, String> bodies = new HashMap<>();
+        refs.stream().sorted().distinct().forEach(ref -> bodies.put(ref, read(ref)));
+        return bodies;
+    }
+
+    @Scheduled(fixedDelayString = "${messages.compaction-interval:3600000}",
+            initialDelayString = "${messages.compaction-initial-delay:300000}")
+    public void compact() {
+        if (!ownsStore()) {
+            log.warn("⚠️ Lost the message segment lock; skipping compaction");
+            return;
+        }
+        Instant now = Instant.now();
+        retired.entrySet().removeIf(entry -> {
+            if (Duration.between(entry.getValue(), now).toMillis() < compactionGracePeriod) {
+                return false;
+            }
+            delete(entry.getKey());
+            return true;
+        });
+
+        for (Segment segment : List.copyOf(segments.values())) {
+            if (segment == active || retired.containsKey(segment.id) || !quiet(segment, now)) {
+                continue;
+            }
+            try {
+                compact(segment, now);
+            } catch (Exception e) {
+                log.warn("Failed to compact message segment {}: {}", segment.id, e.getMessage(), e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        for (Segment segment : segments.values()) {
+            segment.buffer.force();
+            closeQuietly(segment);
+        }
+        try (PreparedStatement statement = ownerConnection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            statement.setString(1, OWNER_LOCK);
+            statement.execute();
+        } catch (SQLException e) {
+            log.debug("Failed to release the message segment lock: {}", e.getMessage());
+        }
+        try {
+            ownerConnection.close();
+        } catch (SQLException e) {
+            log.debug("Failed to close the message segment lock connection: {}", e.getMessage());
+        }
+    }
+
+    private static Connection claimStore(DataSource dataSource) {
+        try {
+            Connection connection = dataSource.getConnection();
+            try (PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(?, 0)")) {
+                statement.setString(1, OWNER_LOCK);
+                try (ResultSet result = statement.executeQuery()) {
+                    if (result.next() && result.getInt(1) == 1) {
+                        return connection;
+                    }
+                }
+            } catch (SQLException e) {
+                connection.close();
+                throw e;
+            }
+            connection.close();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to lock the message segment store", e);
+        }
+        throw new IllegalStateException("messages.body-store=segment supports a single node, "
+                + "and another node already holds the message segment store");
+    }
+
+    // Compaction rewrites shared rows, so it only runs while this node still holds the lock
+    private boolean ownsStore() {
+        try (PreparedStatement statement = ownerConnection.prepareStatement("SELECT IS_USED_LOCK(?) = CONNECTION_ID()")) {
+            statement.setString(1, OWNER_LOCK);
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() && result.getInt(1) == 1;
+            }
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void compact(Segment segment, Instant now) {
+        long from = ref(segment.id, 0);
+        long to = ref(segment.id + 1, 0);
+        List<Long> directRefs = messageRepository.findBodyRefs(from, to);
+        List<Long> groupRefs = groupRepository.findBodyRefs(from, to);
+
+        long live = 0;
+        for (Long ref : directRefs) {
+            live += HEADER_SIZE + lengthAt(segment.buffer, offsetOf(ref));
+        }
+        for (Long ref : groupRefs) {
+            live += HEADER_SIZE + lengthAt(segment.buffer, offsetOf(ref));
+        }
+        if (segment.position > 0 && live >= segment.position * compactionThreshold) {
+            return;
+        }
+
+        for (Long ref : directRefs) {
+            messageRepository.moveBody(ref, append(read(ref)));
+        }
+        for (Long ref : groupRefs) {
+            groupRepository.moveBody(ref, append(read(ref)));
+        }
+        retired.put(segment.id, now);
+        log.info("🧹 Compacted message segment {}: moved {} of {} bytes", segment.id, live, segment.position);
+    }
+
+    // A sealed segment is compacted only once nothing can still be inserting rows that point into it
+    private boolean quiet(Segment segment, Instant now) {
+        try {
+            Instant modified = Files.getLastModifiedTime(segment.path).toInstant();
+            return Duration.between(modified, now).toMillis() >= compactionGracePeriod;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(path -> SEGMENT_NAME.matcher(path.getFileName().toString()).matches())
+                    .sorted()
+                    .toList();
+        }
+        for (Path file : files) {
+            Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+            matcher.matches();
+            Segment segment = open(Integer.parseInt(matcher.group(1)), file);
+            segments.put(segment.id, segment);
+        }
+
+        if (segments.isEmpty()) {
+            active = create(0);
+            return;
+        }
+        Segment last = segments.lastEntry().getValue();
+        boolean clean = scan(last);
+        for (Segment segment : segments.headMap(last.id).values()) {
+            scan(segment);
+        }
+        if (clean) {
+            active = last;
+        } else {
+            log.warn("⚠️ Message segment {} has a torn tail at offset {}; sealing it", last.id, last.position);
+            active = create(last.id + 1);
+        }
+        log.info("Recovered {} message segments, appending to segment {} at offset {}",
+                segments.size(), active.id, active.position);
+    }
+
+    // Walks records from the start; returns false if it stopped on a corrupt or torn record
+    private boolean scan(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        int position = 0;
+        while (position + HEADER_SIZE <= buffer.capacity()) {
+            int header = buffer.getInt(position);
+            if (header == 0) {
+                break;
+            }
+            int length = header - 1;
+            if (length < 0 || position + HEADER_SIZE + length > buffer.capacity()) {
+                segment.position = position;
+                return false;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(position + HEADER_SIZE, bytes);
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                segment.position = position;
+                return false;
+            }
+            position += HEADER_SIZE + length;
+        }
+        segment.position = position;
+        return true;
+    }
+
+    private void roll() throws IOException {
+        active.buffer.force();
+        active = create(active.id + 1);
+        log.info("Rolled message log over to segment {}", active.id);
+    }
+
+    private Segment create(int id) throws IOException {
+        Path path = directory.resolve(String.format("segment-%010d.log", id));
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.setLength(segmentSize);
+        }
+        Segment segment = open(id, path);
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private Segment open(int id, Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(id, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+    }
+
+    private void delete(int id) {
+        Segment segment = segments.remove(id);
+        if (segment == null) {
+            return;
+        }
+        closeQuietly(segment);
+        try {
+            Files.deleteIfExists(segment.path);
+            log.info("Deleted compacted message segment {}", id);
+        } catch (IOException e) {
+            log.warn("Failed to delete message segment {}: {}", id, e.getMessage());
+        }
+    }
+
+    private double usedBytes() {
+        return segments.values().stream().mapToLong(segment -> segment.position).sum();
+    }
+
+    private static void closeQuietly(Segment segment) {
+        try {
+            segment.channel.close();
+        } catch (IOException e) {
+            log.debug("Failed to close message segment {}: {}", segment.id, e.getMessage());
+        }
+    }
+
+    private static int lengthAt(MappedByteBuffer buffer, int offset) {
+        return buffer.getInt(offset) - 1;
+    }
+
+    private static long ref(int segment, int offset) {
+        return ((long) segment << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    private static int segmentOf(long ref) {
+        return (int) (ref >>> 32);
+    }
+
+    private static int offsetOf(long ref) {
+        return (int) ref;
+    }
+
+    private static final class Segment {
+        private final int id;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        // Next free offset; written under the log's lock, read without it
+        private volatile int position;
+
+        private Segment(int id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+}
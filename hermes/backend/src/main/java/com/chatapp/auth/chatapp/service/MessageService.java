@@ -1,22 +1,31 @@
 package com.chatapp.auth.chatapp.service;
 
+import com.chatapp.auth.chatapp.DTO.MediaItemDTO;
+import com.chatapp.auth.chatapp.DTO.MediaPageDTO;
 import com.chatapp.auth.chatapp.DTO.MessageDTO;
 import com.chatapp.auth.model.UploadedFile;
 import com.chatapp.auth.model.Group;
-import com.chatapp.auth.model.GroupDetails;
 import com.chatapp.auth.model.Message;
 import com.chatapp.auth.repository.FilesRepository;
 import com.chatapp.auth.repository.GroupDetailsRepository;
 import com.chatapp.auth.repository.GroupRepository;
 import com.chatapp.auth.repository.MessageRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 
 @Service
 public class MessageService {
@@ -28,14 +37,41 @@ public class MessageService {
     @Autowired
     private final FilesRepository filesRepository;
     private final GroupDetailsRepository groupDetailsRepository;
-
-
-    public MessageService(MessageRepository messageRepository, GroupRepository groupRepository, FilesRepository filesRepository,GroupDetailsRepository groupDetailsRepository) {
+    // Present only with messages.body-store=segment
+    private final Optional<MessageSegmentLog> segmentLog;
+    private final MessageSearchIndex messageSearchIndex;
+    private final InboxService inboxService;
+    private final GroupDescriptorCache groupDescriptorCache;
+    private final GroupMessageWriter groupMessageWriter;
+    private final GroupMembershipService groupMembershipService;
+    private final Timer writeTimer;
+    private final Timer historyTimer;
+
+
+    public MessageService(MessageRepository messageRepository, GroupRepository groupRepository, FilesRepository filesRepository,GroupDetailsRepository groupDetailsRepository,
+                          Optional<MessageSegmentLog> segmentLog, MessageSearchIndex messageSearchIndex,
+                          InboxService inboxService, GroupDescriptorCache groupDescriptorCache,
+                          GroupMessageWriter groupMessageWriter, GroupMembershipService groupMembershipService,
+                          MeterRegistry meterRegistry) {
         this.messageRepository = messageRepository;
         this.groupRepository = groupRepository;
         this.filesRepository = filesRepository;
         this.groupDetailsRepository = groupDetailsRepository;
-
+        this.segmentLog = segmentLog;
+        this.messageSearchIndex = messageSearchIndex;
+        this.inboxService = inboxService;
+        this.groupDescriptorCache = groupDescriptorCache;
+        this.groupMessageWriter = groupMessageWriter;
+        this.groupMembershipService = groupMembershipService;
+
+        // Tagged by body store so the JPA and segment-log paths can be compared under real load
+        String store = segmentLog.isPresent() ? "segment" : "jpa";
+        this.writeTimer = Timer.builder("hermes.messages.write")
+                .tag("store", store).description("Time to persist one direct message")
+                .register(meterRegistry);
+        this.historyTimer = Timer.builder("hermes.messages.history")
+                .tag("store", store).description("Time to load a conversation's history")
+                .register(meterRegistry);
     }
 
     @Transactional
@@ -51,14 +87,27 @@ public class MessageService {
 
             // Create a new Message and set necessary fields
             Message message = new Message();
-            message.setContent(messageDTO.getContent());
             message.setTimestamp(LocalDateTime.now());
             message.setSenderId(messageDTO.getSenderId());
             message.setReceiverId(messageDTO.getReceiverId());
 
 
             // Save message to the repository
-            savedMessage = messageRepository.save(message);
+            Timer.Sample sample = Timer.start();
+            if (segmentLog.isPresent()) {
+                message.setBodyRef(segmentLog.get().append(messageDTO.getContent()));
+                message.setContent("");
+                savedMessage = messageRepository.save(message);
+                savedMessage.setContent(messageDTO.getContent());
+            } else {
+                message.setContent(messageDTO.getContent());
+                savedMessage = messageRepository.save(message);
+            }
+            sample.stop(writeTimer);
+            inboxService.recordDirectMessage(savedMessage.getId(), savedMessage.getSenderId(), savedMessage.getReceiverId(),
+                    messageDTO.getContent(), savedMessage.getTimestamp());
+            messageSearchIndex.indexDirect(savedMessage.getId(), savedMessage.getSenderId(), savedMessage.getReceiverId(),
+                    messageDTO.getContent(), savedMessage.getTimestamp());
 
             // Log the successful message save
             logger.info("Message successfully saved with ID: {}", savedMessage.getId());
@@ -82,21 +131,58 @@ public class MessageService {
     }
 
     public List<Message> getMessagesBetweenUsers(Long senderId, Long receiverId, LocalDateTime startDateTime, LocalDateTime endDateTime) {
-        return messageRepository.findMessagesBetweenUsers(senderId, receiverId, startDateTime, endDateTime);
+        return historyTimer.record(() -> {
+            List<Message> messages = messageRepository.findMessagesBetweenUsers(senderId, receiverId, startDateTime, endDateTime);
+            segmentLog.ifPresent(bodies -> {
+                Map<Long, String> loaded = bodies.readAll(messages.stream().map(Message::getBodyRef).filter(Objects::nonNull).toList());
+                messages.stream().filter(m -> m.getBodyRef() != null).forEach(m -> m.setContent(loaded.get(m.getBodyRef())));
+            });
+            return messages;
+        });
     }
 
     public List<Group> getGroupsMessages(Long groupId, LocalDateTime startDateTime, LocalDateTime endDateTime){
-        return groupRepository.findByGroupIdIdAndTimestampBetween(groupId, startDateTime, endDateTime);
-    }
-    public List<UploadedFile> getFilesForGroup(Long groupId, LocalDateTime startDateTime, LocalDateTime endDateTime) {
-        // Query the database to fetch files linked to messages in the group
-        return filesRepository.findByMessagesReceiverIdAndMessagesTimestampBetween(groupId, startDateTime, endDateTime);
+        return historyTimer.record(() -> {
+            List<Group> messages = groupRepository.findByGroupIdIdAndTimestampBetween(groupId, startDateTime, endDateTime);
+            segmentLog.ifPresent(bodies -> {
+                Map<Long, String> loaded = bodies.readAll(messages.stream().map(Group::getBodyRef).filter(Objects::nonNull).toList());
+                messages.stream().filter(m -> m.getBodyRef() != null).forEach(m -> m.setContent(loaded.get(m.getBodyRef())));
+            });
+            return messages;
+        });
     }
+    /**
+     * One page of a conversation's attachments, newest first.
+     * @param type a full MIME type ("image/png"), a top-level type ("image"), or null for everything
+     * @param cursor the {@code nextCursor} of the previous page, or null for the first page
+     */
+    public MediaPageDTO getMedia(Long userId, Long peerId, boolean isGroup, String type, Long cursor, int limit) {
+        String typePattern = null;
+        if (type != null && !type.isBlank()) {
+            // Escape LIKE wildcards so the filter only ever matches literally
+            String literal = type.trim().toLowerCase(Locale.ROOT).replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+            typePattern = literal.contains("/") ? literal : literal + "/%";
+        }
+        long before = cursor != null ? cursor : Long.MAX_VALUE;
+        // Fetch one extra row to learn whether there is another page
+        Pageable page = PageRequest.of(0, limit + 1);
+
+        List<MediaItemDTO> items;
+        if (isGroup) {
+            if (!groupDetailsRepository.existsByIdAndMembersId(peerId, userId)) {
+                throw new IllegalArgumentException("Not a member of group " + peerId);
+            }
+            items = filesRepository.findGroupMedia(peerId, before, typePattern, page);
+        } else {
+            items = filesRepository.findDirectMedia(userId, peerId, before, typePattern, page);
+        }
 
-    // Fetch files for direct messages
-    public List<UploadedFile> getFileBetweenUsers(Long senderId, Long receiverId, LocalDateTime startDateTime, LocalDateTime endDateTime) {
-        // Query the database to fetch files linked to messages between users
-        return filesRepository.findByMessagesSenderIdAndMessagesReceiverIdAndMessagesTimestampBetween(senderId, receiverId, startDateTime, endDateTime);
+        Long nextCursor = null;
+        if (items.size() > limit) {
+            items = items.subList(0, limit);
+            nextCursor = items.get(limit - 1).getMessageId();
+        }
+        return new MediaPageDTO(items, nextCursor);
     }
 
     public Message imageDetail(Long userId,Long receiverId,UploadedFile savedUploadedFile){
@@ -106,18 +192,24 @@ public class MessageService {
             message.setReceiverId(receiverId);
             message.setUploadedFile(savedUploadedFile); // Associate the UploadedFile entity with the Message
             messageRepository.save(message);
+            inboxService.recordDirectMessage(message.getId(), userId, receiverId, message.getContent(), message.getTimestamp());
             return message;
     }
 
+    // Goes through the group's writer queue so images keep their place among the group's text messages
     public Group groupImageDetail(Long userId, Long groupId, UploadedFile savedUploadedFile){
-        GroupDetails groupDetails = groupDetailsRepository.findById(groupId)
-                .orElseThrow(() -> new IllegalArgumentException("Group not found"));
+        if (groupDescriptorCache.get(groupId).isEmpty()) {
+            throw new IllegalArgumentException("Group not found");
+        }
+        if (!groupMembershipService.isMember(userId, groupId)) {
+            throw new IllegalArgumentException("Not a member of group " + groupId);
+        }
         Group message = new Group();
         message.setContent("---FILE---");
         message.setSenderId(userId);
         message.setTimestamp(LocalDateTime.now());
-        message.setGroupId(groupDetails);
         message.setUploadedFile(savedUploadedFile);
+        groupMessageWriter.write(groupId, message, message.getContent());
         return message;
     }
 }
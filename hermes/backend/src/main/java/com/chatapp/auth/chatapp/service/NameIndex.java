@@ -0,0 +1,188 @@
+package com.chatapp.auth.chatapp.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Case-insensitive substring index over short names. Prefix lookups walk a sorted map; longer
+ * substrings intersect trigram posting lists and verify the survivors. Results rank prefix
+ * matches first, then by how early the match starts, then shorter names.
+ * Names are only ever added, matching how users and groups are created in this app.
+ */
+class NameIndex {
+
+    // position is where the query starts in the name, 0 for prefix matches
+    record Hit(long id, String name, int position) {
+    }
+
+    /**
+     * The order {@link #search} returns hits in: prefix matches alphabetically, then the rest by
+     * position, then shorter names. Hits from several indexes merged in this order stay ranked.
+     */
+    static final Comparator<Hit> RANK = Comparator.comparingInt(Hit::position)
+            .thenComparingInt(hit -> hit.position() == 0 ? 0 : fold(hit.name()).length())
+            .thenComparing(hit -> fold(hit.name()));
+
+    private static final int GRAM = 3;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Dense document numbers keep the posting lists as plain int arrays
+    private final List<Long> ids = new ArrayList<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<String> folded = new ArrayList<>();
+    private final Map<Long, Integer> documents = new HashMap<>();
+    private final Map<Long, Postings> trigrams = new HashMap<>();
+    // "<folded name>\0<document>" -> document, so equal names keep separate entries
+    private final TreeMap<String, Integer> sorted = new TreeMap<>();
+
+    void add(long id, String name) {
+        if (name == null) {
+            return;
+        }
+        String key = fold(name);
+        lock.writeLock().lock();
+        try {
+            if (documents.containsKey(id)) {
+                return;
+            }
+            int document = ids.size();
+            ids.add(id);
+            names.add(name);
+            folded.add(key);
+            documents.put(id, document);
+            sorted.put(key + '\0' + document, document);
+            for (int i = 0; i + GRAM <= key.length(); i++) {
+                trigrams.computeIfAbsent(gram(key, i), g -> new Postings()).add(document);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return ids.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    List<Hit> search(String query, int limit) {
+        String key = fold(query);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            List<Hit> hits = new ArrayList<>(limit);
+            Set<Integer> prefixMatches = new HashSet<>();
+            for (Map.Entry<String, Integer> entry : sorted.tailMap(key).entrySet()) {
+                if (hits.size() == limit || !entry.getKey().startsWith(key)) {
+                    break;
+                }
+                prefixMatches.add(entry.getValue());
+                hits.add(hit(entry.getValue(), 0));
+            }
+            if (hits.size() < limit && key.length() >= GRAM) {
+                hits.addAll(substringMatches(key, limit - hits.size(), prefixMatches));
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Non-prefix matches, best first; one- and two-character queries only ever match prefixes
+    private List<Hit> substringMatches(String key, int limit, Set<Integer> exclude) {
+        Postings[] lists = new Postings[key.length() - GRAM + 1];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = trigrams.get(gram(key, i));
+            if (lists[i] == null) {
+                return List.of();
+            }
+        }
+        Arrays.sort(lists, Comparator.comparingInt(postings -> postings.size));
+
+        Comparator<int[]> rank = Comparator.<int[]>comparingInt(match -> match[1])
+                .thenComparingInt(match -> folded.get(match[0]).length())
+                .thenComparing(match -> folded.get(match[0]));
+        // Worst of the current top-K on top, so it can be evicted cheaply
+        PriorityQueue<int[]> best = new PriorityQueue<>(limit + 1, rank.reversed());
+        Postings smallest = lists[0];
+        for (int i = 0; i < smallest.size; i++) {
+            int document = smallest.documents[i];
+            if (exclude.contains(document) || !containsAll(lists, document)) {
+                continue;
+            }
+            int position = folded.get(document).indexOf(key);
+            if (position < 0) {
+                continue; // Trigrams matched out of order
+            }
+            best.add(new int[]{document, position});
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        List<int[]> ranked = new ArrayList<>(best);
+        ranked.sort(rank);
+        List<Hit> hits = new ArrayList<>(ranked.size());
+        for (int[] match : ranked) {
+            hits.add(hit(match[0], match[1]));
+        }
+        return hits;
+    }
+
+    private Hit hit(int document, int position) {
+        return new Hit(ids.get(document), names.get(document), position);
+    }
+
+    private static boolean containsAll(Postings[] lists, int document) {
+        for (int i = 1; i < lists.length; i++) {
+            if (!lists[i].contains(document)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String fold(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static long gram(String key, int start) {
+        return ((long) key.charAt(start) << 32) | ((long) key.charAt(start + 1) << 16) | key.charAt(start + 2);
+    }
+
+    // Document numbers in ascending order, since documents are only appended
+    private static final class Postings {
+        private int[] documents = new int[4];
+        private int size;
+
+        void add(int document) {
+            if (size > 0 && documents[size - 1] == document) {
+                return; // Trigram repeats within the same name
+            }
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+            }
+            documents[size++] = document;
+        }
+
+        boolean contains(int document) {
+            return Arrays.binarySearch(documents, 0, size, document) >= 0;
+        }
+    }
+}
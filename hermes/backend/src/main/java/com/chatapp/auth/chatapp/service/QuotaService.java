@@ -0,0 +1,276 @@
+package com.chatapp.auth.chatapp.service;
+
+import com.chatapp.auth.model.StorageUsage;
+import com.chatapp.auth.model.StorageUsage.OwnerType;
+import com.chatapp.auth.repository.StorageUsageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control for stored bytes. Per-user and per-group usage is counted in memory
+ * and flushed to {@code storage_usage} periodically, so checking a quota never touches
+ * the database after the first lookup. Flushes add this node's change since the last flush
+ * rather than writing a total, and loaded figures are refreshed from the table, so nodes
+ * charging the same owner converge instead of overwriting each other. Uploads are also refused
+ * while free space on the storage volume, minus bytes still being uploaded, is below the watermark.
+ */
+@Service
+public class QuotaService {
+
+    private static final Logger log = LoggerFactory.getLogger(QuotaService.class);
+
+    /**
+     * Thrown before any bytes are accepted when an upload would exceed a limit.
+     */
+    public static class QuotaExceededException extends RuntimeException {
+        private final boolean storageFull;
+
+        public QuotaExceededException(String message, boolean storageFull) {
+            super(message);
+            this.storageFull = storageFull;
+        }
+
+        public boolean isStorageFull() {
+            return storageFull;
+        }
+    }
+
+    // Last figure read from or written to the table, plus what this node has changed since
+    private static final class Usage {
+        private final AtomicLong persisted;
+        private final AtomicLong unflushed = new AtomicLong();
+
+        private Usage(long persisted) {
+            this.persisted = new AtomicLong(persisted);
+        }
+
+        private long get() {
+            return Math.max(0, persisted.get() + unflushed.get());
+        }
+    }
+
+    // Owners per reload query
+    private static final int RELOAD_BATCH_SIZE = 1000;
+
+    private final StorageUsageRepository storageUsageRepository;
+    private final BlobStorage blobStorage;
+
+    private final Map<Long, Usage> userUsage = new ConcurrentHashMap<>();
+    private final Map<Long, Usage> groupUsage = new ConcurrentHashMap<>();
+    private final Set<Long> dirtyUsers = ConcurrentHashMap.newKeySet();
+    private final Set<Long> dirtyGroups = ConcurrentHashMap.newKeySet();
+    // Bytes admitted but not yet fully written, so parallel uploads can't overshoot the watermark
+    private final AtomicLong pendingBytes = new AtomicLong();
+
+    private final Counter rejectedStorageFull;
+    private final Counter rejectedUserQuota;
+    private final Counter rejectedGroupQuota;
+
+    @Value("${quota.user-bytes:1073741824}")
+    private long userLimit;
+
+    @Value("${quota.group-bytes:5368709120}")
+    private long groupLimit;
+
+    @Value("${quota.min-free-bytes:1073741824}")
+    private long minFreeBytes;
+
+    public QuotaService(StorageUsageRepository storageUsageRepository, BlobStorage blobStorage, MeterRegistry meterRegistry) {
+        this.storageUsageRepository = storageUsageRepository;
+        this.blobStorage = blobStorage;
+
+        Gauge.builder("hermes.storage.free", this, QuotaService::freeSpaceOrNaN)
+                .baseUnit("bytes").description("Usable space on the storage volume")
+                .register(meterRegistry);
+        Gauge.builder("hermes.storage.pending", pendingBytes, AtomicLong::get)
+                .baseUnit("bytes").description("Bytes admitted for uploads still in progress")
+                .register(meterRegistry);
+        Gauge.builder("hermes.storage.used", userUsage, usage -> sum(usage))
+                .tag("owner", "user").baseUnit("bytes").description("Bytes charged to users loaded on this node")
+                .register(meterRegistry);
+        Gauge.builder("hermes.storage.used", groupUsage, usage -> sum(usage))
+                .tag("owner", "group").baseUnit("bytes").description("Bytes charged to groups loaded on this node")
+                .register(meterRegistry);
+        this.rejectedStorageFull = rejectionCounter(meterRegistry, "storage_full");
+        this.rejectedUserQuota = rejectionCounter(meterRegistry, "user_quota");
+        this.rejectedGroupQuota = rejectionCounter(meterRegistry, "group_quota");
+    }
+
+    /**
+     * Admits an upload of {@code size} bytes and charges it to the user up front.
+     * Pair with {@link #completeUpload} once stored, or {@link #cancelUpload} if it never finishes.
+     */
+    public void admitUpload(Long userId, long size) {
+        checkFreeSpace(size);
+
+        Usage usage = usage(userUsage, OwnerType.USER, userId);
+        usage.unflushed.addAndGet(size);
+        if (usage.get() > userLimit) {
+            usage.unflushed.addAndGet(-size);
+            rejectedUserQuota.increment();
+            throw new QuotaExceededException("Storage quota of " + userLimit + " bytes exceeded", false);
+        }
+        dirtyUsers.add(userId);
+        pendingBytes.addAndGet(size);
+    }
+
+    public void completeUpload(long size) {
+        pendingBytes.addAndGet(-size);
+    }
+
+    public void cancelUpload(Long userId, long size) {
+        pendingBytes.addAndGet(-size);
+        release(OwnerType.USER, userId, size);
+    }
+
+    /**
+     * Charges an attachment posted to a group, or rejects it if the group is full.
+     * Call before storing anything, and {@link #release} the charge if the post then fails.
+     */
+    public void chargeGroup(Long groupId, long size) {
+        Usage usage = usage(groupUsage, OwnerType.GROUP, groupId);
+        usage.unflushed.addAndGet(size);
+        if (usage.get() > groupLimit) {
+            usage.unflushed.addAndGet(-size);
+            rejectedGroupQuota.increment();
+            throw new QuotaExceededException("Group storage quota of " + groupLimit + " bytes exceeded", false);
+        }
+        dirtyGroups.add(groupId);
+    }
+
+    public void release(OwnerType ownerType, Long ownerId, long size) {
+        boolean user = ownerType == OwnerType.USER;
+        usage(user ? userUsage : groupUsage, ownerType, ownerId).unflushed.addAndGet(-size);
+        (user ? dirtyUsers : dirtyGroups).add(ownerId);
+    }
+
+    public long getUserUsage(Long userId) {
+        return usage(userUsage, OwnerType.USER, userId).get();
+    }
+
+    public long getUserLimit() {
+        return userLimit;
+    }
+
+    // Synchronized with reload, which would otherwise count a delta that was just flushed twice
+    @Scheduled(fixedDelayString = "${quota.flush-interval:30000}")
+    public synchronized void flush() {
+        flush(OwnerType.USER, dirtyUsers, userUsage);
+        flush(OwnerType.GROUP, dirtyGroups, groupUsage);
+    }
+
+    /**
+     * Picks up what other nodes have charged to the owners loaded here.
+     */
+    @Scheduled(fixedDelayString = "${quota.reload-interval:60000}", initialDelayString = "${quota.reload-interval:60000}")
+    public synchronized void reload() {
+        reload(OwnerType.USER, userUsage);
+        reload(OwnerType.GROUP, groupUsage);
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void flush(OwnerType ownerType, Set<Long> dirty, Map<Long, Usage> usage) {
+        for (Long ownerId : dirty) {
+            // Remove first: a change racing with the save marks the owner dirty again
+            dirty.remove(ownerId);
+            Usage owner = usage.get(ownerId);
+            long delta = owner.unflushed.get();
+            if (delta == 0) {
+                continue;
+            }
+            try {
+                storageUsageRepository.addBytesUsed(ownerType.name(), ownerId, delta, Instant.now());
+                // Moved across rather than reset, so charges made during the write are kept
+                owner.persisted.addAndGet(delta);
+                owner.unflushed.addAndGet(-delta);
+            } catch (Exception e) {
+                dirty.add(ownerId);
+                log.warn("Failed to persist storage usage for {} {}: {}", ownerType, ownerId, e.getMessage());
+            }
+        }
+    }
+
+    private void reload(OwnerType ownerType, Map<Long, Usage> usage) {
+        List<Long> owners = new ArrayList<>(usage.keySet());
+        for (int from = 0; from < owners.size(); from += RELOAD_BATCH_SIZE) {
+            List<Long> batch = owners.subList(from, Math.min(owners.size(), from + RELOAD_BATCH_SIZE));
+            try {
+                for (StorageUsage row : storageUsageRepository.findByOwnerTypeAndOwnerIdIn(ownerType, batch)) {
+                    Usage owner = usage.get(row.getOwnerId());
+                    if (owner != null) {
+                        owner.persisted.set(row.getBytesUsed());
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("Failed to reload storage usage for {} owners: {}", ownerType, e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void checkFreeSpace(long size) {
+        try {
+            long usable = blobStorage.usableSpace();
+            if (usable >= 0 && usable - pendingBytes.get() - size < minFreeBytes) {
+                rejectedStorageFull.increment();
+                log.warn("⚠️ Rejecting upload of {} bytes: only {} bytes free on storage", size, usable);
+                throw new QuotaExceededException("Server storage is full, try again later", true);
+            }
+        } catch (IOException e) {
+            log.warn("Could not read free space of storage: {}", e.getMessage());
+        }
+    }
+
+    // Loaded outside the map so one slow lookup doesn't block other owners
+    private Usage usage(Map<Long, Usage> usage, OwnerType ownerType, Long ownerId) {
+        Usage counter = usage.get(ownerId);
+        if (counter != null) {
+            return counter;
+        }
+        long persisted = storageUsageRepository.findByOwnerTypeAndOwnerId(ownerType, ownerId)
+                .map(StorageUsage::getBytesUsed)
+                .orElse(0L);
+        Usage existing = usage.putIfAbsent(ownerId, new Usage(persisted));
+        return existing != null ? existing : usage.get(ownerId);
+    }
+
+    private double freeSpaceOrNaN() {
+        try {
+            long usable = blobStorage.usableSpace();
+            return usable >= 0 ? usable : Double.NaN;
+        } catch (IOException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static double sum(Map<Long, Usage> usage) {
+        return usage.values().stream().mapToLong(Usage::get).sum();
+    }
+
+    private static Counter rejectionCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("hermes.uploads.rejected")
+                .tag("reason", reason)
+                .description("Uploads refused by admission control")
+                .register(meterRegistry);
+    }
+}
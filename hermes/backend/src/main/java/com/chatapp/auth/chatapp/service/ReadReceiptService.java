@@ -0,0 +1,127 @@
+package com.chatapp.auth.chatapp.service;
+
+import com.chatapp.auth.chatapp.DTO.ReadReceiptDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read watermarks per (user, conversation). Clients report the newest message they have seen as
+ * often as they like; reports are merged in memory and written in one batch per flush interval,
+ * so a user scrolling through a busy chat costs one row update instead of one per message.
+ * The unread count is recomputed from the watermark at write time rather than decremented.
+ */
+@Service
+public class ReadReceiptService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadReceiptService.class);
+
+    // Only moves the watermark forward; the count is what arrived after it
+    private static final String MARK_DIRECT_READ =
+            "UPDATE inbox_entries e SET e.unread_count = (SELECT COUNT(*) FROM messages m " +
+            "WHERE m.sender_id = e.peer_id AND m.receiver_id = e.user_id AND m.id > ?), " +
+            "e.last_read_message_id = ? " +
+            "WHERE e.user_id = ? AND e.conversation_type = 'DIRECT' AND e.peer_id = ? AND e.last_read_message_id < ?";
+
+    private static final String MARK_GROUP_READ =
+            "UPDATE inbox_entries e SET e.unread_count = (SELECT COUNT(*) FROM group_chats c " +
+            "WHERE c.group_id = e.peer_id AND c.id > ? AND c.sender_id <> e.user_id), " +
+            "e.last_read_message_id = ? " +
+            "WHERE e.user_id = ? AND e.conversation_type = 'GROUP' AND e.peer_id = ? AND e.last_read_message_id < ?";
+
+    private record Conversation(long userId, long peerId, boolean group) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final Map<Conversation, Long> pending = new ConcurrentHashMap<>();
+    private final Counter reported;
+    private final Counter written;
+
+    public ReadReceiptService(JdbcTemplate jdbcTemplate, SimpMessagingTemplate messagingTemplate,
+                              MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.messagingTemplate = messagingTemplate;
+        this.reported = Counter.builder("hermes.receipts.reported")
+                .description("Read watermarks reported by clients")
+                .register(meterRegistry);
+        this.written = Counter.builder("hermes.receipts.written")
+                .description("Read watermarks written after coalescing")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records that the user has seen everything up to messageId in the conversation.
+     * Takes effect at the next flush; stale or repeated reports are absorbed.
+     */
+    public void markRead(Long userId, Long peerId, boolean isGroup, Long messageId) {
+        if (userId == null || peerId == null || messageId == null || messageId <= 0) {
+            throw new IllegalArgumentException("peerId and messageId are required");
+        }
+        reported.increment();
+        pending.merge(new Conversation(userId, peerId, isGroup), messageId, Math::max);
+    }
+
+    @Scheduled(fixedDelayString = "${receipts.flush-interval:2000}")
+    @PreDestroy
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Conversation, Long>> direct = new ArrayList<>();
+        List<Map.Entry<Conversation, Long>> group = new ArrayList<>();
+        for (Conversation conversation : List.copyOf(pending.keySet())) {
+            Long messageId = pending.remove(conversation);
+            if (messageId != null) {
+                (conversation.group() ? group : direct).add(Map.entry(conversation, messageId));
+            }
+        }
+
+        int[] directUpdated = write(MARK_DIRECT_READ, direct);
+        write(MARK_GROUP_READ, group);
+
+        // Only the other side of a direct chat is told; group read state stays private to the reader
+        for (int i = 0; i < directUpdated.length; i++) {
+            if (directUpdated[i] == 0) {
+                continue; // Not newer than the stored watermark, or no such conversation
+            }
+            Conversation conversation = direct.get(i).getKey();
+            messagingTemplate.convertAndSend("/topic/user/" + conversation.peerId() + "/queue/receipts",
+                    new ReadReceiptDTO(conversation.userId(), conversation.userId(), false, direct.get(i).getValue()));
+        }
+    }
+
+    private int[] write(String sql, List<Map.Entry<Conversation, Long>> batch) {
+        if (batch.isEmpty()) {
+            return new int[0];
+        }
+        try {
+            int[] updated = jdbcTemplate.batchUpdate(sql, batch, batch.size(), (statement, entry) -> {
+                statement.setLong(1, entry.getValue());
+                statement.setLong(2, entry.getValue());
+                statement.setLong(3, entry.getKey().userId());
+                statement.setLong(4, entry.getKey().peerId());
+                statement.setLong(5, entry.getValue());
+            })[0];
+            written.increment(batch.size());
+            return updated;
+        } catch (Exception e) {
+            log.warn("Failed to write {} read watermarks, retrying next flush: {}", batch.size(), e.getMessage());
+            for (Map.Entry<Conversation, Long> entry : batch) {
+                pending.merge(entry.getKey(), entry.getValue(), Math::max);
+            }
+            return new int[0];
+        }
+    }
+}
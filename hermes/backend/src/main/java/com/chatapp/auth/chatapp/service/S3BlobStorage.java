@@ -0,0 +1,396 @@
+package com.chatapp.auth.chatapp.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Stores blobs in an S3-compatible bucket (AWS S3, MinIO, Ceph RGW, ...). Talks to the REST API
+ * directly with SigV4 signing so no SDK is needed. Requests use path-style addressing,
+ * which every S3-compatible server accepts, and payloads are sent as UNSIGNED-PAYLOAD so
+ * bodies can be streamed without hashing them first.
+ */
+@Service
+@ConditionalOnProperty(name = "storage.driver", havingValue = "s3")
+public class S3BlobStorage implements BlobStorage {
+
+    private static final Logger log = LoggerFactory.getLogger(S3BlobStorage.class);
+
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    private static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final DateTimeFormatter AMZ_DAY = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final Pattern UPLOAD_ID = Pattern.compile("<UploadId>([^<]+)</UploadId>");
+    private static final Pattern LIST_CONTENTS = Pattern.compile("<Contents>(.*?)</Contents>", Pattern.DOTALL);
+    private static final Pattern LIST_KEY = Pattern.compile("<Key>([^<]*)</Key>");
+    private static final Pattern LIST_SIZE = Pattern.compile("<Size>(\\d+)</Size>");
+    private static final Pattern LIST_LAST_MODIFIED = Pattern.compile("<LastModified>([^<]*)</LastModified>");
+    private static final Pattern LIST_NEXT_TOKEN = Pattern.compile("<NextContinuationToken>([^<]*)</NextContinuationToken>");
+    // S3 caps presigned URLs at seven days
+    private static final Duration MAX_PRESIGN_TTL = Duration.ofDays(7);
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private final URI endpoint;
+    private final String bucket;
+    private final String region;
+    private final String accessKey;
+    private final String secretKey;
+    private final long multipartThreshold;
+    private final long partSize;
+
+    public S3BlobStorage(@Value("${storage.s3.endpoint}") String endpoint,
+                         @Value("${storage.s3.bucket}") String bucket,
+                         @Value("${storage.s3.region:us-east-1}") String region,
+                         @Value("${storage.s3.access-key}") String accessKey,
+                         @Value("${storage.s3.secret-key}") String secretKey,
+                         @Value("${storage.s3.multipart-threshold:16777216}") long multipartThreshold,
+                         @Value("${storage.s3.part-size:8388608}") long partSize) {
+        // S3 rejects parts smaller than 5 MiB, except the last one
+        if (partSize < 5L * 1024 * 1024) {
+            throw new IllegalArgumentException("storage.s3.part-size must be at least 5 MiB");
+        }
+        this.endpoint = URI.create(endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint);
+        this.bucket = bucket;
+        this.region = region;
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.multipartThreshold = multipartThreshold;
+        this.partSize = partSize;
+        log.info("Storing uploaded files in bucket '{}' at {}", bucket, this.endpoint);
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        long size = Files.size(source);
+        if (size > multipartThreshold) {
+            putMultipart(key, source, size);
+        } else {
+            send("PUT", key, Map.of(), HttpRequest.BodyPublishers.ofFile(source), HttpResponse.BodyHandlers.discarding());
+        }
+        Files.delete(source);
+    }
+
+    @Override
+    public void put(String key, InputStream content, long length) throws IOException {
+        send("PUT", key, Map.of(), exactly(content, length), HttpResponse.BodyHandlers.discarding());
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return send("GET", key, Map.of(), HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.ofInputStream()).body();
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        HttpResponse<Void> response = execute("HEAD", key, Map.of(), HttpRequest.BodyPublishers.noBody(),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 404) {
+            return false;
+        }
+        checkStatus(response, "HEAD", key);
+        return true;
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        send("DELETE", key, Map.of(), HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.discarding());
+    }
+
+    @Override
+    public List<StoredBlob> list(String prefix) throws IOException {
+        List<StoredBlob> blobs = new ArrayList<>();
+        String continuationToken = null;
+        do {
+            Map<String, String> query = new TreeMap<>();
+            query.put("list-type", "2");
+            query.put("prefix", prefix);
+            if (continuationToken != null) {
+                query.put("continuation-token", continuationToken);
+            }
+            // Listing is a bucket-level request, so the key part of the path is empty
+            String body = send("GET", "", query, HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.ofString()).body();
+
+            Matcher contents = LIST_CONTENTS.matcher(body);
+            while (contents.find()) {
+                Matcher key = LIST_KEY.matcher(contents.group(1));
+                Matcher size = LIST_SIZE.matcher(contents.group(1));
+                Matcher modified = LIST_LAST_MODIFIED.matcher(contents.group(1));
+                if (key.find() && size.find() && modified.find()) {
+                    blobs.add(new StoredBlob(unescapeXml(key.group(1)), Long.parseLong(size.group(1)), Instant.parse(modified.group(1))));
+                }
+            }
+            Matcher next = LIST_NEXT_TOKEN.matcher(body);
+            continuationToken = body.contains("<IsTruncated>true</IsTruncated>") && next.find() ? unescapeXml(next.group(1)) : null;
+        } while (continuationToken != null);
+        return blobs;
+    }
+
+    /**
+     * SigV4 query-string signed GET, so clients download straight from the bucket. The response
+     * headers are overridden through the signed response-* parameters.
+     */
+    @Override
+    public Optional<URI> presignedGetUrl(String key, Duration ttl, String contentType, String contentDisposition) {
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+        String amzDate = AMZ_DATE.format(now);
+        String scope = AMZ_DAY.format(now) + "/" + region + "/s3/aws4_request";
+        long expires = Math.min(ttl.getSeconds(), MAX_PRESIGN_TTL.getSeconds());
+
+        Map<String, String> query = new TreeMap<>();
+        query.put("X-Amz-Algorithm", ALGORITHM);
+        query.put("X-Amz-Credential", accessKey + "/" + scope);
+        query.put("X-Amz-Date", amzDate);
+        query.put("X-Amz-Expires", String.valueOf(expires));
+        query.put("X-Amz-SignedHeaders", "host");
+        query.put("response-content-type", contentType);
+        query.put("response-content-disposition", contentDisposition);
+
+        String canonicalQuery = canonicalQuery(query);
+        String canonicalRequest = "GET\n" + canonicalPath(key) + "\n" + canonicalQuery + "\n"
+                + "host:" + hostHeader() + "\n\nhost\n" + UNSIGNED_PAYLOAD;
+        String signature = sign(now, scope, amzDate, canonicalRequest);
+
+        return Optional.of(URI.create(origin() + canonicalPath(key) + "?" + canonicalQuery + "&X-Amz-Signature=" + signature));
+    }
+
+    // Large files go up in parts so a failed part can be retried without resending everything
+    private void putMultipart(String key, Path source, long size) throws IOException {
+        String responseBody = send("POST", key, Map.of("uploads", ""), HttpRequest.BodyPublishers.noBody(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        Matcher matcher = UPLOAD_ID.matcher(responseBody);
+        if (!matcher.find()) {
+            throw new IOException("No UploadId in multipart response for " + key);
+        }
+        String uploadId = matcher.group(1);
+
+        try {
+            List<String> etags = new ArrayList<>();
+            int partNumber = 1;
+            for (long offset = 0; offset < size; offset += partSize, partNumber++) {
+                long length = Math.min(partSize, size - offset);
+                etags.add(uploadPart(key, uploadId, partNumber, source, offset, length));
+            }
+
+            StringBuilder complete = new StringBuilder("<CompleteMultipartUpload>");
+            for (int i = 0; i < etags.size(); i++) {
+                complete.append("<Part><PartNumber>").append(i + 1).append("</PartNumber><ETag>")
+                        .append(etags.get(i)).append("</ETag></Part>");
+            }
+            complete.append("</CompleteMultipartUpload>");
+            send("POST", key, Map.of("uploadId", uploadId), HttpRequest.BodyPublishers.ofString(complete.toString()),
+                    HttpResponse.BodyHandlers.discarding());
+            log.info("Uploaded {} in {} parts", key, etags.size());
+        } catch (IOException | RuntimeException e) {
+            try {
+                send("DELETE", key, Map.of("uploadId", uploadId), HttpRequest.BodyPublishers.noBody(),
+                        HttpResponse.BodyHandlers.discarding());
+            } catch (IOException abortFailure) {
+                log.warn("Failed to abort multipart upload {} for {}: {}", uploadId, key, abortFailure.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    private String uploadPart(String key, String uploadId, int partNumber, Path source, long offset, long length) throws IOException {
+        Map<String, String> query = Map.of("partNumber", String.valueOf(partNumber), "uploadId", uploadId);
+        HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.fromPublisher(
+                HttpRequest.BodyPublishers.ofInputStream(() -> {
+                    try {
+                        InputStream in = Files.newInputStream(source);
+                        in.skipNBytes(offset);
+                        return new BoundedInputStream(in, length);
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Cannot read part " + partNumber + " of " + source, e);
+                    }
+                }), length);
+        HttpResponse<Void> response = send("PUT", key, query, body, HttpResponse.BodyHandlers.discarding());
+        return response.headers().firstValue("ETag")
+                .orElseThrow(() -> new IOException("No ETag for part " + partNumber + " of " + key));
+    }
+
+    private <T> HttpResponse<T> send(String method, String key, Map<String, String> query,
+                                     HttpRequest.BodyPublisher body, HttpResponse.BodyHandler<T> handler) throws IOException {
+        HttpResponse<T> response = execute(method, key, query, body, handler);
+        checkStatus(response, method, key);
+        return response;
+    }
+
+    private <T> HttpResponse<T> execute(String method, String key, Map<String, String> query,
+                                        HttpRequest.BodyPublisher body, HttpResponse.BodyHandler<T> handler) throws IOException {
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+        String amzDate = AMZ_DATE.format(now);
+        String scope = AMZ_DAY.format(now) + "/" + region + "/s3/aws4_request";
+
+        String canonicalQuery = canonicalQuery(new TreeMap<>(query));
+        String signedHeaders = "host;x-amz-content-sha256;x-amz-date";
+        String canonicalRequest = method + "\n" + canonicalPath(key) + "\n" + canonicalQuery + "\n"
+                + "host:" + hostHeader() + "\n"
+                + "x-amz-content-sha256:" + UNSIGNED_PAYLOAD + "\n"
+                + "x-amz-date:" + amzDate + "\n\n"
+                + signedHeaders + "\n" + UNSIGNED_PAYLOAD;
+        String authorization = ALGORITHM + " Credential=" + accessKey + "/" + scope
+                + ", SignedHeaders=" + signedHeaders
+                + ", Signature=" + sign(now, scope, amzDate, canonicalRequest);
+
+        URI uri = URI.create(origin() + canonicalPath(key) + (canonicalQuery.isEmpty() ? "" : "?" + canonicalQuery));
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .method(method, body)
+                .header("x-amz-content-sha256", UNSIGNED_PAYLOAD)
+                .header("x-amz-date", amzDate)
+                .header("Authorization", authorization)
+                .timeout(Duration.ofMinutes(5))
+                .build();
+        try {
+            return httpClient.send(request, handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted during " + method + " " + key, e);
+        }
+    }
+
+    private void checkStatus(HttpResponse<?> response, String method, String key) throws IOException {
+        int status = response.statusCode();
+        if (status / 100 != 2) {
+            if (response.body() instanceof InputStream in) {
+                in.close();
+            }
+            throw new IOException("S3 " + method + " " + key + " failed with status " + status);
+        }
+    }
+
+    private String sign(ZonedDateTime now, String scope, String amzDate, String canonicalRequest) {
+        try {
+            String stringToSign = ALGORITHM + "\n" + amzDate + "\n" + scope + "\n"
+                    + HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(canonicalRequest.getBytes(StandardCharsets.UTF_8)));
+            byte[] signingKey = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), AMZ_DAY.format(now));
+            signingKey = hmac(signingKey, region);
+            signingKey = hmac(signingKey, "s3");
+            signingKey = hmac(signingKey, "aws4_request");
+            return HexFormat.of().formatHex(hmac(signingKey, stringToSign));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to sign S3 request", e);
+        }
+    }
+
+    private static byte[] hmac(byte[] key, String data) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(key, "HmacSHA256"));
+        return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String origin() {
+        return endpoint.getScheme() + "://" + endpoint.getRawAuthority();
+    }
+
+    private String hostHeader() {
+        return endpoint.getPort() == -1 ? endpoint.getHost() : endpoint.getHost() + ":" + endpoint.getPort();
+    }
+
+    private String canonicalPath(String key) {
+        String basePath = endpoint.getRawPath() == null ? "" : endpoint.getRawPath();
+        String encodedKey = Arrays.stream(key.split("/"))
+                .map(S3BlobStorage::encode)
+                .collect(Collectors.joining("/"));
+        return basePath + "/" + encode(bucket) + "/" + encodedKey;
+    }
+
+    private static String canonicalQuery(Map<String, String> sortedQuery) {
+        return sortedQuery.entrySet().stream()
+                .map(entry -> encode(entry.getKey()) + "=" + encode(entry.getValue()))
+                .collect(Collectors.joining("&"));
+    }
+
+    // RFC 3986 encoding as SigV4 requires; URLEncoder is form encoding and differs in three places
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8)
+                .replace("+", "%20")
+                .replace("*", "%2A")
+                .replace("%7E", "~");
+    }
+
+    private static String unescapeXml(String value) {
+        return value.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+                .replace("&apos;", "'").replace("&amp;", "&");
+    }
+
+    private static HttpRequest.BodyPublisher exactly(InputStream content, long length) {
+        return HttpRequest.BodyPublishers.fromPublisher(
+                HttpRequest.BodyPublishers.ofInputStream(() -> new BoundedInputStream(content, length)), length);
+    }
+
+    // Exposes only the first limit bytes of a stream
+    private static final class BoundedInputStream extends InputStream {
+        private final InputStream in;
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long limit) {
+            this.in = in;
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = in.read(buffer, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
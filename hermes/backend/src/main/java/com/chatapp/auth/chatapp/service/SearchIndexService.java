@@ -0,0 +1,123 @@
+package com.chatapp.auth.chatapp.service;
+
+import com.chatapp.auth.chatapp.DTO.UserDataDto;
+import com.chatapp.auth.repository.GroupDetailsRepository;
+import com.chatapp.auth.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * In-memory name search over users and groups, so typeahead never runs {@code LIKE '%q%'}.
+ * The first sync loads every name in ID order; later syncs pick up rows created on other nodes,
+ * while signups and group creation on this node are indexed as soon as they commit.
+ * Until the first load finishes, {@link #isReady()} is false and callers fall back to the database.
+ */
+@Service
+public class SearchIndexService {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchIndexService.class);
+    // Re-read a few rows behind the cursor so IDs committed out of order are not missed
+    private static final long SYNC_OVERLAP_ROWS = 100;
+
+    private final UserRepository userRepository;
+    private final GroupDetailsRepository groupDetailsRepository;
+    private final NameIndex users = new NameIndex();
+    private final NameIndex groups = new NameIndex();
+    private final Timer searchTimer;
+
+    // Highest IDs loaded so far; both tables use auto-increment keys
+    private long userCursor = 0;
+    private long groupCursor = 0;
+    private volatile boolean ready = false;
+
+    @Value("${search.load-batch-size:10000}")
+    private int batchSize;
+
+    public SearchIndexService(UserRepository userRepository, GroupDetailsRepository groupDetailsRepository,
+                              MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.groupDetailsRepository = groupDetailsRepository;
+        this.searchTimer = Timer.builder("hermes.search.latency")
+                .description("Time to answer a user and group name search from the index")
+                .register(meterRegistry);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Best matches for the query across users and groups, ranked together prefix-first as
+     * {@link NameIndex#RANK} orders them; a user wins a tie with a group.
+     */
+    public List<UserDataDto> search(String query, int limit) {
+        return searchTimer.record(() -> {
+            List<NameIndex.Hit> userHits = users.search(query, limit);
+            List<NameIndex.Hit> groupHits = groups.search(query, limit);
+            // Both lists are already ranked, so merging them keeps the best of either
+            List<UserDataDto> results = new ArrayList<>(Math.min(limit, userHits.size() + groupHits.size()));
+            int u = 0;
+            int g = 0;
+            while (results.size() < limit && (u < userHits.size() || g < groupHits.size())) {
+                if (g == groupHits.size()
+                        || (u < userHits.size() && NameIndex.RANK.compare(userHits.get(u), groupHits.get(g)) <= 0)) {
+                    NameIndex.Hit hit = userHits.get(u++);
+                    results.add(new UserDataDto(hit.id(), hit.name(), false));
+                } else {
+                    NameIndex.Hit hit = groupHits.get(g++);
+                    results.add(new UserDataDto(hit.id(), hit.name(), true));
+                }
+            }
+            return results;
+        });
+    }
+
+    public void indexUser(Long id, String username) {
+        TransactionHooks.afterCommit(() -> users.add(id, username));
+    }
+
+    public void indexGroup(Long id, String groupName) {
+        TransactionHooks.afterCommit(() -> groups.add(id, groupName));
+    }
+
+    @Scheduled(fixedDelayString = "${search.sync-interval:5000}")
+    public void sync() {
+        long startedAt = System.nanoTime();
+        try {
+            userCursor = load(users, userCursor, userRepository::findSearchEntriesAfter);
+            groupCursor = load(groups, groupCursor, groupDetailsRepository::findSearchEntriesAfter);
+        } catch (Exception e) {
+            log.warn("Search index sync failed: {}", e.getMessage());
+            return;
+        }
+        if (!ready) {
+            ready = true;
+            log.info("🔎 Search index loaded {} users and {} groups in {} ms", users.size(), groups.size(),
+                    (System.nanoTime() - startedAt) / 1_000_000);
+        }
+    }
+
+    private long load(NameIndex index, long cursor, BiFunction<Long, Pageable, List<UserDataDto>> fetch) {
+        long after = Math.max(0, cursor - SYNC_OVERLAP_ROWS);
+        List<UserDataDto> batch;
+        do {
+            batch = fetch.apply(after, PageRequest.of(0, batchSize));
+            for (UserDataDto entry : batch) {
+                index.add(entry.getId(), entry.getName());
+                after = entry.getId();
+            }
+        } while (batch.size() == batchSize);
+        return Math.max(cursor, after);
+    }
+}
@@ -0,0 +1,203 @@
+package com.chatapp.auth.chatapp.service;
+
+import com.chatapp.auth.repository.FilesRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Generates fixed-size JPEG thumbnails and a tiny colour-grid placeholder for stored images.
+ * Work runs on a small bounded pool after the file row is saved; when the queue is full the
+ * file simply has no previews and clients fall back to the original.
+ */
+@Service
+public class ThumbnailService {
+
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailService.class);
+
+    // Longest edge in pixels, smallest first
+    public static final int[] SIZES = {96, 320};
+    private static final int PLACEHOLDER_GRID = 4;
+    // Refuse to decode anything larger than this even with subsampling
+    private static final long MAX_SOURCE_PIXELS = 64L * 1024 * 1024;
+
+    private final FilesRepository filesRepository;
+    private final BlobStorage blobStorage;
+    private final ThreadPoolExecutor executor;
+
+    public ThumbnailService(FilesRepository filesRepository, BlobStorage blobStorage,
+                            @Value("${uploadedFile.thumbnail-workers:2}") int workers,
+                            @Value("${uploadedFile.thumbnail-queue:100}") int queueCapacity) {
+        this.filesRepository = filesRepository;
+        this.blobStorage = blobStorage;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "thumbnail-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                });
+    }
+
+    public static boolean isSupported(String contentType) {
+        return contentType != null && contentType.startsWith("image/") && !contentType.equals("image/svg+xml");
+    }
+
+    public static boolean isValidSize(int size) {
+        return Arrays.stream(SIZES).anyMatch(s -> s == size);
+    }
+
+    // Thumbnails sit next to the original blob and share its immutable lifetime
+    public static String thumbnailKey(String originalKey, int size) {
+        return originalKey + "_" + size + ".jpg";
+    }
+
+    /**
+     * Queues preview generation for a stored image. Never blocks the caller.
+     */
+    public void generateAsync(Long fileId, String original) {
+        try {
+            executor.execute(() -> generate(fileId, original));
+        } catch (RejectedExecutionException e) {
+            log.warn("Thumbnail queue full, skipping previews for file {}", fileId);
+        }
+    }
+
+    void generate(Long fileId, String original) {
+        try {
+            BufferedImage source = decode(original, SIZES[SIZES.length - 1]);
+            if (source == null) {
+                log.info("No image reader for file {}, skipping previews", fileId);
+                return;
+            }
+
+            BufferedImage smallest = null;
+            for (int size : SIZES) {
+                BufferedImage thumbnail = scale(source, size);
+                write(thumbnail, thumbnailKey(original, size));
+                if (smallest == null) {
+                    smallest = thumbnail;
+                }
+            }
+
+            String sizes = Arrays.stream(SIZES).mapToObj(String::valueOf).collect(Collectors.joining(","));
+            filesRepository.updatePreview(fileId, sizes, placeholder(smallest));
+            log.info("Generated previews for file {}", fileId);
+        } catch (Exception e) {
+            log.warn("Failed to generate previews for file {}: {}", fileId, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Decodes with source subsampling so a large photo is never fully materialised in memory
+    private BufferedImage decode(String original, int targetEdge) throws IOException {
+        try (InputStream content = blobStorage.get(original);
+             ImageInputStream input = ImageIO.createImageInputStream(content)) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > MAX_SOURCE_PIXELS) {
+                    throw new IllegalArgumentException("Image too large: " + width + "x" + height);
+                }
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                // Keep at least twice the target resolution so the final scale still smooths
+                int step = Math.max(1, Math.max(width, height) / (targetEdge * 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage scale(BufferedImage source, int maxEdge) {
+        double ratio = Math.min(1.0, (double) maxEdge / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+
+        // JPEG has no alpha, so transparent areas are flattened onto white
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private void write(BufferedImage image, String key) throws IOException {
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        if (!ImageIO.write(image, "jpg", jpeg)) {
+            throw new IOException("No JPEG writer available");
+        }
+        blobStorage.put(key, new ByteArrayInputStream(jpeg.toByteArray()), jpeg.size());
+    }
+
+    // Average colour of each cell in a 4x4 grid as hex, for clients to blur while loading
+    private String placeholder(BufferedImage image) {
+        StringBuilder hex = new StringBuilder(PLACEHOLDER_GRID * PLACEHOLDER_GRID * 6);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        for (int row = 0; row < PLACEHOLDER_GRID; row++) {
+            for (int col = 0; col < PLACEHOLDER_GRID; col++) {
+                int x0 = col * width / PLACEHOLDER_GRID;
+                int x1 = Math.max(x0 + 1, (col + 1) * width / PLACEHOLDER_GRID);
+                int y0 = row * height / PLACEHOLDER_GRID;
+                int y1 = Math.max(y0 + 1, (row + 1) * height / PLACEHOLDER_GRID);
+                long r = 0, g = 0, b = 0, count = 0;
+                for (int y = y0; y < Math.min(y1, height); y++) {
+                    for (int x = x0; x < Math.min(x1, width); x++) {
+                        int rgb = image.getRGB(x, y);
+                        r += (rgb >> 16) & 0xff;
+                        g += (rgb >> 8) & 0xff;
+                        b += rgb & 0xff;
+                        count++;
+                    }
+                }
+                hex.append(String.format("%02x%02x%02x", r / count, g / count, b / count));
+            }
+        }
+        return hex.toString();
+    }
+}
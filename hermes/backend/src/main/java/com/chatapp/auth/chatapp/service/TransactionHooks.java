@@ -0,0 +1,28 @@
+package com.chatapp.auth.chatapp.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Defers in-memory side effects of a write until its transaction commits,
+ * so a rolled-back row never shows up in the caches and indexes built from it.
+ */
+final class TransactionHooks {
+
+    private TransactionHooks() {
+    }
+
+    // Runs immediately when there is no transaction to wait for
+    static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
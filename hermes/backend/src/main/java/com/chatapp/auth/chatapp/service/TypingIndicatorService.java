@@ -0,0 +1,232 @@
+package com.chatapp.auth.chatapp.service;
+
+import com.chatapp.auth.chatapp.DTO.TypingEventDTO;
+import com.chatapp.auth.chatapp.DTO.TypingEventDTO.State;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Typing and recording indicators. Clients send their state as often as they like; per
+ * (sender, conversation) only changes are relayed, at most one per interval, and a burst of
+ * changes inside an interval collapses to the last one. A state that is not refreshed within
+ * the TTL falls back to IDLE. Nothing here is persisted, and every timeout shares one wheel timer.
+ * Group membership comes from the cached member sets, not a query per event, and group events
+ * go out through the member-filtered group fan-out rather than the broker.
+ */
+@Service
+public class TypingIndicatorService {
+
+    private record Conversation(long senderId, long peerId, boolean group) {
+    }
+
+    // Guarded by its own monitor
+    private static final class Indicator {
+        private State published = State.IDLE;
+        private State latest = State.IDLE;
+        private long lastSentAt;
+        private long expiresAt;
+        private boolean flushScheduled;
+        private boolean expiryScheduled;
+        private boolean retired;
+    }
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ChatappUserService chatappUserService;
+    private final GroupMembershipService groupMembershipService;
+    private final GroupFanoutService groupFanoutService;
+    private final Map<Conversation, Indicator> indicators = new ConcurrentHashMap<>();
+    // Events per sender in the current one-second window
+    private final Map<Long, Integer> senderEvents = new ConcurrentHashMap<>();
+    private final HashedWheelTimer timer = new HashedWheelTimer("typing-timer", 100, 512);
+    private final Counter published;
+    private final Counter collapsed;
+    private final Counter dropped;
+
+    @Value("${typing.interval:1000}")
+    private long interval;
+
+    @Value("${typing.ttl:6000}")
+    private long ttl;
+
+    @Value("${typing.max-events-per-second:10}")
+    private int maxEventsPerSecond;
+
+    public TypingIndicatorService(SimpMessagingTemplate messagingTemplate, ChatappUserService chatappUserService,
+                                  GroupMembershipService groupMembershipService, GroupFanoutService groupFanoutService,
+                                  MeterRegistry meterRegistry) {
+        this.messagingTemplate = messagingTemplate;
+        this.chatappUserService = chatappUserService;
+        this.groupMembershipService = groupMembershipService;
+        this.groupFanoutService = groupFanoutService;
+        this.published = typingCounter(meterRegistry, "published");
+        this.collapsed = typingCounter(meterRegistry, "collapsed");
+        this.dropped = typingCounter(meterRegistry, "dropped");
+    }
+
+    /**
+     * Records the sender's current state in a conversation.
+     * @throws IllegalArgumentException if the sender is not a member of the group
+     */
+    public void update(Long senderId, Long peerId, boolean isGroup, State state) {
+        if (peerId == null || (!isGroup && peerId.equals(senderId))) {
+            return;
+        }
+        if (!admit(senderId)) {
+            dropped.increment();
+            return;
+        }
+        if (isGroup && !groupMembershipService.isMember(senderId, peerId)) {
+            throw new IllegalArgumentException("Not a member of this group");
+        }
+
+        Conversation conversation = new Conversation(senderId, peerId, isGroup);
+        State next = state != null ? state : State.IDLE;
+        while (true) {
+            Indicator indicator = indicators.computeIfAbsent(conversation, key -> newIndicator());
+            synchronized (indicator) {
+                if (indicator.retired) {
+                    continue; // Removed between lookup and lock
+                }
+                indicator.latest = next;
+                if (next != State.IDLE) {
+                    indicator.expiresAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttl);
+                    if (!indicator.expiryScheduled) {
+                        indicator.expiryScheduled = true;
+                        timer.schedule(() -> expire(conversation, indicator), ttl);
+                    }
+                }
+                publishOrDefer(conversation, indicator);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sets every indicator of a user who has no sessions left back to IDLE.
+     */
+    public void clear(Long userId) {
+        for (Map.Entry<Conversation, Indicator> entry : indicators.entrySet()) {
+            if (entry.getKey().senderId() != userId) {
+                continue;
+            }
+            Indicator indicator = entry.getValue();
+            synchronized (indicator) {
+                if (!indicator.retired) {
+                    indicator.latest = State.IDLE;
+                    publishOrDefer(entry.getKey(), indicator);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.stop();
+    }
+
+    private Indicator newIndicator() {
+        Indicator indicator = new Indicator();
+        // A new conversation may publish straight away
+        indicator.lastSentAt = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(interval);
+        return indicator;
+    }
+
+    // Caller holds the indicator's monitor
+    private void publishOrDefer(Conversation conversation, Indicator indicator) {
+        if (indicator.latest == indicator.published) {
+            collapsed.increment();
+            retireIfIdle(conversation, indicator);
+            return;
+        }
+        long now = System.nanoTime();
+        long wait = indicator.lastSentAt + TimeUnit.MILLISECONDS.toNanos(interval) - now;
+        if (wait > 0) {
+            // Whatever the state is when the interval ends gets sent, once
+            collapsed.increment();
+            if (!indicator.flushScheduled) {
+                indicator.flushScheduled = true;
+                timer.schedule(() -> flush(conversation, indicator), TimeUnit.NANOSECONDS.toMillis(wait) + 1);
+            }
+            return;
+        }
+        indicator.published = indicator.latest;
+        indicator.lastSentAt = now;
+        send(conversation, indicator.published);
+        retireIfIdle(conversation, indicator);
+    }
+
+    private void flush(Conversation conversation, Indicator indicator) {
+        synchronized (indicator) {
+            indicator.flushScheduled = false;
+            if (!indicator.retired) {
+                publishOrDefer(conversation, indicator);
+            }
+        }
+    }
+
+    private void expire(Conversation conversation, Indicator indicator) {
+        synchronized (indicator) {
+            indicator.expiryScheduled = false;
+            if (indicator.retired) {
+                return;
+            }
+            if (indicator.latest == State.IDLE) {
+                retireIfIdle(conversation, indicator);
+                return;
+            }
+            long remaining = indicator.expiresAt - System.nanoTime();
+            if (remaining > 0) {
+                // Refreshed since this timeout was set
+                indicator.expiryScheduled = true;
+                timer.schedule(() -> expire(conversation, indicator), TimeUnit.NANOSECONDS.toMillis(remaining) + 1);
+                return;
+            }
+            indicator.latest = State.IDLE;
+            publishOrDefer(conversation, indicator);
+        }
+    }
+
+    // Idle indicators with no pending timeouts hold nothing worth keeping
+    private void retireIfIdle(Conversation conversation, Indicator indicator) {
+        if (indicator.published == State.IDLE && indicator.latest == State.IDLE
+                && !indicator.flushScheduled && !indicator.expiryScheduled) {
+            indicator.retired = true;
+            indicators.remove(conversation, indicator);
+        }
+    }
+
+    private void send(Conversation conversation, State state) {
+        published.increment();
+        TypingEventDTO event = new TypingEventDTO(conversation.senderId(), conversation.peerId(), conversation.group(), state);
+        if (conversation.group()) {
+            // Subscribing to the typing topic is not enough; only current members receive it
+            groupFanoutService.broadcastTyping(conversation.peerId(), event);
+        } else if (chatappUserService.isConnected(conversation.peerId())) {
+            messagingTemplate.convertAndSend("/topic/user/" + conversation.peerId() + "/queue/typing", event);
+        }
+    }
+
+    // Fixed one-second window per sender, reset by the timer
+    private boolean admit(Long senderId) {
+        int count = senderEvents.merge(senderId, 1, Integer::sum);
+        if (count == 1) {
+            timer.schedule(() -> senderEvents.remove(senderId), 1000);
+        }
+        return count <= maxEventsPerSecond;
+    }
+
+    private static Counter typingCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("hermes.typing.events")
+                .tag("outcome", outcome)
+                .description("Typing indicator updates by what happened to them")
+                .register(meterRegistry);
+    }
+}
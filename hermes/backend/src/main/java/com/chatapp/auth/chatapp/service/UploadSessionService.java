@@ -0,0 +1,260 @@
+package com.chatapp.auth.chatapp.service;
+
+import com.chatapp.auth.chatapp.components.UploadSession;
+import com.chatapp.auth.model.StorageUsage.OwnerType;
+import com.chatapp.auth.model.UploadedFile;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resumable, chunked uploads that stream straight to a partial file on disk.
+ * Each chunk is copied through one fixed-size buffer, so memory per upload is bounded
+ * regardless of file size. The content hash is updated as chunks arrive, so completing
+ * an upload needs no second pass before {@link FileService} moves it into place.
+ * Sessions live in memory only; each partial file has a small {@code .charge} file beside it
+ * recording what its uploader was charged, so a restart can give back the charges of the
+ * sessions it lost.
+ */
+@Service
+public class UploadSessionService {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadSessionService.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String CHARGE_SUFFIX = ".charge";
+
+    private final FileService fileService;
+    private final QuotaService quotaService;
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    @Value("${uploadedFile.upload-dir}")
+    private String uploadDir;
+
+    @Value("${uploadedFile.max-size:10485760}")
+    private long maxFileSize;
+
+    @Value("${uploadedFile.session-ttl:3600000}")
+    private long sessionTtl;
+
+    public UploadSessionService(FileService fileService, QuotaService quotaService) {
+        this.fileService = fileService;
+        this.quotaService = quotaService;
+    }
+
+    /**
+     * Nothing a previous run left in the partial directory can complete, as its sessions are gone.
+     * Runs before the server accepts uploads: releases what those sessions were charged, which may
+     * already have been flushed, and deletes their files.
+     */
+    @PostConstruct
+    public void discardAbandonedUploads() {
+        Path partialDir = partialDir();
+        if (!Files.isDirectory(partialDir)) {
+            return;
+        }
+        int discarded = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(partialDir)) {
+            for (Path entry : entries) {
+                try {
+                    if (entry.getFileName().toString().endsWith(CHARGE_SUFFIX)) {
+                        String[] charge = Files.readString(entry).trim().split(" ");
+                        // Deleted first: a charge released twice would hand out free quota
+                        Files.delete(entry);
+                        quotaService.release(OwnerType.USER, Long.parseLong(charge[0]), Long.parseLong(charge[1]));
+                        discarded++;
+                    } else {
+                        Files.deleteIfExists(entry);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Failed to discard abandoned upload {}: {}", entry, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to clean partial uploads in {}: {}", partialDir, e.getMessage());
+        }
+        if (discarded > 0) {
+            log.info("Discarded {} uploads abandoned by the previous run", discarded);
+        }
+    }
+
+    public UploadSession start(Long userId, String fileName, String contentType, long size) throws IOException {
+        if (size <= 0 || size > maxFileSize) {
+            throw new IllegalArgumentException("File size must be between 1 and " + maxFileSize + " bytes");
+        }
+
+        // Charged up front so an over-quota upload is refused before any bytes are read
+        quotaService.admitUpload(userId, size);
+
+        String uploadId = UUID.randomUUID().toString();
+        Path partialFile = partialDir().resolve(uploadId);
+        try {
+            Files.createDirectories(partialFile.getParent());
+            Files.writeString(chargeFile(partialFile), userId + " " + size);
+            Files.createFile(partialFile);
+        } catch (IOException e) {
+            quotaService.cancelUpload(userId, size);
+            forgetCharge(partialFile);
+            throw e;
+        }
+
+        UploadSession session = new UploadSession(uploadId, userId, fileName, contentType, size, partialFile);
+        session.setDigest(FileService.newDigest());
+        sessions.put(uploadId, session);
+        log.info("Started upload {} for user {}: '{}' ({} bytes)", uploadId, userId, fileName, size);
+        return session;
+    }
+
+    public UploadSession get(String uploadId, Long userId) {
+        UploadSession session = sessions.get(uploadId);
+        if (session == null || !session.getUserId().equals(userId)) {
+            throw new NoSuchElementException("Upload not found: " + uploadId);
+        }
+        return session;
+    }
+
+    /**
+     * Appends one chunk. Chunks must arrive in order: {@code start} has to equal the number of
+     * bytes already received, which a client can always re-read to resume after a failure.
+     * @return the stored file once the last byte has been received, otherwise null
+     */
+    public UploadedFile append(String uploadId, Long userId, long start, long length, InputStream body) throws IOException {
+        UploadSession session = get(uploadId, userId);
+
+        synchronized (session) {
+            if (start != session.getReceived()) {
+                throw new IllegalStateException("Expected chunk at offset " + session.getReceived() + " but got " + start);
+            }
+            long remaining = session.getSize() - start;
+            if (length > remaining) {
+                throw new IllegalArgumentException("Chunk exceeds declared file size");
+            }
+
+            long written;
+            try {
+                written = writeChunk(session.getPartialFile(), start, length, body, session.getDigest());
+            } catch (IOException e) {
+                // Part of the chunk may already be in the digest; hash from disk on completion instead
+                session.setDigest(null);
+                throw e;
+            }
+            session.setReceived(start + written);
+            session.setLastActivity(System.currentTimeMillis());
+
+            if (!session.isComplete()) {
+                return null;
+            }
+
+            if (sessions.remove(uploadId) == null) {
+                // Discarded as stale while this chunk was being written
+                throw new NoSuchElementException("Upload not found: " + uploadId);
+            }
+            String contentHash = session.getDigest() != null ? HexFormat.of().formatHex(session.getDigest().digest()) : null;
+            UploadedFile uploadedFile;
+            try {
+                uploadedFile = fileService.storeUploadedFile(
+                        session.getPartialFile(), contentHash, session.getFileName(), session.getContentType(), userId,
+                        session.getSize());
+            } catch (IOException | RuntimeException e) {
+                quotaService.cancelUpload(userId, session.getSize());
+                forgetCharge(session.getPartialFile());
+                throw e;
+            }
+            quotaService.completeUpload(session.getSize());
+            forgetCharge(session.getPartialFile());
+            log.info("Completed upload {} as file {}", uploadId, uploadedFile.getFiles_id());
+            return uploadedFile;
+        }
+    }
+
+    public void abort(String uploadId, Long userId) throws IOException {
+        UploadSession session = get(uploadId, userId);
+        if (sessions.remove(uploadId) != null) {
+            quotaService.cancelUpload(userId, session.getSize());
+            forgetCharge(session.getPartialFile());
+        }
+        Files.deleteIfExists(session.getPartialFile());
+        log.info("Aborted upload {}", uploadId);
+    }
+
+    @Scheduled(fixedDelayString = "${uploadedFile.session-purge-interval:600000}")
+    public void purgeStaleSessions() {
+        long cutoff = System.currentTimeMillis() - sessionTtl;
+        sessions.values().removeIf(session -> {
+            if (session.getLastActivity() >= cutoff) {
+                return false;
+            }
+            try {
+                Files.deleteIfExists(session.getPartialFile());
+            } catch (IOException e) {
+                log.warn("Failed to delete stale partial upload {}: {}", session.getPartialFile(), e.getMessage());
+            }
+            quotaService.cancelUpload(session.getUserId(), session.getSize());
+            forgetCharge(session.getPartialFile());
+            log.info("Discarded stale upload {}", session.getUploadId());
+            return true;
+        });
+    }
+
+    // Partial files live under the upload directory so the local driver can commit them with a rename
+    private Path partialDir() {
+        return Paths.get(uploadDir, ".partial").toAbsolutePath().normalize();
+    }
+
+    private static Path chargeFile(Path partialFile) {
+        return partialFile.resolveSibling(partialFile.getFileName() + CHARGE_SUFFIX);
+    }
+
+    // Once the charge is settled, so a restart doesn't release it a second time
+    private void forgetCharge(Path partialFile) {
+        try {
+            Files.deleteIfExists(chargeFile(partialFile));
+        } catch (IOException e) {
+            log.warn("Failed to delete upload charge for {}: {}", partialFile, e.getMessage());
+        }
+    }
+
+    // Copies at most length bytes of the body to the file at position start; a short body is allowed
+    private long writeChunk(Path partialFile, long start, long length, InputStream body, MessageDigest digest) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long written = 0;
+        try (FileChannel channel = FileChannel.open(partialFile, StandardOpenOption.WRITE)) {
+            channel.position(start);
+            while (written < length) {
+                int read = body.read(buffer, 0, (int) Math.min(buffer.length, length - written));
+                if (read < 0) {
+                    break;
+                }
+                ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                while (chunk.hasRemaining()) {
+                    channel.write(chunk);
+                }
+                if (digest != null) {
+                    digest.update(buffer, 0, read);
+                }
+                written += read;
+            }
+            // Drop anything a failed earlier attempt may have left beyond the new end
+            channel.truncate(start + written);
+        }
+        return written;
+    }
+}
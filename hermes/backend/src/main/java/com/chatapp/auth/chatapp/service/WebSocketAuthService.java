@@ -0,0 +1,58 @@
+package com.chatapp.auth.chatapp.service;
+
+import com.chatapp.auth.Auth.service.JwtService;
+import com.chatapp.auth.Auth.service.TokenRevocationService;
+import com.chatapp.auth.chatapp.components.StompPrincipal;
+import com.chatapp.auth.model.User;
+import io.jsonwebtoken.Claims;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.stereotype.Service;
+
+@Service
+public class WebSocketAuthService {
+
+    private static final Logger log = LoggerFactory.getLogger(WebSocketAuthService.class);
+
+    private final JwtService jwtService;
+    private final UserDetailsService userDetailsService;
+    private final TokenRevocationService tokenRevocationService;
+
+    public WebSocketAuthService(JwtService jwtService, UserDetailsService userDetailsService,
+                                TokenRevocationService tokenRevocationService) {
+        this.jwtService = jwtService;
+        this.userDetailsService = userDetailsService;
+        this.tokenRevocationService = tokenRevocationService;
+    }
+
+    /**
+     * Validates the token and resolves the session identity.
+     * This is the only place a WebSocket session parses its JWT or loads its user.
+     * @throws IllegalArgumentException if the token is missing, invalid or expired
+     */
+    public StompPrincipal authenticate(String token) {
+        if (token == null || token.isBlank()) {
+            throw new IllegalArgumentException("Missing JWT token");
+        }
+
+        Claims claims;
+        try {
+            claims = jwtService.parseAccessToken(token);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid JWT token", e);
+        }
+
+        String username = claims.getSubject();
+        if (username == null) {
+            throw new IllegalArgumentException("Invalid JWT token: Username not found");
+        }
+        if (tokenRevocationService.isRevoked(claims)) {
+            throw new IllegalArgumentException("JWT token has been revoked");
+        }
+
+        User user = (User) userDetailsService.loadUserByUsername(username);
+        log.debug("Resolved WebSocket principal for user '{}' (id {})", username, user.getId());
+        return new StompPrincipal(user.getId(), user.getUsername());
+    }
+}
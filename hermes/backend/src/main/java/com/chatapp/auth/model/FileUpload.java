@@ -0,0 +1,41 @@
+package com.chatapp.auth.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Records that a user uploaded the bytes behind a (possibly deduplicated) file.
+ * Only users with such a row may attach the file to a message.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "file_uploads", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_file_upload_file_user", columnNames = {"file_id", "user_id"})
+})
+public class FileUpload {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "file_id", nullable = false)
+    private Long fileId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private LocalDateTime uploadedAt;
+
+    public FileUpload(Long fileId, Long userId) {
+        this.fileId = fileId;
+        this.userId = userId;
+        this.uploadedAt = LocalDateTime.now();
+    }
+}
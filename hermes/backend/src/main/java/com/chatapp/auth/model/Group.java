@@ -11,16 +11,25 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "Group_Chats") // Table for messages
+@Table(name = "Group_Chats", indexes = { // Table for messages
+        @Index(name = "idx_group_chats_group_id", columnList = "group_id, id"),
+        @Index(name = "idx_group_chats_body_ref", columnList = "body_ref")
+})
 public class Group {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable = false)
+    // Never rewritten, so a body loaded from the segment log is not flushed back into the row
+    @Column(nullable = false, updatable = false)
     private String content;
 
+    // Locator in the segment log when messages.body-store=segment; content is then loaded from there
+    @Column(name = "body_ref")
+    @JsonIgnore
+    private Long bodyRef;
+
     @Column(nullable = false)
     private LocalDateTime timestamp;
 
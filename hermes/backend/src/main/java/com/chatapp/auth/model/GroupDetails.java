@@ -1,10 +1,12 @@
 package com.chatapp.auth.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.List;
@@ -14,7 +16,10 @@ import java.util.Set;
 @Setter
 @NoArgsConstructor
 @Entity
-@Table(name = "Group_Name")
+@Table(name = "Group_Name", indexes = {
+        // Nodes poll for groups whose membership changed since their last sync
+        @Index(name = "idx_group_members_changed", columnList = "members_changed_at")
+})
 public class GroupDetails {
 
     @Id
@@ -33,6 +38,8 @@ public class GroupDetails {
     @OneToMany(mappedBy = "groupId", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Group> groupChats; // Messages in the group
 
+    // Large groups are never loaded whole; see GroupMembershipService
+    @JsonIgnore
     @ManyToMany(fetch = FetchType.LAZY, cascade = {CascadeType.PERSIST, CascadeType.MERGE})
     @JoinTable(
             name = "Group_Members",
@@ -41,6 +48,10 @@ public class GroupDetails {
     )
     private Set<User> members = new HashSet<>(); // Users in the group
 
+    @JsonIgnore
+    @Column(name = "members_changed_at")
+    private Instant membersChangedAt; // Bumped with every membership change so other nodes drop cached members
+
     public GroupDetails(String groupName, Long createdBy) {
         this.groupName = groupName;
         this.createdBy = createdBy;
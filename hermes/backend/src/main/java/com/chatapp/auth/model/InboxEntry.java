@@ -0,0 +1,74 @@
+package com.chatapp.auth.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * One conversation in a user's inbox, kept current by the message write paths so the
+ * conversation list is a single indexed read instead of one query per conversation.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "inbox_entries", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_inbox_entries_conversation", columnNames = {"user_id", "conversation_type", "peer_id"})
+}, indexes = {
+        // The inbox page walks a user's conversations by latest activity
+        @Index(name = "idx_inbox_entries_activity", columnList = "user_id, last_message_at, id"),
+        // A group message touches every member's entry for that group
+        @Index(name = "idx_inbox_entries_peer", columnList = "conversation_type, peer_id")
+})
+public class InboxEntry {
+
+    public enum ConversationType {
+        DIRECT,
+        GROUP
+    }
+
+    public static final int PREVIEW_LENGTH = 100;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "conversation_type", nullable = false, length = 16)
+    private ConversationType conversationType;
+
+    @Column(name = "peer_id", nullable = false)
+    private Long peerId; // The other user, or the group
+
+    @Column(name = "last_message_id", nullable = false)
+    private long lastMessageId; // 0 until the first message
+
+    @Column(name = "last_sender_id")
+    private Long lastSenderId;
+
+    @Column(length = PREVIEW_LENGTH)
+    private String preview;
+
+    @Column(name = "last_message_at", nullable = false)
+    private LocalDateTime lastMessageAt;
+
+    // Highest message ID the user has reported as seen
+    @Column(name = "last_read_message_id", nullable = false)
+    private long lastReadMessageId;
+
+    @Column(name = "unread_count", nullable = false)
+    private int unreadCount;
+
+    public InboxEntry(Long userId, ConversationType conversationType, Long peerId, LocalDateTime lastMessageAt) {
+        this.userId = userId;
+        this.conversationType = conversationType;
+        this.peerId = peerId;
+        this.lastMessageAt = lastMessageAt;
+    }
+}
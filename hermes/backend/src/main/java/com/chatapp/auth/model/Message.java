@@ -9,16 +9,25 @@ import java.time.LocalDateTime;
 @Getter
 @Setter
 @Entity
-@Table(name = "messages")
+@Table(name = "messages", indexes = {
+        // Conversation history and the media gallery walk one sender/receiver pair by ID
+        @Index(name = "idx_messages_pair_id", columnList = "sender_id, receiver_id, id"),
+        @Index(name = "idx_messages_body_ref", columnList = "body_ref")
+})
 public class Message {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable = false)
+    // Never rewritten, so a body loaded from the segment log is not flushed back into the row
+    @Column(nullable = false, updatable = false)
     private String content;
 
+    // Locator in the segment log when messages.body-store=segment; content is then loaded from there
+    @Column(name = "body_ref")
+    private Long bodyRef;
+
     @Column(nullable = false)
     private LocalDateTime timestamp;
 
@@ -0,0 +1,57 @@
+package com.chatapp.auth.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Short-lived verification or password-reset code awaiting confirmation.
+ * Rows are looked up by (email, purpose, code hash) and removed once used or expired,
+ * so the plain code is never stored and lookups never scan the users table.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "pending_verifications", indexes = {
+        @Index(name = "idx_pending_verification_key", columnList = "email, purpose, code_hash", unique = true),
+        @Index(name = "idx_pending_verification_expiry", columnList = "expires_at")
+})
+public class PendingVerification {
+
+    public enum Purpose {
+        EMAIL_VERIFICATION,
+        PASSWORD_RESET
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String email;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private Purpose purpose;
+
+    @Column(name = "code_hash", nullable = false, length = 64)
+    private String codeHash;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    public PendingVerification(String email, Purpose purpose, String codeHash, LocalDateTime expiresAt) {
+        this.email = email;
+        this.purpose = purpose;
+        this.codeHash = codeHash;
+        this.expiresAt = expiresAt;
+    }
+
+    public boolean isExpired() {
+        return expiresAt.isBefore(LocalDateTime.now());
+    }
+}
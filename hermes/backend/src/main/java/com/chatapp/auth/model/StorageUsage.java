@@ -0,0 +1,49 @@
+package com.chatapp.auth.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Last persisted storage usage of a user or group. The live figure is kept in memory
+ * and written back here periodically.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "storage_usage", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_storage_usage_owner", columnNames = {"owner_type", "owner_id"})
+})
+public class StorageUsage {
+
+    public enum OwnerType {
+        USER,
+        GROUP
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "owner_type", nullable = false, length = 16)
+    private OwnerType ownerType;
+
+    @Column(name = "owner_id", nullable = false)
+    private Long ownerId;
+
+    @Column(name = "bytes_used", nullable = false)
+    private long bytesUsed;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    public StorageUsage(OwnerType ownerType, Long ownerId) {
+        this.ownerType = ownerType;
+        this.ownerId = ownerId;
+    }
+}
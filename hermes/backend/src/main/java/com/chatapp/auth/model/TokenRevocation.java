@@ -0,0 +1,60 @@
+package com.chatapp.auth.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Shared revocation record that every node replays into its in-memory revocation state.
+ * A TOKEN row revokes a single JWT by its jti; a USER row revokes every token issued to
+ * the user at or before {@code issuedBefore}. There is at most one row per kind and subject,
+ * so the database decides which node wins when two of them revoke the same token.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "token_revocations", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_token_revocation_subject", columnNames = {"kind", "subject"})
+}, indexes = {
+        @Index(name = "idx_token_revocation_created", columnList = "created_at"),
+        @Index(name = "idx_token_revocation_expiry", columnList = "expires_at")
+})
+public class TokenRevocation {
+
+    public enum Kind {
+        TOKEN,
+        USER
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Kind kind;
+
+    @Column(name = "subject", nullable = false)
+    private String subject; // jti for TOKEN rows, username for USER rows
+
+    @Column(name = "issued_before")
+    private Instant issuedBefore;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt; // Row is useless once every token it could match has expired
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    public TokenRevocation(Kind kind, String subject, Instant issuedBefore, Instant expiresAt) {
+        this.kind = kind;
+        this.subject = subject;
+        this.issuedBefore = issuedBefore;
+        this.expiresAt = expiresAt;
+        this.createdAt = Instant.now();
+    }
+}
@@ -30,6 +30,18 @@ public class UploadedFile {
 
     LocalDateTime upload_time;
 
+    // SHA-256 of the content; identical uploads share one row and one blob on disk
+    @Column(name = "content_hash", unique = true, length = 64)
+    String contentHash;
+
+    // Comma-separated edge lengths of the generated thumbnails; null until previews exist
+    @Column(name = "thumbnail_sizes")
+    String thumbnailSizes;
+
+    // 4x4 grid of average colours as hex, small enough to ship with every message
+    @Column(length = 96)
+    String placeholder;
+
     @OneToMany(mappedBy = "uploadedFile")
     private List<Message> messages;
 
@@ -7,7 +7,6 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
-import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
@@ -34,14 +33,6 @@ public class User implements UserDetails {
 
     private boolean enabled;
 
-    private String verificationCode;
-
-    private LocalDateTime verificationCodeExpired;
-
-    private String passwordResetCode;
-
-    private LocalDateTime passwordResetCodeExpired;
-
     private boolean online;
 
     @ManyToMany(fetch = FetchType.EAGER)
@@ -77,9 +68,5 @@ public class User implements UserDetails {
                 .collect(Collectors.toList());
     }
 
-    public boolean isPasswordResetCodeExpired() {
-        return passwordResetCodeExpired != null && passwordResetCodeExpired.isBefore(LocalDateTime.now());
-    }
-
     // Other necessary methods like `getPassword`, `getUsername`, etc.
 }
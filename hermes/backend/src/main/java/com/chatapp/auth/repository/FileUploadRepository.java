@@ -0,0 +1,29 @@
+package com.chatapp.auth.repository;
+
+import com.chatapp.auth.model.FileUpload;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface FileUploadRepository extends JpaRepository<FileUpload, Long> {
+    boolean existsByFileIdAndUserId(Long fileId, Long userId);
+
+    @Query("SELECT u.userId FROM FileUpload u WHERE u.fileId = :fileId")
+    List<Long> findUserIdsByFileId(Long fileId);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE FileUpload u SET u.uploadedAt = :uploadedAt WHERE u.fileId = :fileId AND u.userId = :userId")
+    int touch(Long fileId, Long userId, LocalDateTime uploadedAt);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM FileUpload u WHERE u.fileId = :fileId")
+    int deleteByFileId(Long fileId);
+}
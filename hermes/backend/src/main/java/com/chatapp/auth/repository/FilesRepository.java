@@ -1,22 +1,62 @@
 package com.chatapp.auth.repository;
 
+import com.chatapp.auth.chatapp.DTO.MediaItemDTO;
 import com.chatapp.auth.model.UploadedFile;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface FilesRepository extends JpaRepository<UploadedFile,Long> {
-    List<UploadedFile> findByMessagesReceiverIdAndMessagesTimestampBetween(Long groupId,
-                                                                           LocalDateTime startDateTime,
-                                                                           LocalDateTime endDateTime);
+    // Newest first, keyset-paginated on the message ID; typePattern is a LIKE pattern or null for all types
+    @Query("SELECT new com.chatapp.auth.chatapp.DTO.MediaItemDTO(m.id, f.files_id, f.name, f.type, f.size, " +
+            "m.timestamp, m.senderId, f.thumbnailSizes, f.placeholder) " +
+            "FROM Message m JOIN m.uploadedFile f WHERE " +
+            "((m.senderId = :userId AND m.receiverId = :peerId) OR (m.senderId = :peerId AND m.receiverId = :userId)) " +
+            "AND m.id < :cursor AND (:typePattern IS NULL OR f.type LIKE :typePattern) " +
+            "ORDER BY m.id DESC")
+    List<MediaItemDTO> findDirectMedia(Long userId, Long peerId, Long cursor, String typePattern, Pageable page);
 
-    List<UploadedFile> findByMessagesSenderIdAndMessagesReceiverIdAndMessagesTimestampBetween(Long senderId,
-                                                                                              Long receiverId,
-                                                                                              LocalDateTime startDateTime,
-                                                                                              LocalDateTime endDateTime);
+    @Query("SELECT new com.chatapp.auth.chatapp.DTO.MediaItemDTO(g.id, f.files_id, f.name, f.type, f.size, " +
+            "g.timestamp, g.senderId, f.thumbnailSizes, f.placeholder) " +
+            "FROM Group g JOIN g.uploadedFile f WHERE g.groupId.id = :groupId " +
+            "AND g.id < :cursor AND (:typePattern IS NULL OR f.type LIKE :typePattern) " +
+            "ORDER BY g.id DESC")
+    List<MediaItemDTO> findGroupMedia(Long groupId, Long cursor, String typePattern, Pageable page);
 
+    Optional<UploadedFile> findByContentHash(String contentHash);
+
+    boolean existsByContentHash(String contentHash);
+
+    /**
+     * Files past the grace period that no message referenced at or after {@code referencedSince}
+     * and nobody uploaded again since {@code cutoff}, walked in ID order from the cursor.
+     */
+    @Query("SELECT f FROM UploadedFile f WHERE f.files_id > :cursor AND f.upload_time < :cutoff " +
+            "AND NOT EXISTS (SELECT m.id FROM Message m WHERE m.uploadedFile = f AND m.timestamp >= :referencedSince) " +
+            "AND NOT EXISTS (SELECT g.id FROM Group g WHERE g.uploadedFile = f AND g.timestamp >= :referencedSince) " +
+            "AND NOT EXISTS (SELECT u.id FROM FileUpload u WHERE u.fileId = f.files_id AND u.uploadedAt >= :cutoff) " +
+            "ORDER BY f.files_id")
+    List<UploadedFile> findGcCandidates(Long cursor, LocalDateTime cutoff, LocalDateTime referencedSince, Pageable page);
+
+    // The row only goes if nothing points at it at delete time
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UploadedFile f WHERE f.files_id = :fileId " +
+            "AND NOT EXISTS (SELECT m.id FROM Message m WHERE m.uploadedFile.files_id = :fileId) " +
+            "AND NOT EXISTS (SELECT g.id FROM Group g WHERE g.uploadedFile.files_id = :fileId)")
+    int deleteIfUnreferenced(Long fileId);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadedFile f SET f.thumbnailSizes = :sizes, f.placeholder = :placeholder WHERE f.files_id = :fileId")
+    int updatePreview(Long fileId, String sizes, String placeholder);
 
 }
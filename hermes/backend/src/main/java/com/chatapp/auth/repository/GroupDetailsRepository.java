@@ -1,13 +1,61 @@
 package com.chatapp.auth.repository;
 
+import com.chatapp.auth.chatapp.DTO.UserDataDto;
 import com.chatapp.auth.model.GroupDetails;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface GroupDetailsRepository extends JpaRepository<GroupDetails, Long> {
     boolean existsByGroupName(String groupName);
     List<GroupDetails> findByGroupNameContainingIgnoreCase(String query);
+    List<GroupDetails> findByGroupNameContainingIgnoreCase(String query, Pageable page);
+    boolean existsByIdAndMembersId(Long groupId, Long userId);
+
+    // Keyset walk used to build the in-memory search index
+    @Query("SELECT new com.chatapp.auth.chatapp.DTO.UserDataDto(g.id, g.groupName, true) FROM GroupDetails g " +
+            "WHERE g.id > :after ORDER BY g.id")
+    List<UserDataDto> findSearchEntriesAfter(Long after, Pageable page);
+
+    // Membership is read and written through the join table, so no member collection is ever loaded
+
+    @Query(value = "SELECT user_id FROM group_members WHERE group_id = :groupId", nativeQuery = true)
+    List<Long> findMemberIds(Long groupId);
+
+    // Keyset page of members in user ID order
+    @Query("SELECT new com.chatapp.auth.chatapp.DTO.UserDataDto(u.id, u.username, false) " +
+            "FROM GroupDetails g JOIN g.members u WHERE g.id = :groupId AND u.id > :after ORDER BY u.id")
+    List<UserDataDto> findMembersAfter(Long groupId, Long after, Pageable page);
+
+    // Existing users among the IDs that are not yet members
+    @Query(value = "SELECT u.id FROM users u WHERE u.id IN (:userIds) AND NOT EXISTS " +
+            "(SELECT 1 FROM group_members gm WHERE gm.group_id = :groupId AND gm.user_id = u.id)", nativeQuery = true)
+    List<Long> findNewMemberIds(Long groupId, Collection<Long> userIds);
+
+    @Query(value = "SELECT user_id FROM group_members WHERE group_id = :groupId AND user_id IN (:userIds)", nativeQuery = true)
+    List<Long> findMemberIdsIn(Long groupId, Collection<Long> userIds);
+
+    // One multi-row statement per batch; a concurrent insert of the same pair is absorbed
+    @Modifying
+    @Query(value = "INSERT INTO group_members (group_id, user_id) " +
+            "SELECT :groupId, u.id FROM users u WHERE u.id IN (:userIds) " +
+            "ON DUPLICATE KEY UPDATE user_id = user_id", nativeQuery = true)
+    int insertMembers(Long groupId, Collection<Long> userIds);
+
+    @Modifying
+    @Query(value = "DELETE FROM group_members WHERE group_id = :groupId AND user_id IN (:userIds)", nativeQuery = true)
+    int deleteMembers(Long groupId, Collection<Long> userIds);
+
+    @Modifying
+    @Query("UPDATE GroupDetails g SET g.membersChangedAt = :at WHERE g.id = :groupId")
+    int markMembersChanged(Long groupId, Instant at);
+
+    List<GroupDetails> findByMembersChangedAtAfter(Instant since);
 }
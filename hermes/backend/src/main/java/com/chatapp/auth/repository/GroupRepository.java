@@ -1,8 +1,13 @@
 package com.chatapp.auth.repository;
 
+import com.chatapp.auth.chatapp.DTO.MessageSearchHitDTO;
 import com.chatapp.auth.model.Group;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -14,4 +19,30 @@ public interface GroupRepository extends JpaRepository<Group, Long> {
     List<Group> findByGroupId_Id(Long groupId);  // Use `groupId_Id` to refer to the ID of the GroupDetails
     List<Group> findByGroupIdIdAndTimestampBetween(Long groupId, LocalDateTime startDateTime, LocalDateTime endDateTime);
 
+    @Transactional
+    @Modifying
+    @Query("UPDATE Group g SET g.uploadedFile = null WHERE g.uploadedFile.files_id = :fileId")
+    int detachFile(Long fileId);
+
+    // One entry per message, since a group is charged for every post of the file
+    @Query("SELECT g.groupId.id FROM Group g WHERE g.uploadedFile.files_id = :fileId")
+    List<Long> findGroupIdsByFileId(Long fileId);
+
+    // Body locators inside one message log segment, for compaction
+    @Query("SELECT g.bodyRef FROM Group g WHERE g.bodyRef >= :from AND g.bodyRef < :to")
+    List<Long> findBodyRefs(long from, long to);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Group g SET g.bodyRef = :to WHERE g.bodyRef = :from")
+    int moveBody(long from, long to);
+
+    // One ID range of the full-text index rebuild; ranges are loaded in parallel
+    @Query("SELECT new com.chatapp.auth.chatapp.DTO.MessageSearchHitDTO(g.id, g.senderId, g.groupId.id, true, g.content, g.bodyRef, g.timestamp) " +
+            "FROM Group g WHERE g.id > :after AND g.id <= :upTo ORDER BY g.id")
+    List<MessageSearchHitDTO> findSearchEntries(long after, long upTo, Pageable page);
+
+    @Query("SELECT COALESCE(MAX(g.id), 0) FROM Group g")
+    long findMaxId();
+
 }
@@ -0,0 +1,114 @@
+package com.chatapp.auth.repository;
+
+import com.chatapp.auth.chatapp.DTO.InboxItemDTO;
+import com.chatapp.auth.model.InboxEntry;
+import com.chatapp.auth.model.InboxEntry.ConversationType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface InboxEntryRepository extends JpaRepository<InboxEntry, Long> {
+
+    // Newest activity first; the cursor is the (lastMessageAt, id) of the previous page's last row
+    @Query("SELECT new com.chatapp.auth.chatapp.DTO.InboxItemDTO(e.conversationType, e.peerId, " +
+            "COALESCE(u.username, g.groupName), e.lastMessageId, e.lastSenderId, e.preview, e.lastMessageAt, " +
+            "e.lastReadMessageId, e.unreadCount, e.id) " +
+            "FROM InboxEntry e " +
+            "LEFT JOIN User u ON e.conversationType = :directType AND u.id = e.peerId " +
+            "LEFT JOIN GroupDetails g ON e.conversationType = :groupType AND g.id = e.peerId " +
+            "WHERE e.userId = :userId " +
+            "AND (:at IS NULL OR e.lastMessageAt < :at OR (e.lastMessageAt = :at AND e.id < :id)) " +
+            "ORDER BY e.lastMessageAt DESC, e.id DESC")
+    List<InboxItemDTO> findPage(Long userId, LocalDateTime at, Long id, ConversationType directType, ConversationType groupType,
+                                Pageable page);
+
+    /**
+     * Records a message in one user's entry, creating the entry on the first message.
+     * Preview fields only move forward, so messages committing out of order can't rewind them;
+     * last_message_id is assigned last because MySQL applies these assignments left to right.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO inbox_entries (user_id, conversation_type, peer_id, last_message_id, last_sender_id, " +
+            "preview, last_message_at, last_read_message_id, unread_count) " +
+            "VALUES (:userId, :type, :peerId, :messageId, :senderId, :preview, :at, :readUpTo, :unread) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "last_sender_id = IF(VALUES(last_message_id) > last_message_id, VALUES(last_sender_id), last_sender_id), " +
+            "preview = IF(VALUES(last_message_id) > last_message_id, VALUES(preview), preview), " +
+            "last_message_at = IF(VALUES(last_message_id) > last_message_id, VALUES(last_message_at), last_message_at), " +
+            "unread_count = unread_count + VALUES(unread_count), " +
+            "last_read_message_id = GREATEST(last_read_message_id, VALUES(last_read_message_id)), " +
+            "last_message_id = GREATEST(last_message_id, VALUES(last_message_id))",
+            nativeQuery = true)
+    int upsertMessage(Long userId, String type, Long peerId, long messageId, Long senderId, String preview,
+                      LocalDateTime at, long readUpTo, int unread);
+
+    // A run of group messages, ending with messageId, as seen by every member who sent none of them
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE inbox_entries SET " +
+            "last_sender_id = IF(:messageId > last_message_id, :senderId, last_sender_id), " +
+            "preview = IF(:messageId > last_message_id, :preview, preview), " +
+            "last_message_at = IF(:messageId > last_message_id, :at, last_message_at), " +
+            "unread_count = unread_count + :count, " +
+            "last_message_id = GREATEST(last_message_id, :messageId) " +
+            "WHERE conversation_type = 'GROUP' AND peer_id = :groupId AND user_id NOT IN (:senderIds)",
+            nativeQuery = true)
+    int recordGroupMessages(Long groupId, long messageId, Long senderId, String preview, LocalDateTime at, int count,
+                            Collection<Long> senderIds);
+
+    /**
+     * One-off backfill of group entries for existing memberships, with each group's latest message.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO inbox_entries (user_id, conversation_type, peer_id, last_message_id, last_sender_id, " +
+            "preview, last_message_at, last_read_message_id, unread_count) " +
+            "SELECT gm.user_id, 'GROUP', gm.group_id, COALESCE(c.id, 0), c.sender_id, LEFT(c.content, 100), " +
+            "COALESCE(c.timestamp, g.created_at), COALESCE(c.id, 0), 0 " +
+            "FROM group_members gm JOIN group_name g ON g.id = gm.group_id " +
+            "LEFT JOIN group_chats c ON c.id = (SELECT MAX(c2.id) FROM group_chats c2 WHERE c2.group_id = gm.group_id)",
+            nativeQuery = true)
+    int backfillGroups();
+
+    /**
+     * One-off backfill of direct entries for both sides of every existing conversation.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO inbox_entries (user_id, conversation_type, peer_id, last_message_id, last_sender_id, " +
+            "preview, last_message_at, last_read_message_id, unread_count) " +
+            "SELECT p.user_id, 'DIRECT', p.peer_id, m.id, m.sender_id, LEFT(m.content, 100), m.timestamp, m.id, 0 " +
+            "FROM (SELECT user_id, peer_id, MAX(last_id) AS last_id FROM (" +
+            "SELECT sender_id AS user_id, receiver_id AS peer_id, MAX(id) AS last_id FROM messages " +
+            "WHERE receiver_id IS NOT NULL GROUP BY sender_id, receiver_id " +
+            "UNION ALL " +
+            "SELECT receiver_id, sender_id, MAX(id) FROM messages " +
+            "WHERE receiver_id IS NOT NULL GROUP BY sender_id, receiver_id" +
+            ") pairs GROUP BY user_id, peer_id) p " +
+            "JOIN messages m ON m.id = p.last_id",
+            nativeQuery = true)
+    int backfillDirect();
+
+    // Entries for members joining an existing group; members who already have one keep it
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO inbox_entries (user_id, conversation_type, peer_id, last_message_id, last_message_at, " +
+            "last_read_message_id, unread_count) " +
+            "SELECT u.id, 'GROUP', :groupId, 0, :at, 0, 0 FROM users u WHERE u.id IN (:userIds) " +
+            "ON DUPLICATE KEY UPDATE user_id = user_id", nativeQuery = true)
+    int insertGroupEntries(Long groupId, Collection<Long> userIds, LocalDateTime at);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM InboxEntry e WHERE e.conversationType = :groupType AND e.peerId = :groupId AND e.userId IN :userIds")
+    int deleteGroupEntries(Long groupId, Collection<Long> userIds, ConversationType groupType);
+}
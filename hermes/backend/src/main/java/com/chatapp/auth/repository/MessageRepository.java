@@ -1,9 +1,13 @@
 package com.chatapp.auth.repository;
 
+import com.chatapp.auth.chatapp.DTO.MessageSearchHitDTO;
 import com.chatapp.auth.model.Message;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -17,4 +21,27 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
             "ORDER BY m.timestamp ASC")
     List<Message> findMessagesBetweenUsers(Long senderId, Long receiverId, LocalDateTime startDateTime, LocalDateTime endDateTime);
 
+    // Used when an attachment expires; the message itself stays in the history
+    @Transactional
+    @Modifying
+    @Query("UPDATE Message m SET m.uploadedFile = null WHERE m.uploadedFile.files_id = :fileId")
+    int detachFile(Long fileId);
+
+    // Body locators inside one message log segment, for compaction
+    @Query("SELECT m.bodyRef FROM Message m WHERE m.bodyRef >= :from AND m.bodyRef < :to")
+    List<Long> findBodyRefs(long from, long to);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Message m SET m.bodyRef = :to WHERE m.bodyRef = :from")
+    int moveBody(long from, long to);
+
+    // One ID range of the full-text index rebuild; ranges are loaded in parallel
+    @Query("SELECT new com.chatapp.auth.chatapp.DTO.MessageSearchHitDTO(m.id, m.senderId, m.receiverId, false, m.content, m.bodyRef, m.timestamp) " +
+            "FROM Message m WHERE m.id > :after AND m.id <= :upTo ORDER BY m.id")
+    List<MessageSearchHitDTO> findSearchEntries(long after, long upTo, Pageable page);
+
+    @Query("SELECT COALESCE(MAX(m.id), 0) FROM Message m")
+    long findMaxId();
+
 }
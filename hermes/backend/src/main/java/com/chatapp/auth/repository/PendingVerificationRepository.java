@@ -0,0 +1,30 @@
+package com.chatapp.auth.repository;
+
+import com.chatapp.auth.model.PendingVerification;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface PendingVerificationRepository extends JpaRepository<PendingVerification, Long> {
+
+    Optional<PendingVerification> findByEmailAndPurposeAndCodeHash(String email,
+                                                                   PendingVerification.Purpose purpose,
+                                                                   String codeHash);
+
+    boolean existsByEmailAndPurposeAndExpiresAtAfter(String email,
+                                                     PendingVerification.Purpose purpose,
+                                                     LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM PendingVerification p WHERE p.email = :email AND p.purpose = :purpose")
+    int deleteByEmailAndPurpose(String email, PendingVerification.Purpose purpose);
+
+    @Modifying
+    @Query("DELETE FROM PendingVerification p WHERE p.expiresAt < :now")
+    int deleteExpired(LocalDateTime now);
+}
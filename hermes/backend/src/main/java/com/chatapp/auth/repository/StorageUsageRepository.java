@@ -0,0 +1,33 @@
+package com.chatapp.auth.repository;
+
+import com.chatapp.auth.model.StorageUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StorageUsageRepository extends JpaRepository<StorageUsage, Long> {
+
+    Optional<StorageUsage> findByOwnerTypeAndOwnerId(StorageUsage.OwnerType ownerType, Long ownerId);
+
+    List<StorageUsage> findByOwnerTypeAndOwnerIdIn(StorageUsage.OwnerType ownerType, Collection<Long> ownerIds);
+
+    /**
+     * Adds a node's unflushed change to the shared total, so concurrent flushes from several
+     * nodes add up instead of overwriting each other.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO storage_usage (owner_type, owner_id, bytes_used, updated_at) " +
+            "VALUES (:ownerType, :ownerId, GREATEST(0, :delta), :at) " +
+            "ON DUPLICATE KEY UPDATE bytes_used = GREATEST(0, bytes_used + :delta), updated_at = :at",
+            nativeQuery = true)
+    void addBytesUsed(String ownerType, Long ownerId, long delta, Instant at);
+}
@@ -0,0 +1,38 @@
+package com.chatapp.auth.repository;
+
+import com.chatapp.auth.model.TokenRevocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface TokenRevocationRepository extends JpaRepository<TokenRevocation, Long> {
+
+    List<TokenRevocation> findByCreatedAtAfter(Instant since);
+
+    List<TokenRevocation> findByExpiresAtAfter(Instant now);
+
+    /**
+     * Inserts or raises a user's revocation watermark. created_at is bumped so other nodes pick
+     * up the change on their next sync.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO token_revocations (kind, subject, issued_before, expires_at, created_at) " +
+            "VALUES ('USER', :username, :issuedBefore, :expiresAt, :createdAt) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "issued_before = GREATEST(issued_before, VALUES(issued_before)), " +
+            "expires_at = GREATEST(expires_at, VALUES(expires_at)), " +
+            "created_at = VALUES(created_at)",
+            nativeQuery = true)
+    void upsertUserWatermark(String username, Instant issuedBefore, Instant expiresAt, Instant createdAt);
+
+    @Modifying
+    @Query("DELETE FROM TokenRevocation t WHERE t.expiresAt < :now")
+    int deleteExpired(Instant now);
+}
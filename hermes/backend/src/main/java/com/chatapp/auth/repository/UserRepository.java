@@ -1,21 +1,34 @@
 package com.chatapp.auth.repository;
 
+import com.chatapp.auth.chatapp.DTO.UserDataDto;
 import com.chatapp.auth.model.User;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.lang.NonNull;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
-    Optional<User> findByVerificationCode(String verificationCode);
     boolean existsByEmail(String email);
     Optional<User> findByUsername(String username);
     @SuppressWarnings("null")
     Optional<User> findById(@NonNull Long userId); // Adjusted to use Optional if not already
     List<User> findByUsernameContainingIgnoreCase(String username);
+    List<User> findByUsernameContainingIgnoreCase(String username, Pageable page);
+
+    // Keyset walk used to build the in-memory search index
+    @Query("SELECT new com.chatapp.auth.chatapp.DTO.UserDataDto(u.id, u.username, false) FROM User u " +
+            "WHERE u.id > :after ORDER BY u.id")
+    List<UserDataDto> findSearchEntriesAfter(Long after, Pageable page);
+
+    @Modifying
+    @Query("UPDATE User u SET u.online = :online WHERE u.id = :userId")
+    int updateOnlineStatus(Long userId, boolean online);
 
     // This method is not necessary if `findById` from JpaRepository is used
     // User findUserById(Long userId);
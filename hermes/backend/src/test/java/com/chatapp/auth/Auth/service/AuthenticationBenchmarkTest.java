@@ -0,0 +1,82 @@
+package com.chatapp.auth.Auth.service;
+
+import com.chatapp.auth.Auth.dto.LoginUserDto;
+import com.chatapp.auth.Benchmarks;
+import com.chatapp.auth.model.User;
+import com.chatapp.auth.repository.TokenRevocationRepository;
+import com.chatapp.auth.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cost of getting a fresh token pair by logging in again versus by rotating a refresh token.
+ * Login runs the configured BCrypt check; refresh verifies the token and records its revocation.
+ * Both database calls (the user lookup and the revocation insert) are mocked, so the figures
+ * compare CPU only and each path pays one more round trip in production.
+ */
+@EnabledIfSystemProperty(named = Benchmarks.ENABLED_PROPERTY, matches = "true")
+class AuthenticationBenchmarkTest {
+
+    private static final String SECRET = Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes());
+    private static final String PASSWORD = "correct horse battery staple";
+
+    @Test
+    void loginVersusRefresh() throws Exception {
+        JwtService jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 900_000L);
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", 1_209_600_000L);
+        jwtService.initSignInKey();
+
+        // Same encoder and strength as ApplicationConfiguration
+        BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+        User user = new User("alice", "alice@example.com", passwordEncoder.encode(PASSWORD));
+        user.setEnabled(true);
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findByEmail("alice@example.com")).thenReturn(Optional.of(user));
+
+        TokenRevocationService revocations = new TokenRevocationService(mock(TokenRevocationRepository.class), jwtService, 100_000);
+        AuthenticationService authenticationService = new AuthenticationService();
+        ReflectionTestUtils.setField(authenticationService, "userRepo", userRepository);
+        ReflectionTestUtils.setField(authenticationService, "passwordEncoder", passwordEncoder);
+        ReflectionTestUtils.setField(authenticationService, "jwtService", jwtService);
+        ReflectionTestUtils.setField(authenticationService, "tokenRevocationService", revocations);
+
+        LoginUserDto login = new LoginUserDto();
+        login.setEmail("alice@example.com");
+        login.setPassword(PASSWORD);
+
+        Benchmarks.Result loginResult = Benchmarks.run("login (bcrypt + token pair)", 20, 200, () -> {
+            User authenticated = authenticationService.authenticate(login);
+            jwtService.generateToken(authenticated);
+            jwtService.generateRefreshToken(authenticated.getUsername());
+        });
+
+        // Each rotation consumes its token, so hand every operation a fresh one
+        int operations = 20_000;
+        String[] refreshTokens = new String[operations + 2_000];
+        for (int i = 0; i < refreshTokens.length; i++) {
+            refreshTokens[i] = jwtService.generateRefreshToken("alice");
+        }
+        int[] next = {0};
+        Benchmarks.Result refreshResult = Benchmarks.run("refresh (verify + rotate + token pair)", 2_000, operations, () -> {
+            String username = authenticationService.rotateRefreshToken(refreshTokens[next[0]++]);
+            jwtService.generateToken(Map.of(), username);
+            jwtService.generateRefreshToken(username);
+        });
+
+        System.out.printf("refresh is %.0fx cheaper in CPU than login%n",
+                loginResult.cpuMicrosPerOp() / refreshResult.cpuMicrosPerOp());
+        assertThat(refreshResult.cpuMicrosPerOp()).isLessThan(loginResult.cpuMicrosPerOp());
+    }
+}
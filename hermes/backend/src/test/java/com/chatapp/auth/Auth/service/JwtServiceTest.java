@@ -0,0 +1,105 @@
+package com.chatapp.auth.Auth.service;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.MalformedJwtException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtServiceTest {
+
+    private static final String SECRET = Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes());
+    private static final String OTHER_SECRET = Base64.getEncoder().encodeToString("fedcba9876543210fedcba9876543210".getBytes());
+
+    private JwtService jwtService;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = jwtService(SECRET, 60_000);
+    }
+
+    @Test
+    void accessTokensCarryTheirTypeAndAFreshId() {
+        String first = jwtService.generateToken(Map.of("roles", List.of("ROLE_USER")), "alice");
+        String second = jwtService.generateToken(Map.of(), "alice");
+
+        Claims claims = jwtService.parseAccessToken(first);
+        assertThat(claims.getSubject()).isEqualTo("alice");
+        assertThat(claims.get("typ")).isEqualTo("access");
+        assertThat(claims.getId()).isNotBlank();
+        assertThat(claims.getId()).isNotEqualTo(jwtService.parseAccessToken(second).getId());
+    }
+
+    @Test
+    void extraClaimsCannotOverrideTheTokenType() {
+        String token = jwtService.generateToken(Map.of("typ", "refresh"), "alice");
+
+        assertThat(jwtService.parseAccessToken(token).get("typ")).isEqualTo("access");
+        assertThatThrownBy(() -> jwtService.parseRefreshToken(token)).isInstanceOf(MalformedJwtException.class);
+    }
+
+    @Test
+    void refreshTokensCarryTheirTypeAndAFreshId() {
+        String first = jwtService.generateRefreshToken("alice");
+        String second = jwtService.generateRefreshToken("alice");
+
+        Claims claims = jwtService.parseRefreshToken(first);
+        assertThat(claims.get("typ")).isEqualTo("refresh");
+        assertThat(claims.getId()).isNotBlank();
+        assertThat(claims.getId()).isNotEqualTo(jwtService.parseRefreshToken(second).getId());
+    }
+
+    @Test
+    void refreshTokensCannotBeUsedForAccess() {
+        String refresh = jwtService.generateRefreshToken("alice");
+        UserDetails alice = User.withUsername("alice").password("x").authorities(List.of()).build();
+
+        assertThatThrownBy(() -> jwtService.parseAccessToken(refresh)).isInstanceOf(MalformedJwtException.class);
+        assertThat(jwtService.isTokenValid(refresh, alice)).isFalse();
+        assertThat(jwtService.isTokenValid(jwtService.generateToken(Map.of(), "alice"), alice)).isTrue();
+    }
+
+    @Test
+    void accessTokensCannotBeExchangedForNewOnes() {
+        String access = jwtService.generateToken(Map.of(), "alice");
+
+        assertThatThrownBy(() -> jwtService.parseRefreshToken(access)).isInstanceOf(MalformedJwtException.class);
+    }
+
+    @Test
+    void rejectsTokensSignedWithAnotherKey() {
+        String forged = jwtService(OTHER_SECRET, 60_000).generateRefreshToken("alice");
+
+        assertThatThrownBy(() -> jwtService.parseRefreshToken(forged)).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void rejectsExpiredTokens() {
+        JwtService expiring = jwtService(SECRET, -1_000);
+
+        assertThatThrownBy(() -> expiring.parseAccessToken(expiring.generateToken(Map.of(), "alice")))
+                .isInstanceOf(ExpiredJwtException.class);
+        assertThatThrownBy(() -> expiring.parseRefreshToken(expiring.generateRefreshToken("alice")))
+                .isInstanceOf(ExpiredJwtException.class);
+    }
+
+    private static JwtService jwtService(String secret, long expiration) {
+        JwtService service = new JwtService();
+        ReflectionTestUtils.setField(service, "secretKey", secret);
+        ReflectionTestUtils.setField(service, "jwtExpiration", expiration);
+        ReflectionTestUtils.setField(service, "refreshExpiration", expiration);
+        service.initSignInKey();
+        return service;
+    }
+}
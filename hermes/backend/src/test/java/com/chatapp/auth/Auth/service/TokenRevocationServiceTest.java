@@ -0,0 +1,84 @@
+package com.chatapp.auth.Auth.service;
+
+import com.chatapp.auth.model.TokenRevocation;
+import com.chatapp.auth.repository.TokenRevocationRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TokenRevocationServiceTest {
+
+    private final Date expiresAt = Date.from(Instant.now().plus(1, ChronoUnit.HOURS));
+
+    private TokenRevocationRepository repository;
+    private TokenRevocationService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(TokenRevocationRepository.class);
+        JwtService jwtService = mock(JwtService.class);
+        when(jwtService.getRefreshExpirationTime()).thenReturn(3_600_000L);
+        service = new TokenRevocationService(repository, jwtService, 1000);
+    }
+
+    @Test
+    void aTokenIdCanOnlyBeRevokedOnce() {
+        assertThat(service.revokeToken("jti-1", expiresAt)).isTrue();
+        assertThat(service.revokeToken("jti-1", expiresAt)).isFalse();
+
+        assertThat(service.isRevoked(claims("alice", "jti-1", Instant.now()))).isTrue();
+        assertThat(service.isRevoked(claims("alice", "jti-2", Instant.now()))).isFalse();
+    }
+
+    @Test
+    void aTokenRevokedOnAnotherNodeFirstIsReportedAsUsed() {
+        when(repository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("uk_token_revocation_subject"));
+
+        assertThat(service.revokeToken("jti-1", expiresAt)).isFalse();
+        assertThat(service.isRevoked(claims("alice", "jti-1", Instant.now()))).isTrue();
+    }
+
+    @Test
+    void revokingAUserCutsOffEveryTokenIssuedSoFar() {
+        Instant issued = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        service.revokeAllForUser("alice");
+
+        verify(repository).upsertUserWatermark(any(), any(), any(), any());
+        assertThat(service.isRevoked(claims("alice", "jti-1", issued))).isTrue();
+        assertThat(service.isRevoked(claims("alice", "jti-2", issued.plusSeconds(5)))).isFalse();
+        assertThat(service.isRevoked(claims("bob", "jti-3", issued))).isFalse();
+    }
+
+    @Test
+    void syncAppliesRevocationsMadeOnOtherNodes() {
+        when(repository.findByCreatedAtAfter(any())).thenReturn(List.of(
+                new TokenRevocation(TokenRevocation.Kind.TOKEN, "jti-1", null, expiresAt.toInstant())));
+
+        service.sync();
+
+        assertThat(service.isRevoked(claims("alice", "jti-1", Instant.now()))).isTrue();
+        assertThat(service.revokeToken("jti-1", expiresAt)).isFalse();
+        verify(repository, never()).saveAndFlush(any());
+    }
+
+    private static Claims claims(String subject, String tokenId, Instant issuedAt) {
+        Claims claims = Jwts.claims().setSubject(subject);
+        claims.setId(tokenId);
+        claims.setIssuedAt(Date.from(issuedAt));
+        return claims;
+    }
+}
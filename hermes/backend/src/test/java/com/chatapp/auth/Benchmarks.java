@@ -0,0 +1,139 @@
+package com.chatapp.auth;
+
+import ch.qos.logback.classic.Level;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Harness for the opt-in benchmarks. Benchmark classes end in {@code BenchmarkTest}, are skipped
+ * unless {@code -Dbenchmark=true} is set, and print one line per case:
+ * <pre>
+ * mvn -B test -Dbenchmark=true -Dtest='*BenchmarkTest' -Dsurefire.failIfNoSpecifiedTests=false
+ * </pre>
+ * Every case runs a fixed warm-up and a fixed number of operations over deterministic inputs,
+ * and reports latency percentiles, throughput, and CPU time and heap allocation per operation
+ * as measured on the threads doing the work. Absolute numbers depend on the machine; compare the
+ * cases of one run with each other.
+ */
+public final class Benchmarks {
+
+    public static final String ENABLED_PROPERTY = "benchmark";
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    static {
+        // Per-operation logging would be most of what gets measured
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+    }
+
+    public interface Operation {
+        void run() throws Exception;
+    }
+
+    public record Result(String name, long operations, double p50Micros, double p95Micros, double p99Micros,
+                         double opsPerSecond, double cpuMicrosPerOp, double bytesPerOp) {
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%-48s ops=%-8d p50=%10.1fus p95=%10.1fus p99=%10.1fus %12.0f ops/s cpu=%10.1fus/op alloc=%12.0fB/op",
+                    name, operations, p50Micros, p95Micros, p99Micros, opsPerSecond, cpuMicrosPerOp, bytesPerOp);
+        }
+    }
+
+    private Benchmarks() {
+    }
+
+    /**
+     * Runs the operation on the calling thread and prints the result.
+     */
+    public static Result run(String name, int warmup, int operations, Operation operation) throws Exception {
+        return runConcurrent(name, 1, warmup, operations, operation);
+    }
+
+    /**
+     * Runs {@code operations} calls on each of {@code threads} threads started together, and prints
+     * the combined result. Throughput counts every thread's operations over the wall-clock time.
+     */
+    public static Result runConcurrent(String name, int threads, int warmup, int operations, Operation operation)
+            throws Exception {
+        for (int i = 0; i < warmup; i++) {
+            operation.run();
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<long[]>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(pool.submit(() -> {
+                    long[] samples = new long[operations + 2];
+                    start.await();
+                    long cpu = THREADS.getCurrentThreadCpuTime();
+                    long allocated = THREADS.getCurrentThreadAllocatedBytes();
+                    for (int i = 0; i < operations; i++) {
+                        long began = System.nanoTime();
+                        operation.run();
+                        samples[i] = System.nanoTime() - began;
+                    }
+                    samples[operations] = THREADS.getCurrentThreadCpuTime() - cpu;
+                    samples[operations + 1] = THREADS.getCurrentThreadAllocatedBytes() - allocated;
+                    return samples;
+                }));
+            }
+            long began = System.nanoTime();
+            start.countDown();
+            long[] latencies = new long[threads * operations];
+            long cpu = 0;
+            long allocated = 0;
+            for (int t = 0; t < threads; t++) {
+                long[] samples = workers.get(t).get();
+                System.arraycopy(samples, 0, latencies, t * operations, operations);
+                cpu += samples[operations];
+                allocated += samples[operations + 1];
+            }
+            long elapsed = System.nanoTime() - began;
+            long total = (long) threads * operations;
+            Result result = new Result(name, total, percentile(latencies, 0.50), percentile(latencies, 0.95),
+                    percentile(latencies, 0.99), total * 1e9 / elapsed, cpu / 1e3 / total, (double) allocated / total);
+            System.out.println(result);
+            return result;
+        } finally {
+            pool.shutdownNow();
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Latency percentiles of externally timed samples, in microseconds, for work that does not
+     * finish on the calling thread.
+     */
+    public static String percentiles(String name, long[] nanos) {
+        String line = String.format(Locale.ROOT, "%-48s samples=%-6d p50=%10.1fus p95=%10.1fus p99=%10.1fus max=%10.1fus",
+                name, nanos.length, percentile(nanos, 0.50), percentile(nanos, 0.95), percentile(nanos, 0.99),
+                percentile(nanos, 1.0));
+        System.out.println(line);
+        return line;
+    }
+
+    // Nearest-rank percentile in microseconds; sorts the samples in place
+    private static double percentile(long[] nanos, double fraction) {
+        if (nanos.length == 0) {
+            return 0;
+        }
+        Arrays.sort(nanos);
+        int rank = (int) Math.ceil(fraction * nanos.length);
+        return nanos[Math.max(0, Math.min(nanos.length - 1, rank - 1))] / 1e3;
+    }
+}
@@ -0,0 +1,39 @@
+package com.chatapp.auth.chatapp.controller;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UploadControllerTest {
+
+    @Test
+    void parsesARangeInsideTheUpload() {
+        assertThat(UploadController.parseContentRange("bytes 0-99/1000", 1000)).containsExactly(0, 100);
+        assertThat(UploadController.parseContentRange(" bytes 900-999/1000 ", 1000)).containsExactly(900, 100);
+        assertThat(UploadController.parseContentRange("bytes 5-5/6", 6)).containsExactly(5, 1);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "bytes 100-99/1000",             // end before start
+            "bytes 0-1000/1000",             // end past the last byte
+            "bytes 0-99/2000",               // total differs from the upload
+            "bytes 0-99/*",                  // unknown total
+            "bytes */1000",                  // unsatisfied-range form
+            "bytes=0-99/1000",               // Range syntax, not Content-Range
+            "bytes -1-99/1000",
+            "items 0-99/1000",
+            "bytes 0-99999999999999999999/1000",
+            ""
+    })
+    void rejectsMalformedOrOutOfBoundsRanges(String header) {
+        assertThat(UploadController.parseContentRange(header, 1000)).isNull();
+    }
+
+    @Test
+    void rejectsAnyRangeOfAnEmptyUpload() {
+        assertThat(UploadController.parseContentRange("bytes 0-0/0", 0)).isNull();
+    }
+}
@@ -0,0 +1,93 @@
+package com.chatapp.auth.chatapp.controller;
+
+import com.chatapp.auth.Auth.service.JwtService;
+import com.chatapp.auth.Auth.service.TokenRevocationService;
+import com.chatapp.auth.Benchmarks;
+import com.chatapp.auth.chatapp.components.StompPrincipal;
+import com.chatapp.auth.chatapp.service.WebSocketAuthService;
+import com.chatapp.auth.model.User;
+import com.chatapp.auth.repository.TokenRevocationRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.WebSocketHandler;
+
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * CPU per new WebSocket session: handshake plus STOMP CONNECT, authenticated once at the handshake
+ * and reused on CONNECT, against the previous flow modelled as three JWT parses and two user
+ * loads (handshake, CONNECT and the connect listener). User loads are mocked, so in production
+ * the old flow also paid one more database query per session.
+ */
+@EnabledIfSystemProperty(named = Benchmarks.ENABLED_PROPERTY, matches = "true")
+class WebSocketSessionBenchmarkTest {
+
+    private static final String SECRET = Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes());
+
+    @Test
+    void sessionSetup() throws Exception {
+        JwtService jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 900_000L);
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", 1_209_600_000L);
+        ReflectionTestUtils.invokeMethod(jwtService, "initSignInKey");
+
+        User user = new User("alice", "alice@example.com", "x");
+        user.setId(42L);
+        UserDetailsService userDetailsService = mock(UserDetailsService.class);
+        when(userDetailsService.loadUserByUsername(anyString())).thenReturn(user);
+        WebSocketAuthService authService = new WebSocketAuthService(jwtService, userDetailsService,
+                new TokenRevocationService(mock(TokenRevocationRepository.class), jwtService, 100_000));
+        JwtHandshakeInterceptor handshakeInterceptor = new JwtHandshakeInterceptor(authService);
+        JwtChannelInterceptor channelInterceptor = new JwtChannelInterceptor(authService);
+        WebSocketHandler handler = mock(WebSocketHandler.class);
+        MessageChannel channel = mock(MessageChannel.class);
+        String token = jwtService.generateToken(Map.of(), "alice");
+
+        Benchmarks.Result once = Benchmarks.run("session setup, authenticated once", 5_000, 50_000, () -> {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/ws");
+            request.setParameter("token", token);
+            Map<String, Object> attributes = new HashMap<>();
+            handshakeInterceptor.beforeHandshake(new ServletServerHttpRequest(request),
+                    new ServletServerHttpResponse(new MockHttpServletResponse()), handler, attributes);
+            channelInterceptor.preSend(connect(attributes), channel);
+        });
+
+        Benchmarks.Result before = Benchmarks.run("session setup, three parses (previous flow)", 5_000, 50_000, () -> {
+            authService.authenticate(token);
+            authService.authenticate(token);
+            jwtService.extractUsername(token);
+        });
+
+        System.out.printf("authenticating once saves %.0f%% of session setup CPU%n",
+                100 * (1 - once.cpuMicrosPerOp() / before.cpuMicrosPerOp()));
+        assertThat(once.cpuMicrosPerOp()).isLessThan(before.cpuMicrosPerOp());
+    }
+
+    private static Message<byte[]> connect(Map<String, Object> sessionAttributes) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setSessionAttributes(sessionAttributes);
+        accessor.setLeaveMutable(true);
+        Message<byte[]> message = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        assertThat(sessionAttributes.get(StompPrincipal.SESSION_ATTRIBUTE)).isNotNull();
+        return message;
+    }
+}
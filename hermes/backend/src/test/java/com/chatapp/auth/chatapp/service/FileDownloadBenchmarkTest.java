@@ -0,0 +1,102 @@
+package com.chatapp.auth.chatapp.service;
+
+import com.chatapp.auth.Benchmarks;
+import com.chatapp.auth.chatapp.DTO.FileDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Heap and throughput of downloading a 10 MB file from 8 concurrent clients: the streaming
+ * endpoint (full file and a 1 MB range) against the previous JSON endpoint, which read the
+ * whole file and returned it Base64-encoded in a {@link FileDTO}. Response bodies are written
+ * to a discarding stream, so only the server's own copying and allocation are measured.
+ */
+@EnabledIfSystemProperty(named = Benchmarks.ENABLED_PROPERTY, matches = "true")
+class FileDownloadBenchmarkTest {
+
+    private static final int FILE_SIZE = 10 * 1024 * 1024;
+    private static final int CLIENTS = 8;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void downloadTenMegabytes() throws Exception {
+        byte[] content = new byte[FILE_SIZE];
+        new Random(42).nextBytes(content);
+        Path file = Files.write(directory.resolve("blob"), content);
+        FileDownloadService downloads = new FileDownloadService(mock(BlobStorage.class), 900);
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        Benchmarks.Result streamed = Benchmarks.runConcurrent("stream 10 MB", CLIENTS, 10, 100, () -> {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/blob");
+            HttpServletResponse response = discarding();
+            downloads.serve(file, "image/png", "\"etag\"", request, response);
+            assertThat(response.getStatus()).isEqualTo(200);
+        });
+
+        Benchmarks.runConcurrent("stream 1 MB range of 10 MB", CLIENTS, 10, 100, () -> {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/blob");
+            request.addHeader("Range", "bytes=4194304-5242879");
+            downloads.serve(file, "image/png", "\"etag\"", request, discarding());
+        });
+
+        Benchmarks.Result json = Benchmarks.runConcurrent("Base64 JSON 10 MB (previous endpoint)", CLIENTS, 2, 20, () -> {
+            FileDTO fileDTO = new FileDTO();
+            fileDTO.setName("blob");
+            fileDTO.setType(Files.probeContentType(file));
+            fileDTO.setSize(Files.size(file));
+            fileDTO.setContent(Base64.getEncoder().encodeToString(Files.readAllBytes(file)));
+            objectMapper.writeValue(OutputStream.nullOutputStream(), fileDTO);
+        });
+
+        System.out.printf("streaming allocates %.0f KB per download against %.0f KB for the JSON endpoint%n",
+                streamed.bytesPerOp() / 1024, json.bytesPerOp() / 1024);
+        assertThat(streamed.bytesPerOp()).isLessThan(json.bytesPerOp());
+    }
+
+    // A response whose body goes nowhere, so the benchmark does not buffer 10 MB per call itself
+    private static HttpServletResponse discarding() {
+        ServletOutputStream sink = new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        };
+        return new HttpServletResponseWrapper(new MockHttpServletResponse()) {
+            @Override
+            public ServletOutputStream getOutputStream() {
+                return sink;
+            }
+        };
+    }
+}
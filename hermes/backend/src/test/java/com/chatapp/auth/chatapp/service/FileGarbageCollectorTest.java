@@ -0,0 +1,192 @@
+package com.chatapp.auth.chatapp.service;
+
+import com.chatapp.auth.model.FileUpload;
+import com.chatapp.auth.model.UploadedFile;
+import com.chatapp.auth.repository.FileUploadRepository;
+import com.chatapp.auth.repository.FilesRepository;
+import com.chatapp.auth.repository.GroupRepository;
+import com.chatapp.auth.repository.MessageRepository;
+import com.chatapp.auth.repository.StorageUsageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Quota accounting across a file's life: charged its stored size when uploaded, deduplicated on
+ * repeat uploads, credited back when the collector deletes it. Runs the real file store and quota
+ * counters on a temporary directory, with the repositories kept in maps.
+ */
+class FileGarbageCollectorTest {
+
+    private static final long ALICE = 1L;
+    private static final long BOB = 2L;
+    private static final byte[] CONTENT = "the same holiday photo, sent again and again".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path root;
+
+    private final FilesRepository filesRepository = mock(FilesRepository.class);
+    private final FileUploadRepository fileUploadRepository = mock(FileUploadRepository.class);
+    private final GroupRepository groupRepository = mock(GroupRepository.class);
+    private final ImageNormalizer imageNormalizer = mock(ImageNormalizer.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    // files by content hash, and the users recorded against each file id
+    private final Map<String, UploadedFile> files = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> uploads = new ConcurrentHashMap<>();
+    private Path blobs;
+    private QuotaService quotaService;
+    private FileService fileService;
+    private FileGarbageCollector collector;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        blobs = Files.createDirectory(root.resolve("blobs"));
+        BlobStorage blobStorage = new LocalBlobStorage(blobs.toString());
+        StorageUsageRepository storageUsageRepository = mock(StorageUsageRepository.class);
+        when(storageUsageRepository.findByOwnerTypeAndOwnerId(any(), any())).thenReturn(Optional.empty());
+        quotaService = new QuotaService(storageUsageRepository, blobStorage, registry);
+        ReflectionTestUtils.setField(quotaService, "userLimit", 1_000_000L);
+        ReflectionTestUtils.setField(quotaService, "groupLimit", 1_000_000L);
+        ReflectionTestUtils.setField(quotaService, "minFreeBytes", 0L);
+        when(imageNormalizer.normalize(any(), any(), anyLong())).thenReturn(Optional.empty());
+        fileService = new FileService(filesRepository, fileUploadRepository, mock(ThumbnailService.class),
+                blobStorage, imageNormalizer, quotaService);
+        collector = new FileGarbageCollector(filesRepository, mock(MessageRepository.class), groupRepository,
+                fileService, blobStorage, quotaService, registry);
+        ReflectionTestUtils.setField(collector, "batchSize", 100);
+        ReflectionTestUtils.setField(collector, "maxOpsPerSecond", 10_000);
+
+        when(filesRepository.findByContentHash(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(files.get(invocation.<String>getArgument(0))));
+        when(filesRepository.save(any(UploadedFile.class))).thenAnswer(invocation -> {
+            UploadedFile file = invocation.getArgument(0);
+            file.setFiles_id(files.size() + 1L);
+            files.put(file.getContentHash(), file);
+            return file;
+        });
+        when(filesRepository.findGcCandidates(anyLong(), any(), any(), any()))
+                .thenAnswer(invocation -> List.copyOf(files.values()));
+        when(filesRepository.deleteIfUnreferenced(anyLong())).thenAnswer(invocation ->
+                files.values().removeIf(file -> file.getFiles_id().equals(invocation.getArgument(0))) ? 1 : 0);
+        when(fileUploadRepository.touch(anyLong(), anyLong(), any())).thenAnswer(invocation ->
+                uploads.getOrDefault(invocation.<Long>getArgument(0), Set.of()).contains(invocation.<Long>getArgument(1)) ? 1 : 0);
+        when(fileUploadRepository.save(any(FileUpload.class))).thenAnswer(invocation -> {
+            FileUpload upload = invocation.getArgument(0);
+            if (!uploads.computeIfAbsent(upload.getFileId(), id -> ConcurrentHashMap.newKeySet()).add(upload.getUserId())) {
+                throw new DataIntegrityViolationException("Duplicate entry for file_uploads");
+            }
+            return upload;
+        });
+        when(fileUploadRepository.findUserIdsByFileId(anyLong()))
+                .thenAnswer(invocation -> List.copyOf(uploads.getOrDefault(invocation.<Long>getArgument(0), Set.of())));
+        when(fileUploadRepository.deleteByFileId(anyLong())).thenAnswer(invocation -> {
+            Set<Long> removed = uploads.remove(invocation.<Long>getArgument(0));
+            return removed != null ? removed.size() : 0;
+        });
+    }
+
+    @Test
+    void eachUploaderIsChargedOnceAndCreditedWhenTheFileIsDeleted() throws Exception {
+        UploadedFile first = upload(ALICE);
+        assertThat(upload(ALICE).getFiles_id()).isEqualTo(first.getFiles_id());
+        assertThat(uploadInChunks(ALICE).getFiles_id()).isEqualTo(first.getFiles_id());
+        upload(BOB);
+
+        assertThat(files).hasSize(1);
+        assertThat(quotaService.getUserUsage(ALICE)).isEqualTo(CONTENT.length);
+        assertThat(quotaService.getUserUsage(BOB)).isEqualTo(CONTENT.length);
+
+        collector.collect();
+
+        assertThat(files).isEmpty();
+        assertThat(uploads).isEmpty();
+        assertThat(quotaService.getUserUsage(ALICE)).isZero();
+        assertThat(quotaService.getUserUsage(BOB)).isZero();
+        try (Stream<Path> stored = Files.walk(blobs)) {
+            assertThat(stored.filter(Files::isRegularFile)).isEmpty();
+        }
+    }
+
+    @Test
+    void normalizedImageIsChargedItsStoredSize() throws Exception {
+        byte[] normalized = new byte[CONTENT.length / 4];
+        when(imageNormalizer.normalize(any(), eq("image/png"), anyLong())).thenReturn(Optional.of(normalized));
+
+        UploadedFile file = upload(ALICE, "image/png");
+        upload(BOB, "image/png");
+
+        assertThat(file.getSize()).isEqualTo(normalized.length);
+        assertThat(quotaService.getUserUsage(ALICE)).isEqualTo(normalized.length);
+        assertThat(quotaService.getUserUsage(BOB)).isEqualTo(normalized.length);
+
+        collector.collect();
+
+        assertThat(quotaService.getUserUsage(ALICE)).isZero();
+        assertThat(quotaService.getUserUsage(BOB)).isZero();
+    }
+
+    @Test
+    void expiredAttachmentIsCreditedToItsGroups() throws Exception {
+        ReflectionTestUtils.setField(collector, "retentionDays", 30L);
+        UploadedFile file = upload(ALICE);
+        quotaService.chargeGroup(9L, file.getSize());
+        when(groupRepository.findGroupIdsByFileId(file.getFiles_id())).thenReturn(List.of(9L));
+        assertThat(groupUsage()).isEqualTo(CONTENT.length);
+
+        collector.collect();
+
+        assertThat(files).isEmpty();
+        assertThat(groupUsage()).isZero();
+        assertThat(quotaService.getUserUsage(ALICE)).isZero();
+    }
+
+    // As ChatController does for an inline image: admit, store, then complete
+    private UploadedFile upload(long userId) throws IOException {
+        return upload(userId, "text/plain");
+    }
+
+    private UploadedFile upload(long userId, String contentType) throws IOException {
+        quotaService.admitUpload(userId, CONTENT.length);
+        UploadedFile saved = fileService.storeFile(new MockMultipartFile("file", "photo.txt", contentType, CONTENT),
+                userId, CONTENT.length);
+        quotaService.completeUpload(CONTENT.length);
+        return saved;
+    }
+
+    // As UploadSessionService does once the last chunk of a resumable upload is in
+    private UploadedFile uploadInChunks(long userId) throws IOException {
+        quotaService.admitUpload(userId, CONTENT.length);
+        Path partial = Files.write(root.resolve("upload.partial"), CONTENT);
+        UploadedFile saved = fileService.storeUploadedFile(partial, null, "photo.txt", "text/plain", userId, CONTENT.length);
+        quotaService.completeUpload(CONTENT.length);
+        assertThat(partial).doesNotExist();
+        return saved;
+    }
+
+    private double groupUsage() {
+        return registry.get("hermes.storage.used").tag("owner", "group").gauge().value();
+    }
+}
@@ -0,0 +1,173 @@
+package com.chatapp.auth.chatapp.service;
+
+import com.chatapp.auth.Benchmarks;
+import com.chatapp.auth.chatapp.DTO.GroupDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.MimeTypeUtils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Group broadcast latency by group size, one size per bucket of the {@code hermes.groups.fanout}
+ * timer, with every member subscribed. Sessions sit behind a real {@link ExecutorSubscribableChannel}
+ * whose handler only counts frames. Each broadcast reports the CPU time spent on the sending
+ * thread, which is what it costs the inbound channel, and the wall-clock time until the last
+ * session has been handed its frame. The previous path delivered to every session on the sending
+ * thread, reproduced by the same per-session send in a loop. A last case times a 10-member group
+ * while a 5000-member group broadcasts back to back, which is the starvation per-group fairness
+ * is there to prevent. On a single core the workers compete with the sender, so compare the
+ * sender CPU figures rather than the wall-clock ones.
+ */
+@EnabledIfSystemProperty(named = Benchmarks.ENABLED_PROPERTY, matches = "true")
+class GroupFanoutBenchmarkTest {
+
+    private static final int[] SIZES = {10, 100, 1_000, 5_000};
+    private static final int BROADCASTS = 300;
+    private static final int WARMUP = 50;
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    // destination -> deliveries still expected for the broadcast in flight
+    private final Map<String, CountDownLatch> inFlight = new ConcurrentHashMap<>();
+    private final ExecutorSubscribableChannel channel = new ExecutorSubscribableChannel();
+
+    {
+        channel.subscribe(message -> {
+            CountDownLatch latch = inFlight.get(SimpMessageHeaderAccessor.getDestination(message.getHeaders()));
+            if (latch != null) {
+                latch.countDown();
+            }
+        });
+    }
+
+    @Test
+    void latencyByGroupSize() throws Exception {
+        GroupMembershipService membership = mock(GroupMembershipService.class);
+        MessageEncoder encoder = new MessageEncoder(Jackson2ObjectMapperBuilder.json().build(),
+                mock(SimpMessagingTemplate.class), new SimpleMeterRegistry());
+        GroupFanoutService fanout = new GroupFanoutService(channel, encoder, membership, new SimpleMeterRegistry(), 4);
+        ReflectionTestUtils.setField(fanout, "shardSize", 256);
+        ReflectionTestUtils.setField(fanout, "maxShards", 8);
+        for (int size : SIZES) {
+            Set<Long> members = new HashSet<>();
+            for (long user = 0; user < size; user++) {
+                members.add(user);
+                fanout.subscribe("session-" + size + "-" + user, "sub-0", "/topic/group/" + size, user);
+            }
+            when(membership.getMemberIds((long) size)).thenReturn(members);
+        }
+        GroupDTO payload = new GroupDTO("hello everyone, this is a message of typical length", "alice",
+                LocalDateTime.now(), 7L, 0L, 42L);
+
+        for (int size : SIZES) {
+            long[] senderCpu = new long[BROADCASTS];
+            long[] delivered = new long[BROADCASTS];
+            long[] inlineCpu = new long[BROADCASTS];
+            long[] inline = new long[BROADCASTS];
+            for (int i = -WARMUP; i < BROADCASTS; i++) {
+                CountDownLatch latch = expect(size, size);
+                long began = System.nanoTime();
+                long cpu = THREADS.getCurrentThreadCpuTime();
+                fanout.broadcast((long) size, payload);
+                long queuedCpu = THREADS.getCurrentThreadCpuTime() - cpu;
+                assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+                long done = System.nanoTime();
+
+                CountDownLatch sequential = expect(size, size);
+                long inlineBegan = System.nanoTime();
+                cpu = THREADS.getCurrentThreadCpuTime();
+                deliverInline(size, encoder.encode(payload).getPayload());
+                long sequentialCpu = THREADS.getCurrentThreadCpuTime() - cpu;
+                long inlineDone = System.nanoTime();
+                assertThat(sequential.getCount()).isZero();
+                if (i >= 0) {
+                    senderCpu[i] = queuedCpu;
+                    delivered[i] = done - began;
+                    inlineCpu[i] = sequentialCpu;
+                    inline[i] = inlineDone - inlineBegan;
+                }
+            }
+            Benchmarks.percentiles("fan-out, " + size + " members, sender CPU", senderCpu);
+            Benchmarks.percentiles("fan-out, " + size + " members, all delivered", delivered);
+            Benchmarks.percentiles("inline (previous path), " + size + ", sender CPU", inlineCpu);
+            Benchmarks.percentiles("inline (previous path), " + size + ", delivered", inline);
+            if (size >= 1_000) {
+                // Sorted by percentiles(); the sender does a fraction of the per-session work
+                assertThat(senderCpu[BROADCASTS / 2]).isLessThan(inlineCpu[BROADCASTS / 2]);
+            }
+        }
+
+        long[] alone = smallGroupLatency(fanout, payload, false);
+        long[] contended = smallGroupLatency(fanout, payload, true);
+        Benchmarks.percentiles("fan-out, 10 members, idle", alone);
+        Benchmarks.percentiles("fan-out, 10 members, 5000-member group busy", contended);
+        fanout.shutdown();
+    }
+
+    private long[] smallGroupLatency(GroupFanoutService fanout, GroupDTO payload, boolean busy) throws Exception {
+        AtomicBoolean running = new AtomicBoolean(busy);
+        Thread flood = new Thread(() -> {
+            while (running.get()) {
+                CountDownLatch latch = expect(5_000, 5_000);
+                fanout.broadcast(5_000L, payload);
+                try {
+                    latch.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        flood.start();
+        long[] samples = new long[BROADCASTS];
+        for (int i = 0; i < BROADCASTS; i++) {
+            CountDownLatch latch = expect(10, 10);
+            long began = System.nanoTime();
+            fanout.broadcast(10L, payload);
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+            samples[i] = System.nanoTime() - began;
+        }
+        running.set(false);
+        flood.join();
+        return samples;
+    }
+
+    private CountDownLatch expect(int groupId, int deliveries) {
+        CountDownLatch latch = new CountDownLatch(deliveries);
+        inFlight.put("/topic/group/" + groupId, latch);
+        return latch;
+    }
+
+    // What the simple broker did on the sending thread: one frame per subscribed session
+    private void deliverInline(int size, byte[] payload) {
+        String destination = "/topic/group/" + size;
+        for (long user = 0; user < size; user++) {
+            SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            headers.setSessionId("session-" + size + "-" + user);
+            headers.setSubscriptionId("sub-0");
+            headers.setDestination(destination);
+            headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+            channel.send(MessageBuilder.createMessage(payload, headers.getMessageHeaders()));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.chatapp.auth.chatapp.service;
+
+import com.chatapp.auth.chatapp.components.EncodedMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GroupFanoutServiceTest {
+
+    private final List<Message<?>> sent = new CopyOnWriteArrayList<>();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final GroupMembershipService membership = mock(GroupMembershipService.class);
+    private GroupFanoutService fanout;
+
+    @BeforeEach
+    void setUp() {
+        ExecutorSubscribableChannel channel = new ExecutorSubscribableChannel();
+        channel.subscribe(sent::add);
+        MessageEncoder encoder = new MessageEncoder(new ObjectMapper(), mock(SimpMessagingTemplate.class), registry);
+        fanout = new GroupFanoutService(channel, encoder, membership, registry, 2);
+        ReflectionTestUtils.setField(fanout, "shardSize", 3);
+        ReflectionTestUtils.setField(fanout, "maxShards", 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fanout.shutdown();
+    }
+
+    @Test
+    void deliversEveryChunkToMembersOnly() throws Exception {
+        when(membership.getMemberIds(9L)).thenReturn(Set.copyOf(LongStream.range(0, 20).boxed().toList()));
+        for (long user = 0; user < 20; user++) {
+            fanout.subscribe("session-" + user, "sub", "/topic/group/9", user);
+        }
+        fanout.subscribe("stranger", "sub", "/topic/group/9", 99L);
+
+        fanout.broadcast(9L, encoded("first"));
+        fanout.broadcast(9L, encoded("second"));
+        awaitDeliveries(40);
+
+        assertThat(sent).extracting(message -> SimpMessageHeaderAccessor.getSessionId(message.getHeaders()))
+                .doesNotContain("stranger");
+        for (long user = 0; user < 20; user++) {
+            String session = "session-" + user;
+            assertThat(sent).filteredOn(message -> session.equals(SimpMessageHeaderAccessor.getSessionId(message.getHeaders())))
+                    .extracting(message -> new String((byte[]) message.getPayload(), StandardCharsets.UTF_8))
+                    .containsExactly("first", "second");
+        }
+        // Recorded once per broadcast, when its last shard is done
+        assertThat(registry.get("hermes.groups.fanout").tag("members", "11-100").timer().count()).isEqualTo(2);
+        assertThat(registry.get("hermes.messages.deliveries").tag("route", "group").counter().count()).isEqualTo(40);
+    }
+
+    @Test
+    void unsubscribedAndDisconnectedSessionsGetNothing() throws Exception {
+        when(membership.getMemberIds(9L)).thenReturn(Set.of(1L, 2L, 3L));
+        fanout.subscribe("session-1", "sub", "/topic/group/9", 1L);
+        fanout.subscribe("session-2", "sub", "/topic/group/9", 2L);
+        fanout.subscribe("session-3", "sub", "/topic/group/9", 3L);
+        fanout.unsubscribe("session-1", "sub");
+        fanout.disconnect("session-2");
+
+        fanout.broadcast(9L, encoded("hello"));
+        awaitDeliveries(1);
+
+        assertThat(sent).extracting(message -> SimpMessageHeaderAccessor.getSessionId(message.getHeaders()))
+                .containsExactly("session-3");
+    }
+
+    private static EncodedMessage encoded(String text) {
+        return new EncodedMessage(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void awaitDeliveries(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (sent.size() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        // Anything past the expected count would show up in the assertions
+        Thread.sleep(50);
+        assertThat(sent).hasSize(expected);
+    }
+}
@@ -0,0 +1,136 @@
+package com.chatapp.auth.chatapp.service;
+
+import com.chatapp.auth.Benchmarks;
+import com.chatapp.auth.model.Group;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Throughput of a chatty group: 50 of a 1k-member group's members posting at once, each waiting
+ * for its message to be committed. The database is simulated as a fixed round trip per statement
+ * and per commit, so the figures show how many round trips each path needs rather than how fast
+ * a particular MySQL is. The batched writer pays, per batch, one insert, one inbox update for the
+ * members, one batched inbox upsert for the senders and one commit. The previous path paid, per
+ * message, the group lookup, the insert, the sender lookup, the two inbox statements and its own
+ * commit, on a pool of 10 connections.
+ */
+@EnabledIfSystemProperty(named = Benchmarks.ENABLED_PROPERTY, matches = "true")
+class GroupMessageWriterBenchmarkTest {
+
+    private static final long ROUND_TRIP_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+    private static final int SENDERS = 50;
+    private static final int MESSAGES_PER_SENDER = 200;
+    private static final int CONNECTIONS = 10;
+
+    @Test
+    void chattyGroup() throws Exception {
+        AtomicLong ids = new AtomicLong();
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.batchUpdate(any(PreparedStatementCreator.class), any(BatchPreparedStatementSetter.class),
+                any(KeyHolder.class))).thenAnswer(invocation -> {
+            roundTrip();
+            BatchPreparedStatementSetter setter = invocation.getArgument(1);
+            KeyHolder keys = invocation.getArgument(2);
+            for (int i = 0; i < setter.getBatchSize(); i++) {
+                keys.getKeyList().add(Map.of("GENERATED_KEY", ids.incrementAndGet()));
+            }
+            return new int[setter.getBatchSize()];
+        });
+        InboxService inboxService = mock(InboxService.class);
+        doAnswer(invocation -> {
+            // The members' update and the senders' batched upsert
+            roundTrip();
+            roundTrip();
+            return null;
+        }).when(inboxService).recordGroupMessages(anyLong(), anyList());
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        GroupMessageWriter writer = new GroupMessageWriter(jdbcTemplate, new TransactionTemplate(committingManager()),
+                inboxService, registry, 4);
+        ReflectionTestUtils.setField(writer, "batchSize", 100);
+        ReflectionTestUtils.setField(writer, "timeout", 10_000L);
+
+        Benchmarks.Result batched = Benchmarks.runConcurrent("batched writer, " + SENDERS + " senders", SENDERS, 0,
+                MESSAGES_PER_SENDER, () -> writer.write(1L, message(), "hello everyone"));
+        System.out.printf("mean batch size %.1f%n", registry.get("hermes.groups.write.batch.size").summary().mean());
+        writer.shutdown();
+
+        Semaphore pool = new Semaphore(CONNECTIONS);
+        Benchmarks.Result perMessage = Benchmarks.runConcurrent("per-message saves (previous path), " + SENDERS + " senders",
+                SENDERS, 0, MESSAGES_PER_SENDER, () -> {
+                    pool.acquire();
+                    try {
+                        roundTrip(); // groupDetailsRepository.findById
+                        roundTrip(); // groupRepository.save
+                        roundTrip(); // userRepository.findById
+                        roundTrip(); // inbox: the group's entries
+                        roundTrip(); // inbox: the sender's entry
+                        roundTrip(); // commit
+                    } finally {
+                        pool.release();
+                    }
+                });
+
+        System.out.printf("batched writer sustains %.1fx the message rate%n", batched.opsPerSecond() / perMessage.opsPerSecond());
+        assertThat(batched.opsPerSecond()).isGreaterThan(perMessage.opsPerSecond());
+    }
+
+    private static Group message() {
+        Group message = new Group();
+        message.setContent("hello everyone");
+        // Each sender thread is a different member
+        message.setSenderId(Thread.currentThread().getId());
+        message.setSenderName("alice");
+        message.setTimestamp(LocalDateTime.now());
+        return message;
+    }
+
+    private static PlatformTransactionManager committingManager() {
+        return new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+                roundTrip();
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+                roundTrip();
+            }
+        };
+    }
+
+    private static void roundTrip() {
+        LockSupport.parkNanos(ROUND_TRIP_NANOS);
+    }
+}
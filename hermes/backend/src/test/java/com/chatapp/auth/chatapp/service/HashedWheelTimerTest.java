@@ -0,0 +1,98 @@
+package com.chatapp.auth.chatapp.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HashedWheelTimerTest {
+
+    private HashedWheelTimer timer;
+
+    @AfterEach
+    void stopTimer() {
+        if (timer != null) {
+            timer.stop();
+        }
+    }
+
+    @Test
+    void runsTasksNoEarlierThanTheirDelay() throws InterruptedException {
+        timer = new HashedWheelTimer("test-timer", 10, 8);
+        CountDownLatch done = new CountDownLatch(1);
+        long[] firedAfter = new long[1];
+        long scheduledAt = System.nanoTime();
+        timer.schedule(() -> {
+            firedAfter[0] = System.nanoTime() - scheduledAt;
+            done.countDown();
+        }, 50);
+
+        assertThat(done.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(firedAfter[0]).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    void delaysLongerThanOneTurnWaitForTheirRound() throws InterruptedException {
+        // A 4-bucket wheel of 10 ms turns every 40 ms, so 100 ms needs two extra rounds
+        timer = new HashedWheelTimer("test-timer", 10, 4);
+        List<String> fired = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(2);
+        long scheduledAt = System.nanoTime();
+        long[] longFiredAfter = new long[1];
+        timer.schedule(() -> {
+            longFiredAfter[0] = System.nanoTime() - scheduledAt;
+            fired.add("long");
+            done.countDown();
+        }, 100);
+        timer.schedule(() -> {
+            fired.add("short");
+            done.countDown();
+        }, 20);
+
+        assertThat(done.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(fired).containsExactly("short", "long");
+        assertThat(longFiredAfter[0]).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    void aFailingTaskDoesNotStopTheTimer() throws InterruptedException {
+        timer = new HashedWheelTimer("test-timer", 5, 8);
+        CountDownLatch done = new CountDownLatch(1);
+        timer.schedule(() -> {
+            throw new IllegalStateException("boom");
+        }, 0);
+        timer.schedule(done::countDown, 20);
+
+        assertThat(done.await(2, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void runsManyTimeoutsOnce() throws InterruptedException {
+        timer = new HashedWheelTimer("test-timer", 5, 16);
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1000);
+        for (int i = 0; i < 1000; i++) {
+            timer.schedule(() -> {
+                runs.incrementAndGet();
+                done.countDown();
+            }, i % 100);
+        }
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(50);
+        assertThat(runs.get()).isEqualTo(1000);
+    }
+
+    @Test
+    void rejectsWheelSizesThatAreNotPowersOfTwo() {
+        assertThatThrownBy(() -> new HashedWheelTimer("test-timer", 10, 6)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new HashedWheelTimer("test-timer", 0, 8)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
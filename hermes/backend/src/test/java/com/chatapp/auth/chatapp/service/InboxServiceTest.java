@@ -0,0 +1,71 @@
+package com.chatapp.auth.chatapp.service;
+
+import com.chatapp.auth.repository.InboxEntryRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class InboxServiceTest {
+
+    private static final LocalDateTime FIRST = LocalDateTime.of(2026, 1, 1, 12, 0);
+    private static final LocalDateTime LAST = FIRST.plusSeconds(2);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void batchCountsEachSendersOwnMessagesAsRead() throws Exception {
+        InboxEntryRepository repository = mock(InboxEntryRepository.class);
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        PreparedStatement alice = mock(PreparedStatement.class);
+        PreparedStatement bob = mock(PreparedStatement.class);
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> {
+                    List<Object> senders = List.copyOf((Collection<Object>) invocation.getArgument(1));
+                    ParameterizedPreparedStatementSetter<Object> setter = invocation.getArgument(3);
+                    setter.setValues(alice, senders.get(0));
+                    setter.setValues(bob, senders.get(1));
+                    return new int[1][2];
+                });
+
+        new InboxService(repository, jdbcTemplate).recordGroupMessages(9L, List.of(
+                new InboxService.GroupMessage(101, 1L, "hi", FIRST),
+                new InboxService.GroupMessage(102, 2L, "hello", FIRST.plusSeconds(1)),
+                new InboxService.GroupMessage(103, 1L, "how are you?", LAST)));
+
+        // Everyone else: three unread, previewing the last message
+        verify(repository).recordGroupMessages(9L, 103, 1L, "how are you?", LAST, 3, Set.of(1L, 2L));
+        // Alice sent the last one: read up to it, with Bob's message unread
+        verify(alice).setLong(1, 1L);
+        verify(alice).setLong(7, 103);
+        verify(alice).setInt(8, 1);
+        // Bob is read up to his own message; both of Alice's count, as they did one message at a time
+        verify(bob).setLong(1, 2L);
+        verify(bob).setLong(7, 102);
+        verify(bob).setInt(8, 2);
+        verify(bob).setString(5, "how are you?");
+    }
+
+    @Test
+    void emptyBatchWritesNothing() {
+        InboxEntryRepository repository = mock(InboxEntryRepository.class);
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+        new InboxService(repository, jdbcTemplate).recordGroupMessages(9L, List.of());
+
+        verifyNoInteractions(repository, jdbcTemplate);
+    }
+}
@@ -0,0 +1,117 @@
+package com.chatapp.auth.chatapp.service;
+
+import com.chatapp.auth.Benchmarks;
+import com.chatapp.auth.chatapp.DTO.MessageDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.ByteArrayMessageConverter;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * CPU time and heap allocation per delivered message, encoding once against running Jackson
+ * for every recipient. Direct messages go through a real {@link SimpMessagingTemplate} with the
+ * broker's converters, comparing {@code convertAndSend} with {@link MessageEncoder#send}. Group
+ * messages build one frame per session as the fan-out does, from shared bytes or from a fresh
+ * serialization each, for 10 and 100 recipients. Sessions sit behind a channel whose handler
+ * only counts frames. Each case prints its per-message line, then the same divided by recipients.
+ */
+@EnabledIfSystemProperty(named = Benchmarks.ENABLED_PROPERTY, matches = "true")
+class MessageEncoderBenchmarkTest {
+
+    private static final int WARMUP = 20_000;
+    private static final int MESSAGES = 50_000;
+
+    private final AtomicLong frames = new AtomicLong();
+
+    @Test
+    void encodeOnceVersusPerRecipient() throws Exception {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        ExecutorSubscribableChannel channel = new ExecutorSubscribableChannel();
+        channel.subscribe(message -> frames.incrementAndGet());
+        SimpMessagingTemplate template = new SimpMessagingTemplate(channel);
+        MappingJackson2MessageConverter jackson = new MappingJackson2MessageConverter();
+        jackson.setObjectMapper(objectMapper);
+        template.setMessageConverter(new CompositeMessageConverter(
+                List.of(new StringMessageConverter(), new ByteArrayMessageConverter(), jackson)));
+        MessageEncoder encoder = new MessageEncoder(objectMapper, template, new SimpleMeterRegistry());
+        MessageDTO payload = payload();
+
+        Benchmarks.Result converted = perDelivery(1, Benchmarks.run("direct, convertAndSend (previous path)", WARMUP, MESSAGES,
+                () -> template.convertAndSend("/topic/user/2/queue/private", payload)));
+        Benchmarks.Result encoded = perDelivery(1, Benchmarks.run("direct, encode once + send", WARMUP, MESSAGES,
+                () -> encoder.send("/topic/user/2/queue/private", encoder.encode(payload))));
+        assertThat(encoded.bytesPerOp()).isLessThan(converted.bytesPerOp());
+
+        for (int recipients : new int[]{10, 100}) {
+            int messages = MESSAGES / recipients;
+            Benchmarks.Result perRecipient = perDelivery(recipients, Benchmarks.run(
+                    "group of " + recipients + ", Jackson per recipient", WARMUP / recipients, messages, () -> {
+                        for (int session = 0; session < recipients; session++) {
+                            channel.send(frame(session, objectMapper.writeValueAsBytes(payload)));
+                        }
+                    }));
+            Benchmarks.Result once = perDelivery(recipients, Benchmarks.run(
+                    "group of " + recipients + ", encode once", WARMUP / recipients, messages, () -> {
+                        byte[] bytes = encoder.encode(payload).getPayload();
+                        for (int session = 0; session < recipients; session++) {
+                            channel.send(frame(session, bytes));
+                        }
+                    }));
+            assertThat(once.bytesPerOp()).isLessThan(perRecipient.bytesPerOp());
+            assertThat(once.cpuMicrosPerOp()).isLessThan(perRecipient.cpuMicrosPerOp());
+        }
+        assertThat(frames.get()).isPositive();
+    }
+
+    // The result scaled to one delivery, printed under the per-message line
+    private static Benchmarks.Result perDelivery(int recipients, Benchmarks.Result result) {
+        Benchmarks.Result delivery = new Benchmarks.Result(result.name() + ", per delivery",
+                result.operations() * recipients, result.p50Micros() / recipients, result.p95Micros() / recipients,
+                result.p99Micros() / recipients, result.opsPerSecond() * recipients,
+                result.cpuMicrosPerOp() / recipients, result.bytesPerOp() / recipients);
+        if (recipients > 1) {
+            System.out.println(delivery);
+        }
+        return delivery;
+    }
+
+    // One frame for one session, as GroupFanoutService builds it
+    private static Message<byte[]> frame(int session, byte[] payload) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId("session-" + session);
+        headers.setSubscriptionId("sub-0");
+        headers.setDestination("/topic/group/9");
+        headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        return MessageBuilder.createMessage(payload, headers.getMessageHeaders());
+    }
+
+    private static MessageDTO payload() {
+        MessageDTO dto = new MessageDTO();
+        dto.setId(123_456L);
+        dto.setContent("Running ten minutes late, the train is stuck outside the station. Order for me if the "
+                + "waiter comes round, the usual is fine. See you soon!");
+        dto.setTimestamp(LocalDateTime.of(2026, 10, 19, 12, 30));
+        dto.setSenderId(7L);
+        dto.setReceiverId(9L);
+        dto.setTempId(1_700_000_000_000L);
+        return dto;
+    }
+}
@@ -0,0 +1,140 @@
+package com.chatapp.auth.chatapp.service;
+
+import com.chatapp.auth.chatapp.DTO.MessageSearchHitDTO;
+import com.chatapp.auth.chatapp.DTO.MessageSearchPageDTO;
+import com.chatapp.auth.repository.GroupDetailsRepository;
+import com.chatapp.auth.repository.GroupRepository;
+import com.chatapp.auth.repository.MessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MessageSearchIndexTest {
+
+    private final Counter evicted = new SimpleMeterRegistry().counter("evicted");
+
+    @Test
+    void termsAreFoldedDedupedAndLengthBounded() {
+        assertThat(MessageSearchIndex.terms("Hello, hello WORLD! a é-té " + "x".repeat(41)))
+                .containsExactly("hello", "world", "té");
+        assertThat(MessageSearchIndex.terms(null)).isEmpty();
+    }
+
+    @Test
+    void partitionReturnsMessagesWithEveryTermNewestFirst() {
+        MessageSearchIndex.Partition partition = new MessageSearchIndex.Partition();
+        partition.add(direct(3, "lunch at noon"));
+        partition.add(direct(1, "lunch tomorrow at noon"));
+        partition.add(direct(2, "lunch maybe"));
+        partition.add(direct(5, "noon lunch again"));
+
+        assertThat(partition.search(List.of("lunch", "noon"), Long.MAX_VALUE, 10))
+                .extracting(MessageSearchHitDTO::getMessageId).containsExactly(5L, 3L, 1L);
+        assertThat(partition.search(List.of("lunch", "noon"), 5, 1))
+                .extracting(MessageSearchHitDTO::getMessageId).containsExactly(3L);
+        assertThat(partition.search(List.of("lunch", "dinner"), Long.MAX_VALUE, 10)).isEmpty();
+    }
+
+    @Test
+    void partitionIgnoresMessagesAlreadyIndexed() {
+        MessageSearchIndex.Partition partition = new MessageSearchIndex.Partition();
+
+        assertThat(partition.add(direct(1, "hello"))).isTrue();
+        assertThat(partition.add(direct(1, "hello again"))).isFalse();
+        assertThat(partition.search(List.of("again"), Long.MAX_VALUE, 10)).isEmpty();
+    }
+
+    @Test
+    void evictionDropsTheOldestMessageAndItsPostings() {
+        MessageSearchIndex.Partition partition = new MessageSearchIndex.Partition();
+        partition.add(direct(7, "alpha beta"));
+        partition.add(direct(4, "alpha gamma"));
+        partition.add(direct(9, "alpha"));
+
+        assertThat(partition.evictOldest()).isTrue();
+        assertThat(partition.size()).isEqualTo(2);
+        assertThat(partition.search(List.of("gamma"), Long.MAX_VALUE, 10)).isEmpty();
+        assertThat(partition.search(List.of("alpha"), Long.MAX_VALUE, 10))
+                .extracting(MessageSearchHitDTO::getMessageId).containsExactly(9L, 7L);
+
+        // Postings keep working after the head moved and the arrays grow again
+        for (long id = 10; id < 40; id++) {
+            partition.add(direct(id, "alpha"));
+        }
+        assertThat(partition.search(List.of("alpha"), 12, 10))
+                .extracting(MessageSearchHitDTO::getMessageId).containsExactly(11L, 10L, 9L, 7L);
+    }
+
+    @Test
+    void evictionKeepsTheLastMessageOfAConversation() {
+        MessageSearchIndex.Partition partition = new MessageSearchIndex.Partition();
+        partition.add(direct(1, "only"));
+
+        assertThat(partition.evictOldest()).isFalse();
+        assertThat(partition.size()).isEqualTo(1);
+    }
+
+    @Test
+    void indexStaysWithinItsCapByEvictingWithinTheConversation() {
+        MessageSearchIndex.Index index = new MessageSearchIndex.Index(3, evicted);
+        for (long id = 1; id <= 5; id++) {
+            index.add(direct(id, "message " + id));
+        }
+
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(evicted.count()).isEqualTo(2);
+    }
+
+    @Test
+    void catchUpIndexesRowsWrittenAfterTheRebuild() {
+        MessageRepository messages = mock(MessageRepository.class);
+        GroupRepository groups = mock(GroupRepository.class);
+        GroupDetailsRepository groupDetails = mock(GroupDetailsRepository.class);
+        when(messages.findMaxId()).thenReturn(0L);
+        when(groups.findMaxId()).thenReturn(0L);
+        when(messages.findSearchEntries(anyLong(), anyLong(), any(Pageable.class))).thenReturn(List.of());
+        when(groups.findSearchEntries(anyLong(), anyLong(), any(Pageable.class))).thenReturn(List.of());
+        MessageSearchIndex index = new MessageSearchIndex(messages, groups, groupDetails, Optional.empty(),
+                new SimpleMeterRegistry(), 100, 1000);
+
+        index.catchUp(); // Before the first rebuild: nothing to catch up from
+        index.rebuild();
+        when(messages.findSearchEntries(eq(0L), eq(Long.MAX_VALUE), any(Pageable.class)))
+                .thenReturn(List.of(direct(1, "written elsewhere")));
+        index.catchUp();
+
+        MessageSearchPageDTO page = index.search(10L, 20L, false, "elsewhere", null, 10);
+        assertThat(page.getItems()).extracting(MessageSearchHitDTO::getMessageId).containsExactly(1L);
+        // The other participant finds it too, and nobody else does
+        assertThat(index.search(20L, null, false, "written", null, 10).getItems()).hasSize(1);
+        assertThat(index.search(30L, null, false, "written", null, 10).getItems()).isEmpty();
+    }
+
+    @Test
+    void groupSearchRequiresMembership() {
+        GroupDetailsRepository groupDetails = mock(GroupDetailsRepository.class);
+        MessageSearchIndex index = new MessageSearchIndex(mock(MessageRepository.class), mock(GroupRepository.class),
+                groupDetails, Optional.empty(), new SimpleMeterRegistry(), 100, 1000);
+        when(groupDetails.existsByIdAndMembersId(5L, 10L)).thenReturn(false);
+
+        assertThatThrownBy(() -> index.search(10L, 5L, true, "anything", null, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static MessageSearchHitDTO direct(long id, String content) {
+        return new MessageSearchHitDTO(id, 10L, 20L, false, content, null, LocalDateTime.now());
+    }
+}
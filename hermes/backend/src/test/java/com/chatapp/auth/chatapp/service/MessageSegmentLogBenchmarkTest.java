@@ -0,0 +1,178 @@
+package com.chatapp.auth.chatapp.service;
+
+import com.chatapp.auth.Benchmarks;
+import com.chatapp.auth.repository.GroupRepository;
+import com.chatapp.auth.repository.MessageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Message body writes and history page reads through the segment log against the row-per-message
+ * path it replaces. The segment log always runs. The database side runs the statements the JPA
+ * path issues, against a scratch copy of the messages table with the same indexes, and only
+ * when a MySQL instance is given, e.g. the one from docker-compose.yml:
+ * <pre>
+ * -Dbenchmark.mysql.url=jdbc:mysql://localhost:3306/hermesdb -Dbenchmark.mysql.user=user -Dbenchmark.mysql.password=password123
+ * </pre>
+ * Each case writes 100 conversations with interleaved messages of 200 characters, then reads
+ * pages of the 50 newest messages of one conversation. A message in the segment store costs an
+ * append plus the body_ref-only insert; in the row store, the insert with the body.
+ */
+@EnabledIfSystemProperty(named = Benchmarks.ENABLED_PROPERTY, matches = "true")
+class MessageSegmentLogBenchmarkTest {
+
+    private static final int CONVERSATIONS = 100;
+    private static final int MESSAGES = 20_000;
+    private static final int PAGE = 50;
+    private static final String TABLE = "benchmark_messages";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void segmentLogVersusRows() throws Exception {
+        String[] bodies = bodies();
+        segmentLog(bodies, false);
+        segmentLog(bodies, true);
+
+        String url = System.getProperty("benchmark.mysql.url");
+        if (url == null) {
+            System.out.println("MySQL cases skipped; set -Dbenchmark.mysql.url to run them");
+            return;
+        }
+        try (Connection connection = DriverManager.getConnection(url, System.getProperty("benchmark.mysql.user"),
+                System.getProperty("benchmark.mysql.password"))) {
+            rows(connection, bodies);
+        }
+    }
+
+    private void segmentLog(String[] bodies, boolean fsync) throws Exception {
+        MessageSegmentLog segmentLog = new MessageSegmentLog(mock(MessageRepository.class), mock(GroupRepository.class),
+                lockingDataSource(), directory.resolve(fsync ? "fsync" : "no-fsync").toString(), 64 * 1024 * 1024,
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(segmentLog, "fsync", fsync);
+        String mode = fsync ? "fsync" : "no fsync";
+        // Enough synced writes for one full page per conversation
+        int writes = fsync ? CONVERSATIONS * PAGE : MESSAGES;
+
+        List<List<Long>> conversations = new ArrayList<>();
+        for (int i = 0; i < CONVERSATIONS; i++) {
+            conversations.add(new ArrayList<>());
+        }
+        int[] next = {0};
+        Benchmarks.run("segment log append (" + mode + ")", 0, writes, () -> {
+            int i = next[0]++;
+            conversations.get(i % CONVERSATIONS).add(segmentLog.append(bodies[i]));
+        });
+
+        List<Long> conversation = conversations.get(7);
+        List<Long> page = conversation.subList(conversation.size() - PAGE, conversation.size());
+        Benchmarks.run("segment log history page of " + PAGE + " (" + mode + ")", 1_000, 10_000, () -> {
+            assertThat(segmentLog.readAll(page)).hasSize(PAGE);
+        });
+        segmentLog.close();
+    }
+
+    private void rows(Connection connection, String[] bodies) throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + TABLE);
+            statement.execute("CREATE TABLE " + TABLE + " (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                    + "content VARCHAR(255) NOT NULL, body_ref BIGINT, timestamp DATETIME(6) NOT NULL, "
+                    + "sender_id BIGINT NOT NULL, receiver_id BIGINT, file_id BIGINT, "
+                    + "INDEX idx_pair_id (sender_id, receiver_id, id), INDEX idx_body_ref (body_ref))");
+        }
+        try {
+            String insert = "INSERT INTO " + TABLE + " (content, body_ref, timestamp, sender_id, receiver_id) VALUES (?, ?, ?, ?, ?)";
+            int[] next = {0};
+            try (PreparedStatement statement = connection.prepareStatement(insert)) {
+                Benchmarks.run("MySQL insert with body in the row", 0, MESSAGES, () -> {
+                    int i = next[0]++;
+                    statement.setString(1, bodies[i]);
+                    statement.setObject(2, null);
+                    statement.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
+                    statement.setLong(4, i % CONVERSATIONS);
+                    statement.setLong(5, CONVERSATIONS + i % CONVERSATIONS);
+                    statement.executeUpdate();
+                });
+                // The segment store's row: empty content plus the locator, written after the append
+                next[0] = 0;
+                Benchmarks.run("MySQL insert with body_ref only", 0, MESSAGES, () -> {
+                    int i = next[0]++;
+                    statement.setString(1, "");
+                    statement.setLong(2, i);
+                    statement.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
+                    statement.setLong(4, i % CONVERSATIONS);
+                    statement.setLong(5, CONVERSATIONS + i % CONVERSATIONS);
+                    statement.executeUpdate();
+                });
+            }
+
+            String history = "SELECT id, content FROM " + TABLE + " WHERE sender_id = ? AND receiver_id = ? ORDER BY id DESC LIMIT " + PAGE;
+            try (PreparedStatement statement = connection.prepareStatement(history)) {
+                Benchmarks.run("MySQL history page of " + PAGE, 100, 2_000, () -> {
+                    statement.setLong(1, 7);
+                    statement.setLong(2, CONVERSATIONS + 7);
+                    int rows = 0;
+                    try (ResultSet result = statement.executeQuery()) {
+                        while (result.next()) {
+                            result.getString(2);
+                            rows++;
+                        }
+                    }
+                    assertThat(rows).isEqualTo(PAGE);
+                });
+            }
+        } finally {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP TABLE IF EXISTS " + TABLE);
+            }
+        }
+    }
+
+    private static String[] bodies() {
+        Random random = new Random(42);
+        String[] bodies = new String[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++) {
+            StringBuilder body = new StringBuilder(200);
+            while (body.length() < 200) {
+                body.append((char) ('a' + random.nextInt(26)));
+            }
+            bodies[i] = body.toString();
+        }
+        return bodies;
+    }
+
+    private static DataSource lockingDataSource() throws Exception {
+        ResultSet result = mock(ResultSet.class);
+        when(result.next()).thenReturn(true);
+        when(result.getInt(1)).thenReturn(1);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(statement.executeQuery()).thenReturn(result);
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        return dataSource;
+    }
+}
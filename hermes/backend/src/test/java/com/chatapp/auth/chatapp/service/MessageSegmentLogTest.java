@@ -0,0 +1,135 @@
+package com.chatapp.auth.chatapp.service;
+
+import com.chatapp.auth.repository.GroupRepository;
+import com.chatapp.auth.repository.MessageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MessageSegmentLogTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+    private static final int HEADER_SIZE = 8;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoversRecordsAndAppendsAfterTheLastOne() throws Exception {
+        MessageSegmentLog first = open();
+        long hello = first.append("hello");
+        long world = first.append("wörld");
+        first.close();
+
+        MessageSegmentLog reopened = open();
+        assertThat(reopened.read(hello)).isEqualTo("hello");
+        assertThat(reopened.read(world)).isEqualTo("wörld");
+        long next = reopened.append("again");
+        assertThat(segmentOf(next)).isZero();
+        assertThat(offsetOf(next)).isEqualTo(offsetOf(world) + HEADER_SIZE + "wörld".getBytes("UTF-8").length);
+        reopened.close();
+    }
+
+    @Test
+    void emptyBodyDoesNotEndTheLog() throws Exception {
+        MessageSegmentLog first = open();
+        long before = first.append("before");
+        long empty = first.append("");
+        long after = first.append("after");
+        first.close();
+
+        MessageSegmentLog reopened = open();
+        assertThat(reopened.read(before)).isEqualTo("before");
+        assertThat(reopened.read(empty)).isEmpty();
+        assertThat(reopened.read(after)).isEqualTo("after");
+        // Appends continue behind the last record rather than overwriting it
+        assertThat(offsetOf(reopened.append("next"))).isEqualTo(offsetOf(after) + HEADER_SIZE + "after".length());
+        reopened.close();
+    }
+
+    @Test
+    void tornTailSealsTheSegment() throws Exception {
+        MessageSegmentLog first = open();
+        long kept = first.append("kept");
+        long torn = first.append("torn");
+        first.close();
+        // Flip a body byte so the checksum no longer matches
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve("segment-0000000000.log").toFile(), "rw")) {
+            file.seek(offsetOf(torn) + HEADER_SIZE);
+            file.write('T');
+        }
+
+        MessageSegmentLog reopened = open();
+        assertThat(reopened.read(kept)).isEqualTo("kept");
+        long next = reopened.append("fresh");
+        assertThat(segmentOf(next)).isEqualTo(1);
+        assertThat(offsetOf(next)).isZero();
+        reopened.close();
+    }
+
+    @Test
+    void rollsOverWhenTheSegmentIsFull() throws Exception {
+        MessageSegmentLog segmentLog = open();
+        String body = "x".repeat(SEGMENT_SIZE / 2);
+        long first = segmentLog.append(body);
+        long second = segmentLog.append(body);
+
+        assertThat(segmentOf(first)).isZero();
+        assertThat(segmentOf(second)).isEqualTo(1);
+        assertThat(segmentLog.read(second)).isEqualTo(body);
+        assertThatThrownBy(() -> segmentLog.append("x".repeat(SEGMENT_SIZE)))
+                .isInstanceOf(IllegalArgumentException.class);
+        segmentLog.close();
+    }
+
+    @Test
+    void refusesToStartWhenAnotherNodeHoldsTheStore() {
+        assertThatThrownBy(() -> open(0)).isInstanceOf(IllegalStateException.class);
+    }
+
+    private MessageSegmentLog open() throws IOException, SQLException {
+        return open(1);
+    }
+
+    private MessageSegmentLog open(int lockResult) throws IOException, SQLException {
+        return new MessageSegmentLog(mock(MessageRepository.class), mock(GroupRepository.class), lockingDataSource(lockResult),
+                directory.toString(), SEGMENT_SIZE, new SimpleMeterRegistry());
+    }
+
+    // GET_LOCK answers lockResult: 1 when acquired, 0 when another session holds it
+    private static DataSource lockingDataSource(int lockResult) throws SQLException {
+        ResultSet result = mock(ResultSet.class);
+        when(result.next()).thenReturn(true);
+        when(result.getInt(1)).thenReturn(lockResult);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(statement.executeQuery()).thenReturn(result);
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        return dataSource;
+    }
+
+    private static int segmentOf(long ref) {
+        return (int) (ref >>> 32);
+    }
+
+    private static int offsetOf(long ref) {
+        return (int) ref;
+    }
+}
@@ -0,0 +1,90 @@
+package com.chatapp.auth.chatapp.service;
+
+import com.chatapp.auth.Benchmarks;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Typeahead latency of the name index at 1M users, for the query shapes a search box sends:
+ * one or two characters (prefix only), and three to six characters taken from the middle of real
+ * names (trigram path). A scan over all names with {@code contains} stands in for what the
+ * previous unbounded {@code LIKE '%q%'} query had to do, without the database round trip.
+ */
+@EnabledIfSystemProperty(named = Benchmarks.ENABLED_PROPERTY, matches = "true")
+class NameIndexBenchmarkTest {
+
+    private static final int USERS = 1_000_000;
+    private static final int LIMIT = 10;
+    private static final String[] PARTS = {
+            "al", "be", "car", "dan", "el", "fi", "go", "han", "is", "jo", "ka", "li", "mar", "ni", "ol",
+            "pe", "qu", "ro", "sa", "ti", "ul", "vi", "wes", "xa", "yo", "ze", "bert", "son", "ley", "ton"};
+
+    @Test
+    void searchAtOneMillionUsers() throws Exception {
+        Random random = new Random(42);
+        List<String> names = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            StringBuilder name = new StringBuilder();
+            for (int p = 2 + random.nextInt(3); p > 0; p--) {
+                name.append(PARTS[random.nextInt(PARTS.length)]);
+            }
+            names.add(name.append(random.nextInt(1000)).toString());
+        }
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        long startedAt = System.nanoTime();
+        NameIndex index = new NameIndex();
+        for (int i = 0; i < USERS; i++) {
+            index.add(i, names.get(i));
+        }
+        long buildMillis = (System.nanoTime() - startedAt) / 1_000_000;
+        System.gc();
+        long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+        System.out.printf("indexed %d names in %d ms, about %d MB of heap%n", USERS, buildMillis,
+                (heapAfter - heapBefore) / (1024 * 1024));
+
+        String[] shortQueries = new String[1_000];
+        String[] substringQueries = new String[1_000];
+        for (int i = 0; i < shortQueries.length; i++) {
+            String name = names.get(random.nextInt(USERS));
+            shortQueries[i] = name.substring(0, 1 + random.nextInt(2));
+            int length = 3 + random.nextInt(4);
+            int from = random.nextInt(Math.max(1, name.length() - length));
+            substringQueries[i] = name.substring(from, Math.min(name.length(), from + length));
+        }
+
+        int[] next = {0};
+        Benchmarks.run("index, 1-2 character prefix", 2_000, 20_000, () -> {
+            assertThat(index.search(shortQueries[next[0]++ % shortQueries.length], LIMIT)).isNotEmpty();
+        });
+        next[0] = 0;
+        Benchmarks.run("index, 3-6 character substring", 2_000, 20_000, () -> {
+            assertThat(index.search(substringQueries[next[0]++ % substringQueries.length], LIMIT)).isNotEmpty();
+        });
+        AtomicInteger shared = new AtomicInteger();
+        Benchmarks.runConcurrent("index, 3-6 character substring, 8 threads", 8, 2_000, 20_000, () -> {
+            index.search(substringQueries[shared.getAndIncrement() % substringQueries.length], LIMIT);
+        });
+        next[0] = 0;
+        Benchmarks.run("full scan with contains (LIKE '%q%')", 5, 50, () -> {
+            String query = substringQueries[next[0]++ % substringQueries.length].toLowerCase(Locale.ROOT);
+            List<String> found = new ArrayList<>();
+            for (String name : names) {
+                if (name.toLowerCase(Locale.ROOT).contains(query)) {
+                    found.add(name);
+                }
+            }
+            assertThat(found).isNotEmpty();
+        });
+    }
+}
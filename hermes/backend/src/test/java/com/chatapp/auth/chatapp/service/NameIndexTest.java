@@ -0,0 +1,95 @@
+package com.chatapp.auth.chatapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NameIndexTest {
+
+    @Test
+    void ranksPrefixMatchesBeforeSubstringMatches() {
+        NameIndex index = new NameIndex();
+        index.add(1, "Mallory");
+        index.add(2, "Alice");
+        index.add(3, "Alicia");
+        index.add(4, "Dalia");
+
+        assertThat(index.search("ali", 10)).extracting(NameIndex.Hit::id).containsExactly(2L, 3L, 4L);
+    }
+
+    @Test
+    void ranksSubstringMatchesByPositionThenLength() {
+        NameIndex index = new NameIndex();
+        index.add(1, "xxbobby");
+        index.add(2, "xbobcat");
+        index.add(3, "xbobby");
+
+        assertThat(index.search("bob", 10)).extracting(NameIndex.Hit::id).containsExactly(3L, 2L, 1L);
+    }
+
+    @Test
+    void matchesCaseInsensitivelyAndKeepsOriginalSpelling() {
+        NameIndex index = new NameIndex();
+        index.add(1, "BobSmith");
+
+        assertThat(index.search("  SMI ", 10)).containsExactly(new NameIndex.Hit(1, "BobSmith", 3));
+    }
+
+    @Test
+    void rejectsTrigramsThatOnlyMatchOutOfOrder() {
+        NameIndex index = new NameIndex();
+        // Holds every trigram of "abcd" ("abc", "bcd") but not the substring itself
+        index.add(1, "bcdxabc");
+
+        assertThat(index.search("abcd", 10)).isEmpty();
+    }
+
+    @Test
+    void shortQueriesOnlyMatchPrefixes() {
+        NameIndex index = new NameIndex();
+        index.add(1, "carol");
+        index.add(2, "oscar");
+
+        assertThat(index.search("ca", 10)).extracting(NameIndex.Hit::id).containsExactly(1L);
+    }
+
+    @Test
+    void keepsTheBestHitsWhenLimited() {
+        NameIndex index = new NameIndex();
+        for (int i = 0; i < 50; i++) {
+            index.add(i, "x".repeat(i % 10 + 1) + "team" + i);
+        }
+
+        assertThat(index.search("team", 3)).extracting(NameIndex.Hit::name)
+                .containsExactly("xteam0", "xteam10", "xteam20");
+    }
+
+    @Test
+    void ignoresDuplicateIdsAndNullNames() {
+        NameIndex index = new NameIndex();
+        index.add(1, "dave");
+        index.add(1, "david");
+        index.add(2, null);
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.search("dav", 10)).containsExactly(new NameIndex.Hit(1, "dave", 0));
+    }
+
+    @Test
+    void equalNamesKeepSeparateEntries() {
+        NameIndex index = new NameIndex();
+        index.add(1, "sam");
+        index.add(2, "Sam");
+
+        assertThat(index.search("sam", 10)).extracting(NameIndex.Hit::id).containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    @Test
+    void emptyQueryOrLimitFindsNothing() {
+        NameIndex index = new NameIndex();
+        index.add(1, "erin");
+
+        assertThat(index.search(" ", 10)).isEmpty();
+        assertThat(index.search("er", 0)).isEmpty();
+    }
+}
@@ -0,0 +1,89 @@
+package com.chatapp.auth.chatapp.service;
+
+import com.chatapp.auth.model.StorageUsage.OwnerType;
+import com.chatapp.auth.repository.StorageUsageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class QuotaServiceTest {
+
+    private final StorageUsageRepository repository = mock(StorageUsageRepository.class);
+    private final BlobStorage blobStorage = mock(BlobStorage.class);
+    private QuotaService quotaService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(repository.findByOwnerTypeAndOwnerId(any(), any())).thenReturn(Optional.empty());
+        when(blobStorage.usableSpace()).thenReturn(-1L);
+        quotaService = new QuotaService(repository, blobStorage, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(quotaService, "userLimit", 1_000L);
+        ReflectionTestUtils.setField(quotaService, "groupLimit", 1_000L);
+        ReflectionTestUtils.setField(quotaService, "minFreeBytes", 100L);
+    }
+
+    @Test
+    void uploadOverTheLimitIsRefusedWithoutCharging() {
+        quotaService.admitUpload(1L, 800);
+
+        assertThatThrownBy(() -> quotaService.admitUpload(1L, 300))
+                .isInstanceOfSatisfying(QuotaService.QuotaExceededException.class,
+                        e -> assertThat(e.isStorageFull()).isFalse());
+        assertThat(quotaService.getUserUsage(1L)).isEqualTo(800);
+    }
+
+    @Test
+    void uploadIsRefusedWhenPendingBytesWouldFillTheVolume() throws Exception {
+        when(blobStorage.usableSpace()).thenReturn(600L);
+        quotaService.admitUpload(1L, 300);
+
+        assertThatThrownBy(() -> quotaService.admitUpload(2L, 300))
+                .isInstanceOfSatisfying(QuotaService.QuotaExceededException.class,
+                        e -> assertThat(e.isStorageFull()).isTrue());
+
+        // Once the first upload is written its bytes are no longer pending
+        quotaService.completeUpload(300);
+        when(blobStorage.usableSpace()).thenReturn(600L);
+        quotaService.admitUpload(2L, 300);
+        assertThat(quotaService.getUserUsage(2L)).isEqualTo(300);
+    }
+
+    @Test
+    void cancelledUploadIsReleased() {
+        quotaService.admitUpload(1L, 400);
+        quotaService.cancelUpload(1L, 400);
+
+        assertThat(quotaService.getUserUsage(1L)).isZero();
+    }
+
+    @Test
+    void flushWritesOnlyTheChangeSinceTheLastFlush() {
+        quotaService.admitUpload(1L, 400);
+        quotaService.chargeGroup(9L, 250);
+        quotaService.flush();
+        verify(repository).addBytesUsed(eq("USER"), eq(1L), eq(400L), any());
+        verify(repository).addBytesUsed(eq("GROUP"), eq(9L), eq(250L), any());
+
+        quotaService.release(OwnerType.USER, 1L, 150);
+        quotaService.flush();
+        verify(repository).addBytesUsed(eq("USER"), eq(1L), eq(-150L), any());
+        assertThat(quotaService.getUserUsage(1L)).isEqualTo(250);
+
+        // Nothing changed, nothing written
+        quotaService.flush();
+        verify(repository, times(3)).addBytesUsed(any(), any(), anyLong(), any());
+    }
+}
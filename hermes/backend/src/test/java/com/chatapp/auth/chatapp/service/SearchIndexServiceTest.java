@@ -0,0 +1,48 @@
+package com.chatapp.auth.chatapp.service;
+
+import com.chatapp.auth.chatapp.DTO.UserDataDto;
+import com.chatapp.auth.repository.GroupDetailsRepository;
+import com.chatapp.auth.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+
+class SearchIndexServiceTest {
+
+    private final SearchIndexService index = new SearchIndexService(mock(UserRepository.class),
+            mock(GroupDetailsRepository.class), new SimpleMeterRegistry());
+
+    @Test
+    void groupsAreNotCrowdedOutByUsers() {
+        for (long id = 1; id <= 5; id++) {
+            index.indexUser(id, "sam" + id);
+        }
+        index.indexGroup(1L, "sam");
+
+        assertThat(index.search("sam", 3)).extracting(UserDataDto::getName, UserDataDto::isGroup)
+                .containsExactly(tuple("sam", true), tuple("sam1", false), tuple("sam2", false));
+    }
+
+    @Test
+    void rankingIsSharedAcrossUsersAndGroups() {
+        index.indexUser(1L, "xxsamuel");
+        index.indexUser(2L, "xsamantha");
+        index.indexGroup(1L, "xsam club");
+        index.indexGroup(2L, "samba night");
+
+        assertThat(index.search("sam", 10)).extracting(UserDataDto::getName, UserDataDto::isGroup)
+                .containsExactly(tuple("samba night", true), tuple("xsam club", true),
+                        tuple("xsamantha", false), tuple("xxsamuel", false));
+    }
+
+    @Test
+    void userWinsATieWithAGroup() {
+        index.indexUser(7L, "design");
+        index.indexGroup(7L, "design");
+
+        assertThat(index.search("des", 10)).extracting(UserDataDto::isGroup).containsExactly(false, true);
+    }
+}
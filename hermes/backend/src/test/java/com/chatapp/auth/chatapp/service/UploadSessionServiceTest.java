@@ -0,0 +1,74 @@
+package com.chatapp.auth.chatapp.service;
+
+import com.chatapp.auth.chatapp.components.UploadSession;
+import com.chatapp.auth.model.StorageUsage.OwnerType;
+import com.chatapp.auth.model.UploadedFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UploadSessionServiceTest {
+
+    @TempDir
+    Path uploadDir;
+
+    private final FileService fileService = mock(FileService.class);
+    private final QuotaService quotaService = mock(QuotaService.class);
+
+    @Test
+    void restartReleasesChargesOfLostSessionsAndDeletesTheirFiles() throws Exception {
+        UploadSessionService before = service();
+        UploadSession halfDone = before.start(1L, "video.mp4", "video/mp4", 1_000);
+        before.append(halfDone.getUploadId(), 1L, 0, 400, new ByteArrayInputStream(new byte[400]));
+        before.start(2L, "photo.jpg", "image/jpeg", 300);
+
+        service().discardAbandonedUploads();
+
+        verify(quotaService).release(OwnerType.USER, 1L, 1_000);
+        verify(quotaService).release(OwnerType.USER, 2L, 300);
+        assertThat(partialFiles()).isZero();
+    }
+
+    @Test
+    void settledSessionsAreNotReleasedAgain() throws Exception {
+        UploadSessionService before = service();
+        UploadSession aborted = before.start(1L, "video.mp4", "video/mp4", 1_000);
+        before.abort(aborted.getUploadId(), 1L);
+        UploadSession completed = before.start(1L, "photo.jpg", "image/jpeg", 300);
+        when(fileService.storeUploadedFile(any(), any(), any(), any(), any(), anyLong())).thenReturn(new UploadedFile());
+        before.append(completed.getUploadId(), 1L, 0, 300, new ByteArrayInputStream(new byte[300]));
+        verify(quotaService).cancelUpload(1L, 1_000);
+        verify(quotaService).completeUpload(300);
+
+        service().discardAbandonedUploads();
+
+        verify(quotaService, never()).release(any(), any(), anyLong());
+    }
+
+    private UploadSessionService service() {
+        UploadSessionService service = new UploadSessionService(fileService, quotaService);
+        ReflectionTestUtils.setField(service, "uploadDir", uploadDir.toString());
+        ReflectionTestUtils.setField(service, "maxFileSize", 10_000L);
+        ReflectionTestUtils.setField(service, "sessionTtl", 3_600_000L);
+        return service;
+    }
+
+    private long partialFiles() throws Exception {
+        try (Stream<Path> files = Files.list(uploadDir.resolve(".partial"))) {
+            return files.count();
+        }
+    }
+}